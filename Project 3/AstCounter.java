@@ -0,0 +1,85 @@
+import syntaxtree.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Counts the nodes and the tokens of a syntax tree. Every JTB node keeps its
+// children in public fields (f0, f1, ... or nodes, node and choice for the
+// lists, the optionals and the choices), so the tree is walked through those
+// instead of through a visitor with a method for every kind of node.
+public class AstCounter {
+
+    private Map<Class<?>, List<Field>> childFields; // The fields that can hold children, for every node class
+    private long nodes;
+    private long tokens;
+
+    public AstCounter() {
+        childFields = new HashMap<Class<?>, List<Field>>();
+        nodes = 0;
+        tokens = 0;
+    }
+
+    public long getNodes() { return nodes; }
+
+    public long getTokens() { return tokens; }
+
+    public void count(Node root) {
+        // An explicit stack, since long statement lists make deep trees
+        Deque<Node> pending = new ArrayDeque<Node>();
+
+        nodes = 0;
+        tokens = 0;
+        pending.push(root);
+
+        while(!pending.isEmpty()) {
+            Node node = pending.pop();
+
+            nodes++;
+            if(node instanceof NodeToken) {
+                tokens++;
+                continue;
+            }
+
+            for(Field field : fieldsOf(node.getClass())) {
+                Object child;
+
+                try {
+                    child = field.get(node);
+                }
+                catch(IllegalAccessException ex) {
+                    continue;
+                }
+
+                if(child instanceof Node)
+                    pending.push((Node) child);
+                else if(child instanceof Collection) {
+                    for(Object element : (Collection<?>) child) {
+                        if(element instanceof Node)
+                            pending.push((Node) element);
+                    }
+                }
+            }
+        }
+    }
+
+    private List<Field> fieldsOf(Class<?> nodeClass) {
+        List<Field> fields = childFields.get(nodeClass);
+
+        if(fields == null) {
+            fields = new ArrayList<Field>();
+            for(Field field : nodeClass.getFields()) {
+                if(!Modifier.isStatic(field.getModifiers()) && (Node.class.isAssignableFrom(field.getType()) || Collection.class.isAssignableFrom(field.getType())))
+                    fields.add(field);
+            }
+            childFields.put(nodeClass, fields);
+        }
+
+        return fields;
+    }
+}
@@ -0,0 +1,137 @@
+import syntaxtree.Goal;
+import java.io.*;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Measures how much heap the syntax tree of a program takes, per line of
+// source, as the JTB classes of the syntaxtree package hold it and as a
+// CompactAst. The heap is measured after a full collection before the
+// program is parsed, once the JTB tree has been built and once only the
+// compact tree is left, so the numbers are what each tree keeps alive.
+// They are only as exact as System.gc() is, so the largest inputs give the
+// steadiest ones.
+//
+// Usage: java AstFootprint [--scale n,n,...] [--generate n,n,...] [--seed n] inputs...
+//
+// The inputs, --scale and --generate are the same as those of the
+// PipelineBenchmark.
+public class AstFootprint {
+
+    private static final int COLLECTIONS = 5; // Full collections before every measurement
+
+    private AstCounter astCounter;
+
+    public AstFootprint() {
+        astCounter = new AstCounter();
+    }
+
+    public void measure(String name, int scale, String source) throws IOException {
+        byte[] bytes = source.getBytes("UTF-8");
+        MiniJavaParser parser = new MiniJavaParser(new ByteArrayInputStream(bytes));
+        long lines = source.chars().filter(c -> c == '\n').count() + 1;
+        long before, jtbBytes, compactBytes, jtbNodes;
+        CompactAst compact;
+        Goal root;
+
+        before = usedHeap();
+        try {
+            root = parser.Goal();
+        }
+        catch(ParseException ex) {
+            System.out.println(name + " (x" + scale + "): " + ex.getMessage());
+            return;
+        }
+        jtbBytes = usedHeap() - before;
+
+        astCounter.count(root);
+        jtbNodes = astCounter.getNodes();
+        compact = CompactAst.of(root);
+        root = null;
+        compactBytes = usedHeap() - before;
+        Reference.reachabilityFence(compact);
+        Reference.reachabilityFence(parser);
+
+        System.out.printf(Locale.ROOT, "%s (x%d, %d lines)%n", name, scale, lines);
+        System.out.printf(Locale.ROOT, "  %-14s %12d bytes %10.1f bytes/line %10d nodes%n", "JTB tree", jtbBytes, (double) jtbBytes / lines, jtbNodes);
+        System.out.printf(Locale.ROOT, "  %-14s %12d bytes %10.1f bytes/line %10d nodes%n", "compact tree", compactBytes,
+                          (double) compactBytes / lines, (long) compact.getNodeCount());
+        System.out.printf(Locale.ROOT, "  %-14s %12.2f%n", "ratio", (double) jtbBytes / Math.max(compactBytes, 1));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+
+        for(int i = 0; i < COLLECTIONS; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void measureInput(String input, int[] scales) throws IOException {
+        File file = new File(input);
+
+        if(file.isDirectory()) {
+            File[] entries = file.listFiles();
+
+            if(entries == null)
+                return;
+
+            Arrays.sort(entries);
+            for(int i = 0; i < entries.length; i++) {
+                String name = entries[i].getName();
+
+                if(entries[i].isFile() && (name.endsWith(".java") || name.endsWith(".txt")) && !name.contains("-error"))
+                    measureInput(entries[i].getPath(), scales);
+            }
+            return;
+        }
+
+        String source = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+        for(int i = 0; i < scales.length; i++)
+            measure(file.getName(), scales[i], PipelineBenchmark.scale(source, scales[i]));
+    }
+
+    public static void main(String[] args) {
+        int[] scales = { 1 };
+        int[] generated = {};
+        long seed = 1;
+        List<String> inputNames = new ArrayList<String>();
+        AstFootprint footprint = new AstFootprint();
+
+        try {
+            for(int i = 0; i < args.length; i++) {
+                if(args[i].equals("--scale"))
+                    scales = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                else if(args[i].equals("--generate"))
+                    generated = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                else if(args[i].equals("--seed"))
+                    seed = Long.parseLong(args[++i]);
+                else
+                    inputNames.add(args[i]);
+            }
+        }
+        catch(NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+            inputNames.clear();
+            generated = new int[0];
+        }
+
+        if(inputNames.isEmpty() && generated.length == 0) {
+            System.err.println("Usage: java AstFootprint [--scale <n,n,...>] [--generate <n,n,...>] [--seed <n>] <inputFile | directory>...");
+            System.exit(1);
+        }
+
+        try {
+            for(int i = 0; i < inputNames.size(); i++)
+                footprint.measureInput(inputNames.get(i), scales);
+            for(int i = 0; i < generated.length; i++)
+                footprint.measure("generated-" + generated[i] + "-classes", 1, new ProgramGenerator(seed).setClasses(generated[i]).generate());
+        }
+        catch(IOException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Compiles many source files in one JVM. Every input can be a .java file,
+// a directory (all .java files below it) or a manifest given as @<file>,
+// which lists one input per line. With more than one job the files are
+// compiled in parallel, each worker thread running its own pipeline.
+public class BatchCompiler {
+
+    private List<String> files; // The files to compile, in the order they were given
+    private List<CompileResult> results;
+    private int jobs; // Number of worker threads
+    private ThreadLocal<Compilation> compilations; // One pipeline (and parser) per worker
+
+    public BatchCompiler(int jobs) {
+        this(jobs, new CompilerOptions());
+    }
+
+    public BatchCompiler(int jobs, CompilerOptions options) {
+        files = new ArrayList<String>();
+        results = new ArrayList<CompileResult>();
+        this.jobs = jobs;
+        compilations = ThreadLocal.withInitial(() -> new Compilation(false, options));
+    }
+
+    public List<String> getFiles() { return files; }
+
+    public List<CompileResult> getResults() { return results; }
+
+    public void addInput(String input) throws IOException {
+        File file;
+
+        if(input.startsWith("@")) {
+            addManifest(input.substring(1));
+            return;
+        }
+
+        file = new File(input);
+        if(file.isDirectory())
+            addDirectory(file);
+        else
+            files.add(input);
+    }
+
+    // Every non-empty line of the manifest that doesn't start with '#' is an input
+    private void addManifest(String manifest) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(manifest));
+        String line;
+
+        try {
+            while((line = reader.readLine()) != null) {
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#"))
+                    continue;
+                addInput(line);
+            }
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    private void addDirectory(File directory) {
+        File[] entries = directory.listFiles();
+
+        if(entries == null)
+            return;
+
+        // Sorting keeps the order of the report stable between runs
+        Arrays.sort(entries);
+        for(int i = 0; i < entries.length; i++) {
+            if(entries[i].isDirectory())
+                addDirectory(entries[i]);
+            else if(entries[i].getName().endsWith(".java"))
+                files.add(entries[i].getPath());
+        }
+    }
+
+    // Compiles every file, prints one line per file and a summary.
+    // Returns the number of files that failed.
+    public int compileAll() {
+        long start = System.nanoTime();
+        int failed = 0;
+
+        if(jobs > 1)
+            compileInParallel();
+        else {
+            for(int i = 0; i < files.size(); i++) {
+                results.add(compileFile(files.get(i)));
+                printResult(results.get(i));
+            }
+        }
+
+        for(int i = 0; i < results.size(); i++) {
+            if(!results.get(i).isSuccess())
+                failed++;
+        }
+
+        printSummary(System.nanoTime() - start, failed);
+        return failed;
+    }
+
+    // The results are still reported in the order of the inputs
+    private void compileInParallel() {
+        ExecutorService workers = Executors.newFixedThreadPool(jobs);
+        List<Future<CompileResult>> futures = new ArrayList<Future<CompileResult>>();
+
+        try {
+            for(int i = 0; i < files.size(); i++) {
+                String fileName = files.get(i);
+                futures.add(workers.submit(() -> compileFile(fileName)));
+            }
+
+            for(int i = 0; i < futures.size(); i++) {
+                CompileResult result;
+
+                try {
+                    result = futures.get(i).get();
+                }
+                catch(ExecutionException ex) {
+                    result = new CompileResult(files.get(i));
+                    result.setMessage(ex.getCause().toString());
+                }
+                catch(InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    result = new CompileResult(files.get(i));
+                    result.setMessage("interrupted");
+                }
+
+                results.add(result);
+                printResult(result);
+            }
+        }
+        finally {
+            workers.shutdown();
+        }
+    }
+
+    private CompileResult compileFile(String fileName) {
+        CompileResult result = new CompileResult(fileName);
+        long start = System.nanoTime();
+
+        result.setSourceBytes(new File(fileName).length());
+        try {
+            result.setIrBytes(compilations.get().compile(fileName));
+            result.setSuccess(true);
+        }
+        catch(ParseException ex) {
+            result.setMessage(ex.getMessage());
+        }
+        catch(CompileError ex) {
+            result.setMessage(ex.getMessage());
+        }
+        catch(Exception ex) {
+            result.setMessage(ex.toString());
+        }
+
+        result.setNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    public static void printResult(CompileResult result) {
+        if(result.isSuccess())
+            System.out.printf("[ok]     %s (%.2f ms, %d bytes of IR)%n", result.getFileName(), result.getNanos() / 1e6, result.getIrBytes());
+        else
+            System.out.printf("[failed] %s (%.2f ms): %s%n", result.getFileName(), result.getNanos() / 1e6, result.getMessage());
+    }
+
+    private void printSummary(long nanos, int failed) {
+        long sourceBytes = 0;
+        long irBytes = 0;
+        double seconds = nanos / 1e9;
+
+        for(int i = 0; i < results.size(); i++) {
+            sourceBytes += results.get(i).getSourceBytes();
+            irBytes += results.get(i).getIrBytes();
+        }
+
+        System.out.println();
+        System.out.println("Files: " + results.size() + ", succeeded: " + (results.size() - failed) + ", failed: " + failed + ", jobs: " + jobs);
+        System.out.printf("Total time: %.3f s (%.1f files/s, %.1f KB/s of source, %d bytes of IR)%n",
+                seconds, results.size() / seconds, sourceBytes / 1024.0 / seconds, irBytes);
+    }
+}
+
+class CompileResult {
+    private String fileName;
+    private boolean success;
+    private String message; // The reason of the failure
+    private long nanos;
+    private long sourceBytes;
+    private long irBytes;
+
+    public CompileResult(String fileName) {
+        this.fileName = fileName;
+        success = false;
+        message = null;
+    }
+
+    public String getFileName() { return fileName; }
+
+    public boolean isSuccess() { return success; }
+
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public String getMessage() { return message; }
+
+    public void setMessage(String message) { this.message = message; }
+
+    public long getNanos() { return nanos; }
+
+    public void setNanos(long nanos) { this.nanos = nanos; }
+
+    public long getSourceBytes() { return sourceBytes; }
+
+    public void setSourceBytes(long sourceBytes) { this.sourceBytes = sourceBytes; }
+
+    public long getIrBytes() { return irBytes; }
+
+    public void setIrBytes(long irBytes) { this.irBytes = irBytes; }
+}
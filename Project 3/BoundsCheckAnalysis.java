@@ -0,0 +1,423 @@
+import syntaxtree.*;
+import visitor.DepthFirstVisitor;
+import visitor.GJDepthFirst;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Finds the array accesses that can't be out of bounds, so that the Translator
+// can leave out their check. Only the canonical loop is recognised:
+//
+//      i = 0;
+//      while (i < (a.length)) {
+//          ... a[i] ...
+//          i = i + 1;
+//      }
+//
+// Inside the body, i < a.length holds until i or a is assigned (or, when a is
+// a field, until a method is called, since it may assign the field). The index
+// is never negative if it is non-negative when the loop is entered and every
+// assignment to it in the body is either a non-negative value or an increment
+// by one made before i itself changes, which can't overflow since i is still
+// less than the length of some array.
+//
+// The accesses a[i] that are made while the condition holds don't need a check.
+public class BoundsCheckAnalysis extends GJDepthFirst<String, Info> {
+    private SymbolTable symbolTable;
+    private MethodInfo currentMethod;
+    private Set<Node> safeAccesses; // The ArrayLookups and ArrayAssignmentStatements that need no check
+    private Set<String> nonNegative; // The locals that are known to be >= 0 at the current statement
+    private List<LoopGuard> guards; // The recognised loops around the current statement, innermost last
+
+    // Constructor
+    public BoundsCheckAnalysis(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+        currentMethod = null;
+        safeAccesses = new HashSet<Node>();
+        nonNegative = new HashSet<String>();
+        guards = new ArrayList<LoopGuard>();
+    }
+
+    public boolean isSafe(Node access) { return safeAccesses.contains(access); }
+
+    public int getSafeAccesses() { return safeAccesses.size(); }
+
+    // Forgets the accesses that were found, once the code they were found in has been translated
+    public void clear() { safeAccesses.clear(); }
+
+    private void analyseMethod(MethodInfo method, Node statements) {
+        currentMethod = method;
+        nonNegative.clear(); // The locals aren't initialised
+        guards.clear();
+
+        statements.accept(this, null);
+        currentMethod = null;
+    }
+
+    // The name of the variable, if the expression is nothing but a variable
+    private static String identifierOf(PrimaryExpression n) {
+        if(n.f0.choice instanceof Identifier)
+            return ((Identifier) n.f0.choice).f0.toString();
+        return null;
+    }
+
+    private static PrimaryExpression primaryOf(Expression n) {
+        if(n.f0.choice instanceof Clause && ((Clause) n.f0.choice).f0.choice instanceof PrimaryExpression)
+            return (PrimaryExpression) ((Clause) n.f0.choice).f0.choice;
+        return null;
+    }
+
+    private boolean isLocal(String name) { return currentMethod.getCertainVariable(name) != null; }
+
+    // Whether the value of the expression is known to be >= 0
+    private boolean isNonNegative(Expression n) {
+        PrimaryExpression primary = primaryOf(n);
+
+        if(n.f0.choice instanceof ArrayLength)
+            return true;
+        if(primary == null)
+            return false;
+
+        if(primary.f0.choice instanceof IntegerLiteral) {
+            try {
+                return Integer.parseInt(((IntegerLiteral) primary.f0.choice).f0.toString()) >= 0;
+            }
+            catch(NumberFormatException ex) {
+                return false;
+            }
+        }
+
+        return identifierOf(primary) != null && isLocal(identifierOf(primary)) && nonNegative.contains(identifierOf(primary));
+    }
+
+    // Whether the expression is name + 1 (or 1 + name)
+    private static boolean isIncrement(Expression n, String name) {
+        PlusExpression plus;
+
+        if(!(n.f0.choice instanceof PlusExpression))
+            return false;
+
+        plus = (PlusExpression) n.f0.choice;
+        return (name.equals(identifierOf(plus.f0)) && isOne(plus.f2)) || (isOne(plus.f0) && name.equals(identifierOf(plus.f2)));
+    }
+
+    private static boolean isOne(PrimaryExpression n) {
+        return n.f0.choice instanceof IntegerLiteral && ((IntegerLiteral) n.f0.choice).f0.toString().equals("1");
+    }
+
+    // The loop's guard if its condition is "index < (array.length)", null otherwise
+    private LoopGuard guardOf(WhileStatement n) {
+        CompareExpression compare;
+        PrimaryExpression length;
+        String index, array;
+
+        if(!(n.f2.f0.choice instanceof CompareExpression))
+            return null;
+
+        compare = (CompareExpression) n.f2.f0.choice;
+        index = identifierOf(compare.f0);
+        if(index == null || !isLocal(index) || !(compare.f2.f0.choice instanceof BracketExpression))
+            return null;
+
+        if(!(((BracketExpression) compare.f2.f0.choice).f1.f0.choice instanceof ArrayLength))
+            return null;
+
+        length = ((ArrayLength) ((BracketExpression) compare.f2.f0.choice).f1.f0.choice).f0;
+        array = identifierOf(length);
+        if(array == null)
+            return null;
+
+        return new LoopGuard(index, array, !isLocal(array));
+    }
+
+    // The access is safe if it's made while the condition of a loop around it holds
+    private void access(Node n, String array, String index) {
+        if(array == null || index == null)
+            return;
+
+        for(LoopGuard guard : guards) {
+            if(guard.holds && guard.array.equals(array) && guard.index.equals(index))
+                guard.accesses.add(n);
+        }
+    }
+
+    // What happens to the guards and to what we know about the locals when a variable is assigned
+    private void assign(String name, Expression value) {
+        for(LoopGuard guard : guards) {
+            if(guard.index.equals(name)) {
+                if(!isNonNegative(value) && !(guard.bounded && isIncrement(value, name)))
+                    guard.nonNegative = false;
+                guard.holds = false;
+                guard.bounded = false;
+            }
+            else if(guard.array.equals(name)) {
+                guard.holds = false;
+            }
+        }
+
+        if(isLocal(name) && isNonNegative(value))
+            nonNegative.add(name);
+        else
+            nonNegative.remove(name);
+    }
+
+    /**
+     * f0 -> "class"
+     * f1 -> Identifier()
+     * ...
+     * f15 -> ( Statement() )*
+     * f16 -> "}"
+     * f17 -> "}"
+     */
+    public String visit(MainClass n, Info argu) {
+        ClassInfo currentClass = symbolTable.getClass(n.f1.f0.toString());
+
+        analyseMethod(currentClass.getClassMethod("main"), n.f15);
+        return null;
+    }
+
+    /**
+     * f0 -> "class"
+     * f1 -> Identifier()
+     * f2 -> "{"
+     * f3 -> ( VarDeclaration() )*
+     * f4 -> ( MethodDeclaration() )*
+     * f5 -> "}"
+     */
+    public String visit(ClassDeclaration n, Info argu) {
+        ClassInfo currentClass = symbolTable.getClass(n.f1.f0.toString());
+
+        if (n.f4.present())
+            n.f4.accept(this, currentClass);
+        return null;
+    }
+
+    /**
+     * f0 -> "class"
+     * f1 -> Identifier()
+     * f2 -> "extends"
+     * f3 -> Identifier()
+     * f4 -> "{"
+     * f5 -> ( VarDeclaration() )*
+     * f6 -> ( MethodDeclaration() )*
+     * f7 -> "}"
+     */
+    public String visit(ClassExtendsDeclaration n, Info argu) {
+        ClassInfo currentClass = symbolTable.getClass(n.f1.f0.toString());
+
+        if (n.f6.present())
+            n.f6.accept(this, currentClass);
+        return null;
+    }
+
+    /**
+     * f0 -> "public"
+     * f1 -> Type()
+     * f2 -> Identifier()
+     * ...
+     * f8 -> ( Statement() )*
+     * f9 -> "return"
+     * f10 -> Expression()
+     * f11 -> ";"
+     * f12 -> "}"
+     */
+    public String visit(MethodDeclaration n, Info argu) {
+        analyseMethod(((ClassInfo) argu).getClassMethod(n.f2.f0.toString()), n.f8);
+        return null;
+    }
+
+    /**
+     * f0 -> Identifier()
+     * f1 -> "="
+     * f2 -> Expression()
+     * f3 -> ";"
+     */
+    public String visit(AssignmentStatement n, Info argu) {
+        n.f2.accept(this, argu);
+        assign(n.f0.f0.toString(), n.f2);
+        return null;
+    }
+
+    /**
+     * f0 -> Identifier()
+     * f1 -> "["
+     * f2 -> Expression()
+     * f3 -> "]"
+     * f4 -> "="
+     * f5 -> Expression()
+     * f6 -> ";"
+     */
+    public String visit(ArrayAssignmentStatement n, Info argu) {
+        PrimaryExpression index = primaryOf(n.f2);
+
+        // The index is checked before the value is evaluated
+        n.f2.accept(this, argu);
+        access(n, n.f0.f0.toString(), index != null ? identifierOf(index) : null);
+        n.f5.accept(this, argu);
+        return null;
+    }
+
+    /**
+     * f0 -> "if"
+     * f1 -> "("
+     * f2 -> Expression()
+     * f3 -> ")"
+     * f4 -> Statement()
+     * f5 -> "else"
+     * f6 -> Statement()
+     */
+    public String visit(IfStatement n, Info argu) {
+        Set<String> before, afterThen;
+        boolean[] holds = new boolean[guards.size()];
+        boolean[] bounded = new boolean[guards.size()];
+
+        n.f2.accept(this, argu);
+
+        before = new HashSet<String>(nonNegative);
+        for(int i = 0; i < guards.size(); i++) {
+            holds[i] = guards.get(i).holds;
+            bounded[i] = guards.get(i).bounded;
+        }
+
+        n.f4.accept(this, argu);
+        afterThen = nonNegative;
+
+        // Both branches start from the same point, and what holds after the if is what holds after both
+        nonNegative = before;
+        for(int i = 0; i < guards.size(); i++) {
+            LoopGuard guard = guards.get(i);
+            boolean holdsAfterThen = guard.holds;
+            boolean boundedAfterThen = guard.bounded;
+
+            guard.holds = holds[i];
+            guard.bounded = bounded[i];
+            holds[i] = holdsAfterThen;
+            bounded[i] = boundedAfterThen;
+        }
+
+        n.f6.accept(this, argu);
+
+        nonNegative.retainAll(afterThen);
+        for(int i = 0; i < guards.size(); i++) {
+            guards.get(i).holds &= holds[i];
+            guards.get(i).bounded &= bounded[i];
+        }
+
+        return null;
+    }
+
+    /**
+     * f0 -> "while"
+     * f1 -> "("
+     * f2 -> Expression()
+     * f3 -> ")"
+     * f4 -> Statement()
+     */
+    public String visit(WhileStatement n, Info argu) {
+        LoopEffects effects = new LoopEffects();
+        LoopGuard guard = guardOf(n);
+        Set<String> atCondition;
+
+        n.accept(effects);
+        if(guard != null && !nonNegative.contains(guard.index))
+            guard = null;
+
+        // The body may run many times, so what it changes is unknown from the start of the loop
+        for(LoopGuard outer : guards) {
+            if(effects.assigned.contains(outer.index) || effects.assigned.contains(outer.array) || (outer.field && effects.calls))
+                outer.holds = false;
+            if(effects.assigned.contains(outer.index))
+                outer.bounded = false;
+        }
+        nonNegative.removeAll(effects.assigned);
+        atCondition = new HashSet<String>(nonNegative);
+
+        n.f2.accept(this, argu);
+
+        if(guard != null)
+            guards.add(guard);
+        n.f4.accept(this, argu);
+        if(guard != null) {
+            guards.remove(guards.size() - 1);
+            if(guard.nonNegative)
+                safeAccesses.addAll(guard.accesses);
+        }
+
+        // The loop ends when the condition is checked, so the body may not have run at all
+        nonNegative = atCondition;
+        return null;
+    }
+
+    /**
+     * f0 -> PrimaryExpression()
+     * f1 -> "["
+     * f2 -> PrimaryExpression()
+     * f3 -> "]"
+     */
+    public String visit(ArrayLookup n, Info argu) {
+        n.f0.accept(this, argu);
+        n.f2.accept(this, argu);
+        access(n, identifierOf(n.f0), identifierOf(n.f2));
+        return null;
+    }
+
+    /**
+     * f0 -> PrimaryExpression()
+     * f1 -> "."
+     * f2 -> Identifier()
+     * f3 -> "("
+     * f4 -> ( ExpressionList() )?
+     * f5 -> ")"
+     */
+    public String visit(MessageSend n, Info argu) {
+        n.f0.accept(this, argu);
+        n.f4.accept(this, argu);
+
+        // The method may assign any field
+        for(LoopGuard guard : guards) {
+            if(guard.field)
+                guard.holds = false;
+        }
+
+        return null;
+    }
+}
+
+// A loop whose condition is "index < (array.length)"
+class LoopGuard {
+    String index;
+    String array;
+    boolean field; // Whether the array is a field, which a method call may assign
+    boolean holds; // Whether index < array.length still holds at the current statement
+    boolean bounded; // Whether the index is still less than the length the array had, even if the array changed
+    boolean nonNegative; // Whether every assignment to the index in the body keeps it >= 0
+    List<Node> accesses; // The accesses array[index] made while the condition holds
+
+    LoopGuard(String index, String array, boolean field) {
+        this.index = index;
+        this.array = array;
+        this.field = field;
+        holds = true;
+        bounded = true;
+        nonNegative = true;
+        accesses = new ArrayList<Node>();
+    }
+}
+
+// The variables a loop assigns and whether it calls any method
+class LoopEffects extends DepthFirstVisitor {
+    Set<String> assigned = new HashSet<String>();
+    boolean calls = false;
+
+    public void visit(AssignmentStatement n) {
+        assigned.add(n.f0.f0.toString());
+        super.visit(n);
+    }
+
+    public void visit(MessageSend n) {
+        calls = true;
+        super.visit(n);
+    }
+}
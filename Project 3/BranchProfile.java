@@ -0,0 +1,199 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// Profile-guided translation of the branches, in two compilations.
+//
+// With --profile-generate=<file> every block that an if, a while or a bounds
+// check branches to gets a counter, @_prof_<n>, that is incremented when the
+// block is entered. main registers @_prof_dump with atexit, so when the
+// program ends (even through exit()) it writes one "<label> <count>" line per
+// block to the file.
+//
+// With --profile-use=<file> those counts are read back and every branch whose
+// targets were counted gets !prof branch_weights, and the more frequent branch
+// of an if is placed first. The labels of the blocks only depend on the source
+// and the options, so both compilations have to be run with the same ones.
+public class BranchProfile {
+
+    private static final long MAX_WEIGHT = 0xFFFFFFFFL; // The weights are 32-bit unsigned integers
+
+    private String fileName; // Where the instrumented program writes the profile
+    private HashMap<String, Long> counts; // The counts that were read, by label
+    private List<String> counters; // The labels of the counted blocks, by counter
+    private List<String> weights; // The branch_weights metadata, by number
+
+    private BranchProfile(String fileName, HashMap<String, Long> counts) {
+        this.fileName = fileName;
+        this.counts = counts;
+        counters = new ArrayList<String>();
+        weights = new ArrayList<String>();
+    }
+
+    // A profile that instruments the program to write its counts to the file
+    public static BranchProfile generate(String fileName) { return new BranchProfile(fileName, null); }
+
+    // A profile with the counts an instrumented program wrote to the file
+    public static BranchProfile use(String fileName) throws IOException {
+        HashMap<String, Long> counts = new HashMap<String, Long>();
+        String line;
+
+        try(BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            while((line = reader.readLine()) != null) {
+                String[] parts = line.trim().split("\\s+");
+
+                if(parts.length != 2)
+                    continue;
+
+                try {
+                    counts.merge(parts[0], Long.parseLong(parts[1]), Long::sum);
+                }
+                catch(NumberFormatException ex) {
+                    throw new CompileError("Error: malformed line in profile " + fileName + ": " + line);
+                }
+            }
+        }
+
+        return new BranchProfile(null, counts);
+    }
+
+    public boolean isInstrumenting() { return fileName != null; }
+
+    // The global that counts the executions of the block, or null if the blocks aren't counted
+    public String counter(String label) {
+        if(!isInstrumenting())
+            return null;
+
+        counters.add(label);
+        return "@_prof_" + (counters.size() - 1);
+    }
+
+    // Whether the first block was executed more often than the second
+    public boolean hotter(String first, String second) {
+        if(counts == null || !counts.containsKey(first) || !counts.containsKey(second))
+            return false;
+
+        return counts.get(first) > counts.get(second);
+    }
+
+    // The !prof attachment of a branch to the two blocks, or "" if they weren't counted
+    public String branchWeights(String taken, String notTaken) {
+        long first, second;
+
+        if(counts == null || !counts.containsKey(taken) || !counts.containsKey(notTaken))
+            return "";
+
+        first = counts.get(taken);
+        second = counts.get(notTaken);
+        while(first > MAX_WEIGHT || second > MAX_WEIGHT) {
+            first /= 2;
+            second /= 2;
+        }
+
+        weights.add("!{!\"branch_weights\", i32 " + first + ", i32 " + second + "}");
+        return ", !prof !" + (weights.size() - 1);
+    }
+
+    // Writes what the translated functions refer to: the counters and @_prof_dump, or the metadata
+    public void writeDefinitions(IRWriter out) throws IOException {
+        StringBuilder s = new StringBuilder();
+
+        if(isInstrumenting())
+            writeCounters(s);
+
+        for(int i = 0; i < weights.size(); i++)
+            s.append("!").append(i).append(" = ").append(weights.get(i)).append("\n");
+
+        out.write(s.toString());
+    }
+
+    private void writeCounters(StringBuilder s) {
+        int n = counters.size();
+
+        s.append("\ndeclare i32 @atexit(void ()*)\n");
+        s.append("declare i8* @fopen(i8*, i8*)\n");
+        s.append("declare i32 @fprintf(i8*, i8*, ...)\n");
+        s.append("declare i32 @fclose(i8*)\n\n");
+
+        s.append("@_prof_file = private constant ").append(stringConstant(fileName)).append("\n");
+        s.append("@_prof_mode = private constant ").append(stringConstant("w")).append("\n");
+        s.append("@_prof_format = private constant ").append(stringConstant("%s %llu\n")).append("\n");
+
+        for(int i = 0; i < n; i++) {
+            s.append("@_prof_").append(i).append(" = global i64 0\n");
+            s.append("@_prof_label_").append(i).append(" = private constant ").append(stringConstant(counters.get(i))).append("\n");
+        }
+
+        // The labels and the counters, so that @_prof_dump can loop over them
+        s.append("@_prof_labels = private constant [").append(n).append(" x i8*] [");
+        for(int i = 0; i < n; i++) {
+            String type = arrayType(counters.get(i));
+
+            s.append(i > 0 ? ", " : "");
+            s.append("i8* getelementptr (").append(type).append(", ").append(type).append("* @_prof_label_").append(i).append(", i32 0, i32 0)");
+        }
+        s.append("]\n");
+
+        s.append("@_prof_counters = private constant [").append(n).append(" x i64*] [");
+        for(int i = 0; i < n; i++)
+            s.append(i > 0 ? ", " : "").append("i64* @_prof_").append(i);
+        s.append("]\n\n");
+
+        s.append("define void @_prof_dump() {\n");
+        s.append("entry:\n");
+        s.append("\t%file = call i8* @fopen(i8* ").append(stringPointer("@_prof_file", fileName));
+        s.append(", i8* ").append(stringPointer("@_prof_mode", "w")).append(")\n");
+        s.append("\t%failed = icmp eq i8* %file, null\n");
+        s.append("\tbr i1 %failed, label %done, label %").append(n > 0 ? "loop" : "close").append("\n\n");
+
+        if(n > 0) {
+            s.append("loop:\n");
+            s.append("\t%i = phi i32 [0, %entry], [%next, %loop]\n");
+            s.append("\t%label_ptr = getelementptr [").append(n).append(" x i8*], [").append(n).append(" x i8*]* @_prof_labels, i32 0, i32 %i\n");
+            s.append("\t%label = load i8*, i8** %label_ptr\n");
+            s.append("\t%counter_ptr = getelementptr [").append(n).append(" x i64*], [").append(n).append(" x i64*]* @_prof_counters, i32 0, i32 %i\n");
+            s.append("\t%counter = load i64*, i64** %counter_ptr\n");
+            s.append("\t%count = load i64, i64* %counter\n");
+            s.append("\tcall i32 (i8*, i8*, ...) @fprintf(i8* %file, i8* ").append(stringPointer("@_prof_format", "%s %llu\n"));
+            s.append(", i8* %label, i64 %count)\n");
+            s.append("\t%next = add i32 %i, 1\n");
+            s.append("\t%more = icmp slt i32 %next, ").append(n).append("\n");
+            s.append("\tbr i1 %more, label %loop, label %close\n\n");
+        }
+
+        s.append("close:\n");
+        s.append("\tcall i32 @fclose(i8* %file)\n");
+        s.append("\tbr label %done\n\n");
+        s.append("done:\n");
+        s.append("\tret void\n");
+        s.append("}\n\n");
+    }
+
+    // The null-terminated string as an LLVM constant, with anything but plain characters escaped
+    private static String stringConstant(String value) {
+        StringBuilder s = new StringBuilder(arrayType(value)).append(" c\"");
+
+        for(byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            if(b >= 0x20 && b < 0x7F && b != '"' && b != '\\')
+                s.append((char) b);
+            else
+                s.append(String.format("\\%02X", b & 0xFF));
+        }
+
+        return s.append("\\00\"").toString();
+    }
+
+    private static String arrayType(String value) {
+        return "[" + (value.getBytes(StandardCharsets.UTF_8).length + 1) + " x i8]";
+    }
+
+    private static String stringPointer(String global, String value) {
+        String type = arrayType(value);
+
+        return "getelementptr (" + type + ", " + type + "* " + global + ", i32 0, i32 0)";
+    }
+}
@@ -0,0 +1,17 @@
+// The method a call reaches: always (unique), most of the time (!unique), or unknown (null)
+public class CallTarget {
+    private final MethodInfo method;
+    private final boolean unique;
+
+    CallTarget(MethodInfo method, boolean unique) {
+        this.method = method;
+        this.unique = unique;
+    }
+
+    public MethodInfo getMethod() { return method; }
+
+    public boolean isUnique() { return unique; }
+
+    // The name of the LLVM function that implements the method
+    String functionName() { return "@" + method.getOwner().getName() + "." + method.getName(); }
+}
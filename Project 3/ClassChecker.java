@@ -3,6 +3,8 @@ import visitor.GJDepthFirst;
 
 import java.util.List;
 
+// Collects the declarations of the program in one pass: the classes, their
+// fields, the methods, and the parameters and local variables of every method.
 public class ClassChecker extends GJDepthFirst<String, Info> {
 
     private SymbolTable symbolTable;
@@ -47,19 +49,12 @@ public class ClassChecker extends GJDepthFirst<String, Info> {
 
         // Every class must have a unique name.
         String className = n.f1.accept(this, null);
-        if(symbolTable.getClasses().contains(className)) {
-            System.out.println("Line:" + n.f2.beginLine + " Error: Duplicate class " + n.f1.f0);
-            System.exit(1);
+        if(symbolTable.classExists(className)) {
+            throw new CompileError("Line:" + n.f2.beginLine + " Error: Duplicate class " + n.f1.f0);
         }
         else {
-            // Add the name of the class to the list of valid data types
-            symbolTable.getValidTypes().add(className);
-
-            // Add the name of the current class to the list
-            symbolTable.getClasses().add(className);
-
-            // Create a mapping for the current class
-            symbolTable.putClass(className, 0, null);
+            // Add the class to the valid data types and create a mapping for it
+            symbolTable.addClass(className);
             //symbolTable.printClass(className);
 
             n.f2.accept(this, null);
@@ -72,8 +67,7 @@ public class ClassChecker extends GJDepthFirst<String, Info> {
             n.f6.accept(this, null);
             String methodName = "main";
             if(className.equals(methodName)) {
-                System.out.println("Line: " + n.f7.beginLine + " Error: Method cannot have the same name as class " + methodName);
-                System.exit(1);
+                throw new CompileError("Line: " + n.f7.beginLine + " Error: Method cannot have the same name as class " + methodName);
             }
             else {
                 // Adding the method's name to the list
@@ -81,6 +75,14 @@ public class ClassChecker extends GJDepthFirst<String, Info> {
 
                 // Creating a mapping for the current method
                 symbolTable.getClass(className).putMethod(methodName, "void", 0, symbolTable.getClass(className));
+
+                // The argument is a variable of main as well as its parameter
+                MethodInfo currentMethod = symbolTable.getClass(className).getClassMethod(methodName);
+                String parameterName = n.f11.accept(this, null);
+                currentMethod.addVariable("String[]", parameterName, 0, true);
+                currentMethod.addParameter("String[]", parameterName, 0, true);
+
+                addVariables(currentMethod, n.f14);
             }
 
 
@@ -114,44 +116,29 @@ public class ClassChecker extends GJDepthFirst<String, Info> {
         n.f0.accept(this, null);
 
         String className = n.f1.accept(this, null);
-        if(symbolTable.getClasses().contains(className)) {
-            System.out.println("Line:" + n.f2.beginLine + " Error: Duplicate class " + n.f1.f0);
-            System.exit(1);
+        if(symbolTable.classExists(className)) {
+            throw new CompileError("Line:" + n.f2.beginLine + " Error: Duplicate class " + n.f1.f0);
         }
         else {
-            // Add the name of the class to the list of valid data types
-            symbolTable.getValidTypes().add(className);
-
-            // Add the name of the current class to the list
-            symbolTable.getClasses().add(className);
-
-            // Create a mapping for the current class
-            symbolTable.putClass(className, 0, null);
+            // Add the class to the valid data types and create a mapping for it
+            symbolTable.addClass(className);
             //symbolTable.printClass(className);
 
             if(n.f3.present()) {
                 for(int i = 0; i < n.f3.nodes.size(); i++) {
-                    String[] parts = n.f3.nodes.get(i).accept(this, null).split(" ");
+                    String field = n.f3.nodes.get(i).accept(this, null);
+                    String[] parts = field.split(" ");
                     String fieldType = parts[0];
                     String fieldName = parts[1];
 
                     // Every field in a class must have a unique name
-                    boolean flag = true;
-                    int index = 0;
-                    while(flag == true && index < symbolTable.getClassFields(className).size()) {
-                        if((symbolTable.getClassFields(className).get(index).getName()).equals(fieldName)) {
-                            System.out.println("Error: Variable " + fieldName + " is already defined in class " + className);
-                            flag = false;
-                        }
-
-                        index++;
-                    }
+                    boolean flag = !symbolTable.getClass(className).fieldNameExists(fieldName);
 
                     // Create a mapping for the current field
                     if(flag)
-                        symbolTable.putField(className, n.f3.nodes.get(i).accept(this, null), 0);
+                        symbolTable.putField(className, field, 0);
                     else
-                        System.exit(1);
+                        throw new CompileError("Error: Variable " + fieldName + " is already defined in class " + className);
                 }
 
                 //symbolTable.printClassFields(className);
@@ -180,19 +167,12 @@ public class ClassChecker extends GJDepthFirst<String, Info> {
 
         // Every class must have a unique name.
         String className = n.f1.accept(this, null);
-        if(symbolTable.getClasses().contains(className)) {
-            System.out.println("Line:" + n.f2.beginLine + " Error: Duplicate class " +n.f1.f0);
-            System.exit(1);
+        if(symbolTable.classExists(className)) {
+            throw new CompileError("Line:" + n.f2.beginLine + " Error: Duplicate class " +n.f1.f0);
         }
 
-        // Add the name of the class to the list of valid data types
-        symbolTable.getValidTypes().add(className);
-
-        // Add the name of the current class to the list
-        symbolTable.getClasses().add(className);
-
-        // Create a mapping for the current class
-        symbolTable.putClass(className, 0, null);
+        // Add the class to the valid data types and create a mapping for it
+        symbolTable.addClass(className);
 
         n.f2.accept(this, null);
 
@@ -201,13 +181,11 @@ public class ClassChecker extends GJDepthFirst<String, Info> {
            2) the names of both the super and sub class match.
          */
         String superName = n.f3.accept(this, null);
-        if(!symbolTable.getClasses().contains(superName)) {
-            System.out.println("Line: " + n.f4.beginLine + " Error: Superclass " + superName + " has not been defined");
-            System.exit(1);
+        if(!symbolTable.classExists(superName)) {
+            throw new CompileError("Line: " + n.f4.beginLine + " Error: Superclass " + superName + " has not been defined");
         }
-        else if(symbolTable.getClasses().contains(superName) && className == superName){
-            System.out.println("Line: " + n.f4.beginLine + " Error: Cyclic inheritance involving " + className);
-            System.exit(1);
+        else if(symbolTable.classExists(superName) && className == superName){
+            throw new CompileError("Line: " + n.f4.beginLine + " Error: Cyclic inheritance involving " + className);
         }
         else {
             symbolTable.setParentClass(className, superName);
@@ -217,27 +195,19 @@ public class ClassChecker extends GJDepthFirst<String, Info> {
 
             if(n.f5.present()) {
                 for(int i = 0; i < n.f5.nodes.size(); i++) {
-                    String[] parts = n.f5.nodes.get(i).accept(this, null).split(" ");
+                    String field = n.f5.nodes.get(i).accept(this, null);
+                    String[] parts = field.split(" ");
                     String fieldType = parts[0];
                     String fieldName = parts[1];
 
                     // Every field in a class must have a unique name
-                    boolean flag = true;
-                    int index = 0;
-                    while(flag == true && index < symbolTable.getClassFields(className).size()) {
-                        if((symbolTable.getClassFields(className).get(index).getName()).equals(fieldName)) {
-                            System.out.println("Error: Variable " + fieldName + " is already defined in class " + className);
-                            flag = false;
-                        }
-
-                        index++;
-                    }
+                    boolean flag = !symbolTable.getClass(className).fieldNameExists(fieldName);
 
                     // Create a mapping for the current field
                     if(flag)
-                        symbolTable.putField(className, n.f5.nodes.get(i).accept(this, null), 0);
+                        symbolTable.putField(className, field, 0);
                     else
-                        System.exit(1);
+                        throw new CompileError("Error: Variable " + fieldName + " is already defined in class " + className);
                 }
                 //symbolTable.printClassFields(className);
             }
@@ -340,13 +310,11 @@ public class ClassChecker extends GJDepthFirst<String, Info> {
         String returnType = n.f1.accept(this, null);
 
         String methodName = n.f2.accept(this, null);
-        if(((ClassInfo) m).getMethods().contains(methodName)) {
-            System.out.println("Line: " + n.f3.beginLine + " Error: Duplicate method name " + methodName);
-            System.exit(1);
+        if(((ClassInfo) m).declaresMethod(methodName)) {
+            throw new CompileError("Line: " + n.f3.beginLine + " Error: Duplicate method name " + methodName);
         }
         else if(m.getName().equals(methodName)) {
-            System.out.println("Line: " + n.f3.beginLine + " Error: Method cannot have the same name as class " + m.getName());
-            System.exit(1);
+            throw new CompileError("Line: " + n.f3.beginLine + " Error: Method cannot have the same name as class " + m.getName());
         }
         else {
             //System.out.println("Read the method: " + returnType + " " + methodName + "()");
@@ -356,9 +324,43 @@ public class ClassChecker extends GJDepthFirst<String, Info> {
 
             // Create a mapping for the current method
             ((ClassInfo)  m).putMethod(methodName, returnType, 0, ((ClassInfo) m));
+
+            MethodInfo currentMethod = ((ClassInfo) m).getClassMethod(methodName);
+            if(n.f4.present()) {
+                FormalParameterList parameters = (FormalParameterList) n.f4.node;
+
+                addParameter(currentMethod, parameters.f0);
+                for(int i = 0; i < parameters.f1.f0.size(); i++)
+                    addParameter(currentMethod, ((FormalParameterTerm) parameters.f1.f0.elementAt(i)).f1);
+            }
+
+            addVariables(currentMethod, n.f7);
         }
 
 
         return null;
     }
+
+    // The types of the parameters and the variables can be classes that are declared
+    // further down, so they're checked by SymbolTable.checkMethods once all are known.
+    // So are the names that are used twice, which the MethodInfo records, so that the
+    // errors are reported in the order of the program.
+    private void addParameter(MethodInfo method, FormalParameter n) {
+        String parameterType = n.f0.accept(this, null);
+        String parameterName = n.f1.accept(this, null);
+
+        // The parameter is a variable of the method as well
+        method.addParameter(parameterType, parameterName, 0, true);
+        method.addVariable(parameterType, parameterName, 0, true);
+    }
+
+    private void addVariables(MethodInfo method, NodeListOptional variables) {
+        for(int i = 0; i < variables.size(); i++) {
+            VarDeclaration variable = (VarDeclaration) variables.elementAt(i);
+            String variableType = variable.f0.accept(this, null);
+            String variableName = variable.f1.accept(this, null);
+
+            method.addVariable(variableType, variableName, 0, false);
+        }
+    }
 }
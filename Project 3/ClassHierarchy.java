@@ -0,0 +1,86 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Stack;
+
+// Numbers the classes of the program in a depth-first traversal of the
+// inheritance forest. Every class gets the step at which it was entered
+// (pre) and the one at which it was left (post), so the subclasses of a
+// class are exactly those whose numbers fall within its own interval and
+// an "is-a" query takes two comparisons, however deep the hierarchy is.
+public class ClassHierarchy {
+
+    private HashMap<String, Integer> pre;
+    private HashMap<String, Integer> post;
+
+    public ClassHierarchy(SymbolTable symbolTable) {
+        List<String> classes = symbolTable.getClasses();
+        HashMap<String, List<ClassInfo>> children = new HashMap<String, List<ClassInfo>>();
+        List<ClassInfo> roots = new ArrayList<ClassInfo>();
+        ClassInfo currentClass;
+
+        pre = new HashMap<String, Integer>();
+        post = new HashMap<String, Integer>();
+
+        for(int i = 0; i < classes.size(); i++) {
+            currentClass = symbolTable.getClass(classes.get(i));
+
+            if(currentClass.getParent() == null)
+                roots.add(currentClass);
+            else
+                children.computeIfAbsent(currentClass.getParent().getName(), k -> new ArrayList<ClassInfo>()).add(currentClass);
+        }
+
+        number(roots, children);
+    }
+
+    // Iterative, so that a long chain of subclasses can't overflow the stack
+    private void number(List<ClassInfo> roots, HashMap<String, List<ClassInfo>> children) {
+        Stack<ClassInfo> stackOfClasses = new Stack<ClassInfo>();
+        Stack<Integer> nextChild = new Stack<Integer>();
+        List<ClassInfo> subclasses;
+        ClassInfo currentClass;
+        int counter = 0;
+        int i;
+
+        for(int r = 0; r < roots.size(); r++) {
+            stackOfClasses.push(roots.get(r));
+            nextChild.push(0);
+            pre.put(roots.get(r).getName(), counter++);
+
+            while(!stackOfClasses.isEmpty()) {
+                currentClass = stackOfClasses.peek();
+                subclasses = children.get(currentClass.getName());
+                i = nextChild.pop();
+
+                if(subclasses != null && i < subclasses.size()) {
+                    // Entering the next subclass
+                    nextChild.push(i + 1);
+                    stackOfClasses.push(subclasses.get(i));
+                    nextChild.push(0);
+                    pre.put(subclasses.get(i).getName(), counter++);
+                }
+                else {
+                    // All of its subclasses have been numbered
+                    stackOfClasses.pop();
+                    post.put(currentClass.getName(), counter++);
+                }
+            }
+        }
+    }
+
+    // Whether a value of type subType can be used where superType is expected
+    public boolean isSubtype(String subType, String superType) {
+        Integer subPre, superPre;
+
+        if(subType.equals(superType))
+            return true;
+
+        subPre = pre.get(subType);
+        superPre = pre.get(superType);
+        if(subPre == null || superPre == null)
+            return false;
+
+        return superPre < subPre && post.get(subType) < post.get(superType);
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// Finds the methods a MessageSend can reach from the class of its receiver.
+// An object of class C may belong to C or to any of its subclasses, so the
+// method in V-Table slot i may be any of the methods these classes have in
+// that slot. When all of them have the same one, the call doesn't need the
+// V-Table and the Translator calls @Owner.method directly, which LLVM can
+// then inline.
+//
+// When there are several, the one that most of the classes have is the
+// dominant target, if more than half of them have it. The Translator calls it
+// directly when the V-Table holds it, and through the V-Table otherwise.
+//
+// When the ReachabilityAnalysis has run, the classes that are never
+// instantiated are left out, since no object can belong to them.
+public class ClassHierarchyAnalysis {
+
+    private HashMap<String, List<ClassInfo>> subclasses; // Every class and its subclasses, by class
+    private HashMap<String, CallTarget> targets; // The targets that were already found, by "class.slot"
+
+    public ClassHierarchyAnalysis(SymbolTable symbolTable) {
+        this(symbolTable, null);
+    }
+
+    // Only the classes that are instantiated count, if the reachability of the program is known
+    public ClassHierarchyAnalysis(SymbolTable symbolTable, ReachabilityAnalysis reachability) {
+        List<String> classes = symbolTable.getClasses();
+        ClassInfo currentClass;
+
+        subclasses = new HashMap<String, List<ClassInfo>>();
+        targets = new HashMap<String, CallTarget>();
+
+        for(int i = 0; i < classes.size(); i++) {
+            currentClass = symbolTable.getClass(classes.get(i));
+            if(reachability != null && !reachability.isInstantiated(currentClass))
+                continue;
+
+            subclasses.computeIfAbsent(currentClass.getName(), k -> new ArrayList<ClassInfo>()).add(currentClass);
+            for(ClassInfo ancestor : currentClass.getAncestors())
+                subclasses.computeIfAbsent(ancestor.getName(), k -> new ArrayList<ClassInfo>()).add(currentClass);
+        }
+    }
+
+    // The methods a call to V-Table slot "slot" of an object of the class may reach
+    public CallTarget resolve(String className, int slot) {
+        String key = className + "." + slot;
+        CallTarget target = targets.get(key);
+
+        if(target == null) {
+            target = findTarget(className, slot);
+            targets.put(key, target);
+        }
+
+        return target;
+    }
+
+    private CallTarget findTarget(String className, int slot) {
+        HashMap<MethodInfo, Integer> classesPerMethod = new HashMap<MethodInfo, Integer>();
+        List<ClassInfo> candidates = subclasses.get(className);
+        MethodInfo dominant = null;
+        int count, most = 0;
+
+        if(candidates == null)
+            return new CallTarget(null, false);
+
+        for(ClassInfo candidate : candidates) {
+            if(slot >= candidate.getVTableSlots().size())
+                return new CallTarget(null, false);
+
+            count = classesPerMethod.merge(candidate.getVTableSlots().get(slot), 1, Integer::sum);
+            if(count > most) {
+                most = count;
+                dominant = candidate.getVTableSlots().get(slot);
+            }
+        }
+
+        if(classesPerMethod.size() == 1)
+            return new CallTarget(dominant, true);
+        if(2 * most > candidates.size())
+            return new CallTarget(dominant, false);
+
+        return new CallTarget(null, false);
+    }
+}
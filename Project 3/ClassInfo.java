@@ -6,76 +6,106 @@ import java.util.List;
 public class ClassInfo extends Info {
 
     private List<FieldInfo> fields;
+    private HashMap<String, FieldInfo> fieldMap; // The fields by name, for the lookups
     private List<String> methods;
     private List<String> inheritedMethods;
     private HashMap<String, MethodInfo> inheritedMethodMap;
     private HashMap<String, MethodInfo> methodMap;
-    private int fieldOffset;
-    private int pointerOffset;
+    private int fieldOffset; // Where the fields of a subclass start, set by the offsets
+    private List<FieldInfo> objectFields; // The fields of an object, inherited ones first, set by the offsets
+    private List<MethodInfo> vTableSlots; // The method in every slot of the V-Table, set by the offsets
     ClassInfo parent;
 
+    // Filled in once by finaliseHierarchy, after every class and its members have been declared
+    private boolean hierarchyFinalised;
+    private List<ClassInfo> ancestors; // The superclasses, nearest first
+    private HashMap<String, FieldInfo> visibleFields; // Own and inherited fields, the nearest declaration wins
+    private HashMap<String, ClassInfo> fieldOwners; // The class that declares each visible field
+    private HashMap<String, MethodInfo> visibleMethods; // Own and inherited methods, the nearest declaration wins
+
 
     /* Constructor */
     public ClassInfo(String className, int offset, ClassInfo parent) {
         super(className, offset);
 
         fields = new ArrayList<FieldInfo>();
+        fieldMap = new HashMap<String, FieldInfo>();
         methods = new ArrayList<String>();
         inheritedMethods = new ArrayList<String>();
         methodMap = new HashMap<String, MethodInfo>();
         inheritedMethodMap = new HashMap<String, MethodInfo>();
         fieldOffset = 0;
-        pointerOffset = 0;
+        objectFields = new ArrayList<FieldInfo>();
+        vTableSlots = new ArrayList<MethodInfo>();
         this.parent = parent;
+        hierarchyFinalised = false;
     }
 
-    // Returns the size of an object of ClassInfo
-    public int getObjectSize() {
-        int classSize = 0;
-        FieldInfo currentField;
-        ClassInfo currentParent;
+    // Flattens the superclasses, their fields and their methods into tables of
+    // this class, so that the superclass queries don't walk the parent chain
+    public void finaliseHierarchy() {
+        if(hierarchyFinalised)
+            return;
+
+        ancestors = new ArrayList<ClassInfo>();
+        visibleFields = new HashMap<String, FieldInfo>();
+        fieldOwners = new HashMap<String, ClassInfo>();
+        visibleMethods = new HashMap<String, MethodInfo>();
+
+        if(parent != null) {
+            parent.finaliseHierarchy();
+
+            ancestors.add(parent);
+            ancestors.addAll(parent.getAncestors());
+            visibleFields.putAll(parent.visibleFields);
+            fieldOwners.putAll(parent.fieldOwners);
+            visibleMethods.putAll(parent.visibleMethods);
+        }
 
-        for(int i = 0; i < fields.size(); i++) {
-            currentField = fields.get(i);
+        // The members of this class hide those of its superclasses
+        visibleFields.putAll(fieldMap);
+        for(String fieldName : fieldMap.keySet())
+            fieldOwners.put(fieldName, this);
+        visibleMethods.putAll(methodMap);
 
-            if(currentField.getType().equals("int"))
-                classSize += 4;
-            else if(currentField.getType().equals("boolean"))
-                classSize += 1;
-            else
-                classSize += 8;
-        }
+        hierarchyFinalised = true;
+    }
 
-        currentParent = parent;
-        while(currentParent != null) {
-            for(int i = 0; i < currentParent.getFields().size(); i++) {
-                currentField = currentParent.getFields().get(i);
-
-                if(currentField.getType().equals("int"))
-                    classSize += 4;
-                else if(currentField.getType().equals("boolean"))
-                    classSize += 1;
-                else
-                    classSize += 8;
-            }
-            currentParent = currentParent.getParent();
-        }
+    public List<ClassInfo> getAncestors() {
+        finaliseHierarchy();
+        return ancestors;
+    }
 
-        return classSize;
+    // The class at the top of the hierarchy this class belongs to
+    public ClassInfo getRoot() {
+        List<ClassInfo> superclasses = getAncestors();
+
+        return superclasses.isEmpty() ? this : superclasses.get(superclasses.size() - 1);
     }
 
-    public boolean fieldNameExists(String fieldName) {
-        boolean exists = false;
-        for(int i = 0; i < fields.size(); i++) {
-            if(fields.get(i).getName().equals(fieldName)){
-                exists = true;
-                break;
-            }
-        }
+    // A field of this class or, if it doesn't have one, of its nearest superclass that does
+    public FieldInfo getVisibleField(String fieldName) {
+        finaliseHierarchy();
+        return visibleFields.get(fieldName);
+    }
 
-        return exists;
+    public ClassInfo getFieldOwner(String fieldName) {
+        finaliseHierarchy();
+        return fieldOwners.get(fieldName);
     }
 
+    // A method of this class or, if it doesn't declare one, of its nearest superclass that does
+    public MethodInfo getVisibleMethod(String methodName) {
+        finaliseHierarchy();
+        return visibleMethods.get(methodName);
+    }
+
+    // Returns the size of the fields of an object of ClassInfo (those of its superclasses
+    // included), padded so that the next object is aligned. Set by the offsets.
+    public int getObjectSize() { return ObjectLayout.align(fieldOffset, ObjectLayout.OBJECT_ALIGNMENT); }
+
+    public boolean fieldNameExists(String fieldName) { return fieldMap.containsKey(fieldName); }
+
     public ClassInfo getParent() { return parent; }
 
     public boolean hasParent() {
@@ -85,24 +115,15 @@ public class ClassInfo extends Info {
             return false;
     }
 
-    public FieldInfo getCertainField(String fieldName) {
-        FieldInfo field = null;
-        for(int i = 0; i < fields.size(); i++) {
-            if(fields.get(i).getName().equals(fieldName)) {
-                field = fields.get(i);
-                break;
-            }
-        }
-        return field;
-    }
-
-    public void incFieldOffset(int increment) { fieldOffset += increment; }
+    public FieldInfo getCertainField(String fieldName) { return fieldMap.get(fieldName); }
 
-    public void incPointerOffset(int increment) { pointerOffset += increment; }
+    public void setFieldOffset(int fieldOffset) { this.fieldOffset = fieldOffset; }
 
     public int getFieldOffset() { return fieldOffset; }
 
-    public int getPointerOffset() { return pointerOffset; }
+    public List<FieldInfo> getObjectFields() { return objectFields; }
+
+    public List<MethodInfo> getVTableSlots() { return vTableSlots; }
 
     /* Setters */
     public void setParent(ClassInfo parent) {
@@ -114,14 +135,19 @@ public class ClassInfo extends Info {
         String[] parts = fieldDecl.split(" ");
         String type = parts[0];
         String name = parts[1];
+        FieldInfo field = new FieldInfo(type, name, offset, true);
 
-        fields.add(new FieldInfo(type, name, offset, true));
+        fields.add(field);
+        fieldMap.putIfAbsent(name, field);
     }
 
     public void addMethod(String methodName) {
         methods.add(methodName);
     }
 
+    // Whether the class itself declares the method (inherited methods don't count)
+    public boolean declaresMethod(String methodName) { return methodMap.containsKey(methodName); }
+
     public List<String> getMethods() {
         return methods;
     }
@@ -135,14 +161,13 @@ public class ClassInfo extends Info {
     public void setInheritedMethods() {
 
         Stack<ClassInfo> stackOfClasses = new Stack<ClassInfo>();
-        ClassInfo currentParent = parent;
+        ClassInfo currentParent;
         String methodName;
         MethodInfo currentMethod;
 
-        while(currentParent != null) {
-            stackOfClasses.push(currentParent);
-            currentParent = currentParent.getParent();
-        }
+        // The root ends up on the top of the stack
+        for(int i = 0; i < getAncestors().size(); i++)
+            stackOfClasses.push(getAncestors().get(i));
 
         if(!stackOfClasses.isEmpty()) {
             while(!stackOfClasses.isEmpty()) {
@@ -153,10 +178,9 @@ public class ClassInfo extends Info {
                     methodName = currentParent.getMethods().get(i);
                     currentMethod = currentParent.getClassMethod(methodName);
 
-                    if(!methods.contains(methodName)) {
+                    if(!declaresMethod(methodName)) {
 
-                        if(inheritedMethods.contains(methodName)) {
-                            inheritedMethodMap.remove(methodName);
+                        if(inheritedMethodMap.containsKey(methodName)) {
                             inheritedMethodMap.put(methodName, currentMethod);
                         }
 
@@ -175,12 +199,11 @@ public class ClassInfo extends Info {
     }
 
     public MethodInfo findMethod(String methodName) {
-        if(methods.contains(methodName))
-            return methodMap.get(methodName);
-        else if(inheritedMethods.contains(methodName))
-            return inheritedMethodMap.get(methodName);
-        else
-            return null;
+        MethodInfo method = methodMap.get(methodName);
+
+        if(method == null)
+            method = inheritedMethodMap.get(methodName);
+        return method;
     }
 
     /* Methods for the HashMap */
@@ -190,14 +213,12 @@ public class ClassInfo extends Info {
 
     public MethodInfo getClassMethod(String methodName) {
 
-        MethodInfo classMethod = null;
+        MethodInfo classMethod = methodMap.get(methodName);
 
-        if(methodMap.containsKey(methodName))
-            classMethod = methodMap.get(methodName);
-        else if(inheritedMethodMap.containsKey(methodName))
+        if(classMethod == null)
             classMethod = inheritedMethodMap.get(methodName);
 
-        return /*methodMap.get(methodName)*/classMethod;
+        return classMethod;
     }
 
     /* Methods for printing */
@@ -258,35 +279,11 @@ public class ClassInfo extends Info {
             methodMap.get(methods.get(i)).setRegisters();
     }
 
-    public boolean inheritedField(String fieldName) {
-        boolean flag = false;
-        ClassInfo currentParent = parent;
-
-        while(currentParent != null) {
-
-            if(currentParent.fieldNameExists(fieldName)) {
-                flag = true;
-                break;
-            }
-
-            currentParent = currentParent.getParent();
-        }
-
-        return flag;
-    }
+    public boolean inheritedField(String fieldName) { return getInheritedField(fieldName) != null; }
 
     public FieldInfo getInheritedField(String fieldName) {
-        ClassInfo currentParent = parent;
-        FieldInfo inheritedField = null;
-
-        while (parent != null) {
-            if(currentParent.fieldNameExists(fieldName)) {
-                inheritedField = currentParent.getCertainField(fieldName);
-                break;
-            }
-            currentParent = currentParent.getParent();
-        }
-
-        return inheritedField;
+        if(parent == null)
+            return null;
+        return parent.getVisibleField(fieldName);
     }
 }
\ No newline at end of file
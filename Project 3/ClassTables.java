@@ -23,59 +23,13 @@ public class ClassTables extends Info{
 
     public String getVTableName() { return this.vTableName; }
 
-    public void sortList(List<Pair> list) {
-        Pair temp;
-
-        for(int i = 0; i < list.size(); i++) {
-            for(int j = i+1; j < list.size(); j++) {
-
-                if(list.get(i).getArrayIndex() > list.get(j).getArrayIndex()) {
-                  temp = list.get(i);
-                  list.set(i, list.get(j));
-                  list.set(j, temp);
-                }
-            }
-        }
-    }
-
+    // The V-Table slots are already in order, so each method's index is its position
     public void createPointersTable() {
 
-        String methodName;
-        int arrayIndex;
-        int offset;
-        List<Pair> tempList;
-
-        ClassInfo currentClass = symbolTable.getClass(className);
-        tempList = new ArrayList<Pair>();
-
-        for(int i = 0; i < currentClass.getInheritedMethods().size(); i++) {
-            methodName = currentClass.getInheritedMethods().get(i);
-            offset = currentClass.getInheritedMethodMap().get(methodName).getOffset();
-
-            if(offset == 0)
-                arrayIndex = 0;
-            else
-                arrayIndex = offset/8;
-
-            tempList.add(new Pair(methodName, arrayIndex));
-        }
-
-        for(int i = 0; i < currentClass.getMethods().size(); i++) {
-            methodName = currentClass.getMethods().get(i);
-            offset = currentClass.getClassMethod(methodName).getOffset();
-
-            if(offset == 0)
-                arrayIndex = 0;
-            else
-                arrayIndex = offset/8;
+        List<MethodInfo> slots = symbolTable.getClass(className).getVTableSlots();
 
-            tempList.add(new Pair(methodName, arrayIndex));
-        }
-
-        sortList(tempList);
-
-        for(int i = 0; i < tempList.size(); i++)
-            pointersTable.put(tempList.get(i).getMethodName(), tempList.get(i).getArrayIndex());
+        for(int i = 0; i < slots.size(); i++)
+            pointersTable.put(slots.get(i).getName(), i);
     }
 
     public void printPointersTable() {
@@ -93,18 +47,3 @@ public class ClassTables extends Info{
 
     public LinkedHashMap<String, Integer> getPointersTable() { return this.pointersTable; }
 }
-
-class Pair {
-    String methodName;
-    Integer arrayIndex;
-
-    public Pair(String methodName, Integer arrayIndex) {
-        this.methodName = methodName;
-        this.arrayIndex = arrayIndex;
-    }
-
-    public Integer getArrayIndex() { return this.arrayIndex; }
-
-    public String getMethodName() { return this.methodName; }
-}
-
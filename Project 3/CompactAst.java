@@ -0,0 +1,441 @@
+import syntaxtree.*;
+import visitor.GJNoArguDepthFirst;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+// A compact form of the syntax tree, kept in int arrays in the way of the
+// IRFunction. A JTB tree has an object for every keyword and punctuation
+// token, a NodeChoice, a NodeOptional or a Vector around every alternative,
+// optional part and list, and a wrapper for every level of the grammar
+// (Expression, Clause, PrimaryExpression, Statement, Type). None of that is
+// kept here: every node is a number that indexes a few arrays, and only the
+// nodes that mean something are left.
+//
+// The kind, the source position and the value of node i are kinds[i],
+// positions[i] and values[i], and its children are children[childStarts[i]]
+// up to the start of node i + 1. The children of a node are added before it,
+// so the root is the last node. The value is the index of a name (an
+// identifier or the text of an integer literal) in the table of names, where
+// every name is kept once, or NONE. The position is the line of the first
+// token of the node shifted left by COLUMN_BITS, with its column below.
+//
+// The children of every kind of node are:
+//   GOAL              main class, classes...
+//   MAIN_CLASS        (name) IDENTIFIER of the argument, LIST of VAR_DECLARATIONs, LIST of statements
+//   CLASS             (name) LIST of VAR_DECLARATIONs, LIST of METHODs
+//   CLASS_EXTENDS     (name) IDENTIFIER of the superclass, LIST of VAR_DECLARATIONs, LIST of METHODs
+//   VAR_DECLARATION   (name) type; the parameters are VAR_DECLARATIONs too
+//   METHOD            (name) return type, LIST of parameters, LIST of VAR_DECLARATIONs, LIST of statements, return expression
+//   CLASS_TYPE        (name)
+//   BLOCK             statements...
+//   ASSIGNMENT        (name) expression
+//   ARRAY_ASSIGNMENT  (name) index, expression
+//   IF                condition, then, else
+//   WHILE             condition, body
+//   PRINT             expression
+//   AND, LESS, PLUS, MINUS, TIMES, ARRAY_LOOKUP  left, right
+//   ARRAY_LENGTH, NOT, NEW_BOOLEAN_ARRAY, NEW_INT_ARRAY  operand
+//   CALL              (name of the method) object, arguments...
+//   INTEGER, IDENTIFIER, NEW_OBJECT  (text, name or class)
+// The other kinds have neither children nor a value.
+public class CompactAst {
+
+    // The kinds of nodes
+    public static final int GOAL = 0;
+    public static final int MAIN_CLASS = 1;
+    public static final int CLASS = 2;
+    public static final int CLASS_EXTENDS = 3;
+    public static final int VAR_DECLARATION = 4;
+    public static final int METHOD = 5;
+    public static final int LIST = 6;
+    public static final int INT_TYPE = 7;
+    public static final int BOOLEAN_TYPE = 8;
+    public static final int INT_ARRAY_TYPE = 9;
+    public static final int BOOLEAN_ARRAY_TYPE = 10;
+    public static final int CLASS_TYPE = 11;
+    public static final int BLOCK = 12;
+    public static final int ASSIGNMENT = 13;
+    public static final int ARRAY_ASSIGNMENT = 14;
+    public static final int IF = 15;
+    public static final int WHILE = 16;
+    public static final int PRINT = 17;
+    public static final int AND = 18;
+    public static final int LESS = 19;
+    public static final int PLUS = 20;
+    public static final int MINUS = 21;
+    public static final int TIMES = 22;
+    public static final int ARRAY_LOOKUP = 23;
+    public static final int ARRAY_LENGTH = 24;
+    public static final int CALL = 25;
+    public static final int INTEGER = 26;
+    public static final int TRUE = 27;
+    public static final int FALSE = 28;
+    public static final int IDENTIFIER = 29;
+    public static final int THIS = 30;
+    public static final int NEW_BOOLEAN_ARRAY = 31;
+    public static final int NEW_INT_ARRAY = 32;
+    public static final int NEW_OBJECT = 33;
+    public static final int NOT = 34;
+
+    public static final int NONE = -1; // The value of a node that has no name
+
+    public static final int COLUMN_BITS = 12; // Longer lines have their columns cut to the largest one that fits
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private int nodeCount;
+    private int[] kinds;
+    private int[] positions;
+    private int[] values;
+    private int[] childStarts;
+    private int childCount;
+    private int[] children;
+
+    private int nameCount;
+    private String[] names;
+    private HashMap<String, Integer> nameIndices;
+
+    public CompactAst() {
+        nodeCount = 0;
+        kinds = new int[INITIAL_CAPACITY];
+        positions = new int[INITIAL_CAPACITY];
+        values = new int[INITIAL_CAPACITY];
+        childStarts = new int[INITIAL_CAPACITY];
+        childCount = 0;
+        children = new int[INITIAL_CAPACITY];
+
+        nameCount = 0;
+        names = new String[INITIAL_CAPACITY / 4];
+        nameIndices = new HashMap<String, Integer>();
+    }
+
+    // The compact form of a JTB tree
+    public static CompactAst of(Goal root) {
+        CompactAstBuilder builder = new CompactAstBuilder();
+
+        root.accept(builder);
+        return builder.getAst();
+    }
+
+    // Lets go of the space that was reserved for nodes that weren't added
+    public void trim() {
+        kinds = Arrays.copyOf(kinds, nodeCount);
+        positions = Arrays.copyOf(positions, nodeCount);
+        values = Arrays.copyOf(values, nodeCount);
+        childStarts = Arrays.copyOf(childStarts, nodeCount);
+        children = Arrays.copyOf(children, childCount);
+        names = Arrays.copyOf(names, nameCount);
+        nameIndices = null;
+    }
+
+    /* The nodes */
+
+    public int getNodeCount() { return nodeCount; }
+
+    public int getRoot() { return nodeCount - 1; }
+
+    public int getKind(int node) { return kinds[node]; }
+
+    public int getLine(int node) { return positions[node] >>> COLUMN_BITS; }
+
+    public int getColumn(int node) { return positions[node] & ((1 << COLUMN_BITS) - 1); }
+
+    public int getValue(int node) { return values[node]; }
+
+    // The name or the text of the node, or null if it has none
+    public String getName(int node) { return values[node] == NONE ? null : names[values[node]]; }
+
+    public int getChildCount(int node) {
+        int end = node + 1 < nodeCount ? childStarts[node + 1] : childCount;
+
+        return end - childStarts[node];
+    }
+
+    public int getChild(int node, int index) { return children[childStarts[node] + index]; }
+
+    // Adds a node after its children and returns it
+    public int add(int kind, int line, int column, String name, int... nodeChildren) {
+        if(nodeCount == kinds.length) {
+            kinds = Arrays.copyOf(kinds, 2 * nodeCount);
+            positions = Arrays.copyOf(positions, 2 * nodeCount);
+            values = Arrays.copyOf(values, 2 * nodeCount);
+            childStarts = Arrays.copyOf(childStarts, 2 * nodeCount);
+        }
+        if(childCount + nodeChildren.length > children.length)
+            children = Arrays.copyOf(children, Math.max(2 * children.length, childCount + nodeChildren.length));
+
+        kinds[nodeCount] = kind;
+        positions[nodeCount] = line << COLUMN_BITS | Math.min(column, (1 << COLUMN_BITS) - 1);
+        values[nodeCount] = name == null ? NONE : name(name);
+        childStarts[nodeCount] = childCount;
+
+        System.arraycopy(nodeChildren, 0, children, childCount, nodeChildren.length);
+        childCount += nodeChildren.length;
+
+        return nodeCount++;
+    }
+
+    /* The names */
+
+    public int getNameCount() { return nameCount; }
+
+    public String getNameAt(int index) { return names[index]; }
+
+    private int name(String name) {
+        Integer index = nameIndices.get(name);
+
+        if(index == null) {
+            if(nameCount == names.length)
+                names = Arrays.copyOf(names, 2 * nameCount);
+
+            index = nameCount;
+            names[nameCount++] = name.intern();
+            nameIndices.put(names[index], index);
+        }
+
+        return index;
+    }
+
+    /* The visitors */
+
+    public <R, A> R accept(int node, CompactVisitor<R, A> visitor, A argu) {
+        switch (kinds[node]) {
+            case GOAL: return visitor.visitGoal(node, argu);
+            case MAIN_CLASS: return visitor.visitMainClass(node, argu);
+            case CLASS: return visitor.visitClass(node, argu);
+            case CLASS_EXTENDS: return visitor.visitClassExtends(node, argu);
+            case VAR_DECLARATION: return visitor.visitVarDeclaration(node, argu);
+            case METHOD: return visitor.visitMethod(node, argu);
+            case LIST: return visitor.visitList(node, argu);
+            case INT_TYPE: return visitor.visitIntType(node, argu);
+            case BOOLEAN_TYPE: return visitor.visitBooleanType(node, argu);
+            case INT_ARRAY_TYPE: return visitor.visitIntArrayType(node, argu);
+            case BOOLEAN_ARRAY_TYPE: return visitor.visitBooleanArrayType(node, argu);
+            case CLASS_TYPE: return visitor.visitClassType(node, argu);
+            case BLOCK: return visitor.visitBlock(node, argu);
+            case ASSIGNMENT: return visitor.visitAssignment(node, argu);
+            case ARRAY_ASSIGNMENT: return visitor.visitArrayAssignment(node, argu);
+            case IF: return visitor.visitIf(node, argu);
+            case WHILE: return visitor.visitWhile(node, argu);
+            case PRINT: return visitor.visitPrint(node, argu);
+            case AND: return visitor.visitAnd(node, argu);
+            case LESS: return visitor.visitLess(node, argu);
+            case PLUS: return visitor.visitPlus(node, argu);
+            case MINUS: return visitor.visitMinus(node, argu);
+            case TIMES: return visitor.visitTimes(node, argu);
+            case ARRAY_LOOKUP: return visitor.visitArrayLookup(node, argu);
+            case ARRAY_LENGTH: return visitor.visitArrayLength(node, argu);
+            case CALL: return visitor.visitCall(node, argu);
+            case INTEGER: return visitor.visitInteger(node, argu);
+            case TRUE: return visitor.visitTrue(node, argu);
+            case FALSE: return visitor.visitFalse(node, argu);
+            case IDENTIFIER: return visitor.visitIdentifier(node, argu);
+            case THIS: return visitor.visitThis(node, argu);
+            case NEW_BOOLEAN_ARRAY: return visitor.visitNewBooleanArray(node, argu);
+            case NEW_INT_ARRAY: return visitor.visitNewIntArray(node, argu);
+            case NEW_OBJECT: return visitor.visitNewObject(node, argu);
+            case NOT: return visitor.visitNot(node, argu);
+            default:
+                throw new CompileError("Error: node " + node + " has the unknown kind " + kinds[node]);
+        }
+    }
+}
+
+// Copies a JTB tree into a CompactAst. Every visit adds the node and returns
+// its number; the wrappers of the grammar return the node of their choice.
+class CompactAstBuilder extends GJNoArguDepthFirst<Integer> {
+    private CompactAst ast;
+
+    CompactAstBuilder() {
+        ast = new CompactAst();
+    }
+
+    CompactAst getAst() {
+        ast.trim();
+        return ast;
+    }
+
+    private int add(int kind, NodeToken first, String name, int... children) {
+        return ast.add(kind, first.beginLine, first.beginColumn, name, children);
+    }
+
+    // A LIST of the nodes, at the position of the token before them
+    private int list(NodeToken before, NodeListOptional nodes) {
+        return add(CompactAst.LIST, before, null, nodes(nodes));
+    }
+
+    private int[] nodes(NodeListOptional nodes) {
+        int[] added = new int[nodes.size()];
+
+        for(int i = 0; i < added.length; i++)
+            added[i] = nodes.elementAt(i).accept(this);
+        return added;
+    }
+
+    private static String name(Identifier identifier) { return identifier.f0.toString(); }
+
+    public Integer visit(Goal n) {
+        int[] children = new int[n.f1.size() + 1];
+
+        children[0] = n.f0.accept(this);
+        for(int i = 1; i < children.length; i++)
+            children[i] = n.f1.elementAt(i - 1).accept(this);
+
+        return add(CompactAst.GOAL, n.f0.f0, null, children);
+    }
+
+    public Integer visit(MainClass n) {
+        int argument = add(CompactAst.IDENTIFIER, n.f11.f0, name(n.f11));
+        int variables = list(n.f13, n.f14);
+        int statements = list(n.f13, n.f15);
+
+        return add(CompactAst.MAIN_CLASS, n.f0, name(n.f1), argument, variables, statements);
+    }
+
+    public Integer visit(ClassDeclaration n) {
+        int fields = list(n.f2, n.f3);
+        int methods = list(n.f2, n.f4);
+
+        return add(CompactAst.CLASS, n.f0, name(n.f1), fields, methods);
+    }
+
+    public Integer visit(ClassExtendsDeclaration n) {
+        int superclass = add(CompactAst.IDENTIFIER, n.f3.f0, name(n.f3));
+        int fields = list(n.f4, n.f5);
+        int methods = list(n.f4, n.f6);
+
+        return add(CompactAst.CLASS_EXTENDS, n.f0, name(n.f1), superclass, fields, methods);
+    }
+
+    public Integer visit(VarDeclaration n) {
+        return add(CompactAst.VAR_DECLARATION, n.f1.f0, name(n.f1), n.f0.accept(this));
+    }
+
+    public Integer visit(MethodDeclaration n) {
+        int type = n.f1.accept(this);
+        NodeListOptional parameterList = new NodeListOptional();
+        int parameters, variables, statements;
+
+        if(n.f4.present()) {
+            FormalParameterList formalParameters = (FormalParameterList) n.f4.node;
+
+            parameterList.addNode(formalParameters.f0);
+            for(int i = 0; i < formalParameters.f1.f0.size(); i++)
+                parameterList.addNode(((FormalParameterTerm) formalParameters.f1.f0.elementAt(i)).f1);
+        }
+
+        parameters = list(n.f3, parameterList);
+        variables = list(n.f6, n.f7);
+        statements = list(n.f6, n.f8);
+
+        return add(CompactAst.METHOD, n.f0, name(n.f2), type, parameters, variables, statements, n.f10.accept(this));
+    }
+
+    public Integer visit(FormalParameter n) {
+        return add(CompactAst.VAR_DECLARATION, n.f1.f0, name(n.f1), n.f0.accept(this));
+    }
+
+    // A class name is a type here, not a variable
+    public Integer visit(Type n) {
+        if(n.f0.choice instanceof Identifier)
+            return add(CompactAst.CLASS_TYPE, ((Identifier) n.f0.choice).f0, name((Identifier) n.f0.choice));
+
+        return n.f0.accept(this);
+    }
+
+    public Integer visit(BooleanArrayType n) { return add(CompactAst.BOOLEAN_ARRAY_TYPE, n.f0, null); }
+
+    public Integer visit(IntegerArrayType n) { return add(CompactAst.INT_ARRAY_TYPE, n.f0, null); }
+
+    public Integer visit(BooleanType n) { return add(CompactAst.BOOLEAN_TYPE, n.f0, null); }
+
+    public Integer visit(IntegerType n) { return add(CompactAst.INT_TYPE, n.f0, null); }
+
+    public Integer visit(Block n) { return add(CompactAst.BLOCK, n.f0, null, nodes(n.f1)); }
+
+    public Integer visit(AssignmentStatement n) {
+        return add(CompactAst.ASSIGNMENT, n.f0.f0, name(n.f0), n.f2.accept(this));
+    }
+
+    public Integer visit(ArrayAssignmentStatement n) {
+        int index = n.f2.accept(this);
+
+        return add(CompactAst.ARRAY_ASSIGNMENT, n.f0.f0, name(n.f0), index, n.f5.accept(this));
+    }
+
+    public Integer visit(IfStatement n) {
+        int condition = n.f2.accept(this);
+        int then = n.f4.accept(this);
+
+        return add(CompactAst.IF, n.f0, null, condition, then, n.f6.accept(this));
+    }
+
+    public Integer visit(WhileStatement n) {
+        int condition = n.f2.accept(this);
+
+        return add(CompactAst.WHILE, n.f0, null, condition, n.f4.accept(this));
+    }
+
+    public Integer visit(PrintStatement n) { return add(CompactAst.PRINT, n.f0, null, n.f2.accept(this)); }
+
+    public Integer visit(AndExpression n) { return binary(CompactAst.AND, n.f0.accept(this), n.f1, n.f2.accept(this)); }
+
+    public Integer visit(CompareExpression n) { return binary(CompactAst.LESS, n.f0.accept(this), n.f1, n.f2.accept(this)); }
+
+    public Integer visit(PlusExpression n) { return binary(CompactAst.PLUS, n.f0.accept(this), n.f1, n.f2.accept(this)); }
+
+    public Integer visit(MinusExpression n) { return binary(CompactAst.MINUS, n.f0.accept(this), n.f1, n.f2.accept(this)); }
+
+    public Integer visit(TimesExpression n) { return binary(CompactAst.TIMES, n.f0.accept(this), n.f1, n.f2.accept(this)); }
+
+    public Integer visit(ArrayLookup n) { return binary(CompactAst.ARRAY_LOOKUP, n.f0.accept(this), n.f1, n.f2.accept(this)); }
+
+    // At the position of the operator, since the left operand may start anywhere
+    private int binary(int kind, int left, NodeToken operator, int right) {
+        return add(kind, operator, null, left, right);
+    }
+
+    public Integer visit(ArrayLength n) { return add(CompactAst.ARRAY_LENGTH, n.f1, null, n.f0.accept(this)); }
+
+    public Integer visit(MessageSend n) {
+        int[] children = new int[1];
+
+        children[0] = n.f0.accept(this);
+        if(n.f4.present()) {
+            ExpressionList arguments = (ExpressionList) n.f4.node;
+
+            children = Arrays.copyOf(children, arguments.f1.f0.size() + 2);
+            children[1] = arguments.f0.accept(this);
+            for(int i = 0; i < arguments.f1.f0.size(); i++)
+                children[i + 2] = ((ExpressionTerm) arguments.f1.f0.elementAt(i)).f1.accept(this);
+        }
+
+        return add(CompactAst.CALL, n.f2.f0, name(n.f2), children);
+    }
+
+    public Integer visit(IntegerLiteral n) { return add(CompactAst.INTEGER, n.f0, n.f0.toString()); }
+
+    public Integer visit(TrueLiteral n) { return add(CompactAst.TRUE, n.f0, null); }
+
+    public Integer visit(FalseLiteral n) { return add(CompactAst.FALSE, n.f0, null); }
+
+    public Integer visit(Identifier n) { return add(CompactAst.IDENTIFIER, n.f0, name(n)); }
+
+    public Integer visit(ThisExpression n) { return add(CompactAst.THIS, n.f0, null); }
+
+    public Integer visit(BooleanArrayAllocationExpression n) {
+        return add(CompactAst.NEW_BOOLEAN_ARRAY, n.f0, null, n.f3.accept(this));
+    }
+
+    public Integer visit(IntegerArrayAllocationExpression n) {
+        return add(CompactAst.NEW_INT_ARRAY, n.f0, null, n.f3.accept(this));
+    }
+
+    public Integer visit(AllocationExpression n) { return add(CompactAst.NEW_OBJECT, n.f0, name(n.f1)); }
+
+    public Integer visit(NotExpression n) { return add(CompactAst.NOT, n.f0, null, n.f1.accept(this)); }
+
+    // The brackets are only kept in the positions of what they hold
+    public Integer visit(BracketExpression n) { return n.f1.accept(this); }
+}
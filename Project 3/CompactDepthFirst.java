@@ -0,0 +1,192 @@
+// Visits the children of every node in order and returns null, the way
+// GJDepthFirst does for the JTB tree. Visitors can extend it and override
+// only the kinds of nodes they care about.
+public class CompactDepthFirst<R, A> implements CompactVisitor<R, A> {
+
+    protected CompactAst ast;
+
+    public CompactDepthFirst(CompactAst ast) {
+        this.ast = ast;
+    }
+
+    // Visits the children of the node in order
+    protected void visitChildren(int node, A argu) {
+        for(int i = 0; i < ast.getChildCount(node); i++)
+            ast.accept(ast.getChild(node, i), this, argu);
+    }
+
+    public R visitGoal(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitMainClass(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitClass(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitClassExtends(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitVarDeclaration(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitMethod(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitList(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitIntType(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitBooleanType(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitIntArrayType(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitBooleanArrayType(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitClassType(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitBlock(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitAssignment(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitArrayAssignment(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitIf(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitWhile(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitPrint(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitAnd(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitLess(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitPlus(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitMinus(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitTimes(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitArrayLookup(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitArrayLength(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitCall(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitInteger(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitTrue(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitFalse(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitIdentifier(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitThis(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitNewBooleanArray(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitNewIntArray(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitNewObject(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+
+    public R visitNot(int node, A argu) {
+        visitChildren(node, argu);
+        return null;
+    }
+}
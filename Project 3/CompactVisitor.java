@@ -0,0 +1,74 @@
+// The visitor of a CompactAst, with a method for every kind of node. The
+// nodes are numbers, so the visitor keeps the tree they belong to itself, and
+// CompactAst.accept calls the method of the kind of the node.
+public interface CompactVisitor<R, A> {
+    R visitGoal(int node, A argu);
+
+    R visitMainClass(int node, A argu);
+
+    R visitClass(int node, A argu);
+
+    R visitClassExtends(int node, A argu);
+
+    R visitVarDeclaration(int node, A argu);
+
+    R visitMethod(int node, A argu);
+
+    R visitList(int node, A argu);
+
+    R visitIntType(int node, A argu);
+
+    R visitBooleanType(int node, A argu);
+
+    R visitIntArrayType(int node, A argu);
+
+    R visitBooleanArrayType(int node, A argu);
+
+    R visitClassType(int node, A argu);
+
+    R visitBlock(int node, A argu);
+
+    R visitAssignment(int node, A argu);
+
+    R visitArrayAssignment(int node, A argu);
+
+    R visitIf(int node, A argu);
+
+    R visitWhile(int node, A argu);
+
+    R visitPrint(int node, A argu);
+
+    R visitAnd(int node, A argu);
+
+    R visitLess(int node, A argu);
+
+    R visitPlus(int node, A argu);
+
+    R visitMinus(int node, A argu);
+
+    R visitTimes(int node, A argu);
+
+    R visitArrayLookup(int node, A argu);
+
+    R visitArrayLength(int node, A argu);
+
+    R visitCall(int node, A argu);
+
+    R visitInteger(int node, A argu);
+
+    R visitTrue(int node, A argu);
+
+    R visitFalse(int node, A argu);
+
+    R visitIdentifier(int node, A argu);
+
+    R visitThis(int node, A argu);
+
+    R visitNewBooleanArray(int node, A argu);
+
+    R visitNewIntArray(int node, A argu);
+
+    R visitNewObject(int node, A argu);
+
+    R visitNot(int node, A argu);
+}
@@ -0,0 +1,368 @@
+import syntaxtree.*;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs the whole pipeline (parsing, semantic analysis and translation) for
+// one source file. The parser is created once and re-initialised for every
+// file that follows, so a single Compilation can be used for many inputs.
+public class Compilation {
+
+    private MiniJavaParser parser;
+    private boolean verbose; // Print the progress messages and the symbol table
+    private CompilerOptions options;
+    private List<PhaseListener> listeners;
+
+    // What the last compilation produced, for the listeners that want to look at it
+    private Goal root;
+    private SymbolTable symbolTable;
+    private long irBytes;
+
+    public Compilation(boolean verbose) {
+        this(verbose, new CompilerOptions());
+    }
+
+    public Compilation(boolean verbose, CompilerOptions options) {
+        parser = null;
+        this.verbose = verbose;
+        this.options = options;
+        listeners = new ArrayList<PhaseListener>();
+    }
+
+    public CompilerOptions getOptions() { return options; }
+
+    public void addListener(PhaseListener listener) { listeners.add(listener); }
+
+    public void removeListener(PhaseListener listener) { listeners.remove(listener); }
+
+    public Goal getRoot() { return root; }
+
+    public SymbolTable getSymbolTable() { return symbolTable; }
+
+    public long getIrBytes() { return irBytes; }
+
+    // The .ll file is created next to the source file
+    public static String outputFileName(String inputFile) {
+        String baseName = inputFile;
+
+        if(baseName.endsWith(".java"))
+            baseName = baseName.substring(0, baseName.length() - ".java".length());
+
+        if(new File(baseName).isAbsolute())
+            return baseName + ".ll";
+        else
+            return "./" + baseName + ".ll";
+    }
+
+    // Compiles the file and returns the number of bytes of IR that were written
+    public long compile(String inputFile) throws ParseException, IOException {
+        FileInputStream fis = null;
+        IRWriter out = null;
+
+        if(options.getStream())
+            return compileStreaming(inputFile);
+
+        try {
+            fis = new FileInputStream(inputFile);
+            parse(fis, false);
+            collectDeclarations();
+
+            /* Creating the .ll file */
+            String fileName = outputFileName(inputFile);
+            if(verbose)
+                System.out.println("Filename: " + fileName);
+            out = new IRWriter(new FileOutputStream(fileName));
+
+            return generate(out);
+        }
+        finally {
+            if(fis != null) fis.close();
+            if(out != null) out.close();
+        }
+    }
+
+    // Compiles the program read from source and writes the IR to target.
+    // Neither stream is closed.
+    public long compile(InputStream source, OutputStream target) throws ParseException, IOException {
+        parse(source, false);
+        collectDeclarations();
+
+        return generate(new IRWriter(target));
+    }
+
+    // Compiles the file with --stream: the first pass over it reads only the declarations,
+    // and the second parses, checks and translates one method at a time, so that only
+    // the largest method is ever in memory as a whole. The methods are translated as they
+    // come, so the analyses that need all of them at once (the reachability analysis and
+    // the inlining) are left out.
+    private long compileStreaming(String inputFile) throws ParseException, IOException {
+        FileInputStream fis = null;
+        IRWriter out = null;
+
+        try {
+            fis = new FileInputStream(inputFile);
+            parse(fis, true);
+            collectDeclarations();
+            fis.close();
+
+            fis = new FileInputStream(inputFile);
+            parser.ReInit(fis);
+
+            String fileName = outputFileName(inputFile);
+            if(verbose)
+                System.out.println("Filename: " + fileName);
+            out = new IRWriter(new FileOutputStream(fileName));
+
+            return generateStreaming(new StreamingParser(parser), out);
+        }
+        finally {
+            if(fis != null) fis.close();
+            if(out != null) out.close();
+        }
+    }
+
+    // Parses the program, or only its skeleton (the declarations without the method bodies)
+    private void parse(InputStream source, boolean skeleton) throws ParseException {
+        root = null;
+        symbolTable = null;
+        irBytes = 0;
+
+        started(Phase.PARSE);
+        if(parser == null)
+            parser = new MiniJavaParser(source);
+        else
+            parser.ReInit(source);
+
+        if(verbose)
+            System.err.println("Program parsed successfully.");
+        root = skeleton ? new StreamingParser(parser).skeleton() : parser.Goal();
+        finished(Phase.PARSE);
+    }
+
+    // Fills the symbol table with the classes, fields, methods and variables
+    private void collectDeclarations() {
+        symbolTable = new SymbolTable();
+
+        started(Phase.CLASS_CHECKER);
+        ClassChecker classChecker = new ClassChecker(symbolTable);
+        root.accept(classChecker, null);
+        finished(Phase.CLASS_CHECKER);
+
+        started(Phase.HIERARCHY);
+        symbolTable.finaliseHierarchy();
+        finished(Phase.HIERARCHY);
+
+        started(Phase.CHECK_DATA_TYPES);
+        symbolTable.checkDataTypes();
+        finished(Phase.CHECK_DATA_TYPES);
+
+        started(Phase.CHECK_METHODS);
+        symbolTable.checkMethods();
+        finished(Phase.CHECK_METHODS);
+    }
+
+    // Checks the statements and writes the V-Tables and the translated methods
+    private long generate(IRWriter out) throws IOException {
+        started(Phase.STATEMENT_CHECKER);
+        StatementChecker statementChecker = new StatementChecker(symbolTable);
+        root.accept(statementChecker, null);
+        finished(Phase.STATEMENT_CHECKER);
+
+        if(options.getFoldConstants()) {
+            started(Phase.CONSTANT_FOLDING);
+            root.accept(new ConstantFolder(symbolTable), null);
+            finished(Phase.CONSTANT_FOLDING);
+        }
+
+        BoundsCheckAnalysis boundsChecks = null;
+        if(!options.getKeepBoundsChecks()) {
+            started(Phase.BOUNDS_CHECKS);
+            boundsChecks = new BoundsCheckAnalysis(symbolTable);
+            root.accept(boundsChecks, null);
+            finished(Phase.BOUNDS_CHECKS);
+        }
+
+        started(Phase.SET_OFFSETS);
+        symbolTable.setOffsets(options);
+        finished(Phase.SET_OFFSETS);
+
+        started(Phase.SET_INHERITED_METHODS);
+        symbolTable.setInheritedMethods();
+        //symbolTable.printInheritedMethods();
+        finished(Phase.SET_INHERITED_METHODS);
+
+        ReachabilityAnalysis reachability = null;
+        if(!options.getKeepUnreachable()) {
+            started(Phase.REACHABILITY);
+            reachability = new ReachabilityAnalysis(symbolTable);
+            reachability.analyse(root);
+            finished(Phase.REACHABILITY);
+        }
+
+        if(verbose)
+            symbolTable.printSymbolTable();
+
+        /* Creating the V-Tables */
+        started(Phase.VTABLES);
+        VTables vtables = new VTables(symbolTable, out);
+        vtables.setReachability(reachability);
+        vtables.createClassTables();
+        //vtables.printClassTables();
+        vtables.writeClassTypes();
+        vtables.writeVTables();
+        finished(Phase.VTABLES);
+
+        ClassHierarchyAnalysis callTargets = null;
+        if(options.getDevirtualise() || options.getInline()) {
+            started(Phase.CLASS_HIERARCHY_ANALYSIS);
+            callTargets = new ClassHierarchyAnalysis(symbolTable, reachability);
+            finished(Phase.CLASS_HIERARCHY_ANALYSIS);
+        }
+
+        if(options.getInline()) {
+            started(Phase.INLINING);
+            Inliner inliner = new Inliner(symbolTable, callTargets);
+            inliner.inline(root);
+            finished(Phase.INLINING);
+
+            if(options.getInlineReport())
+                inliner.printReport(System.err);
+        }
+
+        started(Phase.TRANSLATOR);
+        Functions.declareFunctions(out);
+
+        symbolTable.setRegisterNames();
+
+        BranchProfile profile = null;
+        if(options.getProfileGenerate() != null)
+            profile = BranchProfile.generate(options.getProfileGenerate());
+        else if(options.getProfileUse() != null)
+            profile = BranchProfile.use(options.getProfileUse());
+
+        /* Creating the visitor responsible for the translation */
+        Translator translator = new Translator(vtables, boundsChecks, profile, options.getDevirtualise() ? callTargets : null);
+        root.accept(translator, null);
+        writeFunctions(translator.getModule(), out);
+        if(profile != null)
+            profile.writeDefinitions(out);
+
+        out.flush();
+        irBytes = out.getBytesWritten();
+        finished(Phase.TRANSLATOR);
+        return irBytes;
+    }
+
+    // The second pass of --stream, over the source that the parser was re-initialised with.
+    // Every method is parsed and put alone in the method list of its class, which the
+    // checkers and the translation visit as usual, and is taken out once it's written.
+    // The phases after the V-Tables run a method at a time, so they are reported
+    // together as the translation.
+    private long generateStreaming(StreamingParser source, IRWriter out) throws ParseException, IOException {
+        started(Phase.SET_OFFSETS);
+        symbolTable.setOffsets(options);
+        finished(Phase.SET_OFFSETS);
+
+        started(Phase.SET_INHERITED_METHODS);
+        symbolTable.setInheritedMethods();
+        finished(Phase.SET_INHERITED_METHODS);
+
+        if(verbose)
+            symbolTable.printSymbolTable();
+
+        started(Phase.VTABLES);
+        VTables vtables = new VTables(symbolTable, out);
+        vtables.createClassTables();
+        vtables.writeClassTypes();
+        vtables.writeVTables();
+        finished(Phase.VTABLES);
+
+        ClassHierarchyAnalysis callTargets = null;
+        if(options.getDevirtualise()) {
+            started(Phase.CLASS_HIERARCHY_ANALYSIS);
+            callTargets = new ClassHierarchyAnalysis(symbolTable);
+            finished(Phase.CLASS_HIERARCHY_ANALYSIS);
+        }
+
+        started(Phase.TRANSLATOR);
+        Functions.declareFunctions(out);
+
+        symbolTable.setRegisterNames();
+
+        BranchProfile profile = null;
+        if(options.getProfileGenerate() != null)
+            profile = BranchProfile.generate(options.getProfileGenerate());
+        else if(options.getProfileUse() != null)
+            profile = BranchProfile.use(options.getProfileUse());
+
+        StatementChecker statementChecker = new StatementChecker(symbolTable);
+        ConstantFolder constantFolder = options.getFoldConstants() ? new ConstantFolder(symbolTable) : null;
+        BoundsCheckAnalysis boundsChecks = options.getKeepBoundsChecks() ? null : new BoundsCheckAnalysis(symbolTable);
+        Translator translator = new Translator(vtables, boundsChecks, profile, callTargets);
+
+        // main isn't checked by the StatementChecker
+        MainClass mainClass = source.mainClass();
+        if(constantFolder != null)
+            mainClass.accept(constantFolder, null);
+        translate(mainClass, boundsChecks, translator, out);
+        mainClass = null; // Lets go of its tree before the classes are read
+
+        Node declaration;
+        MethodDeclaration method;
+        while((declaration = source.nextClass()) != null) {
+            NodeListOptional methods = StreamingParser.methods(declaration);
+
+            while((method = source.nextMethod(declaration)) != null) {
+                methods.addNode(method);
+
+                declaration.accept(statementChecker, null);
+                if(constantFolder != null)
+                    declaration.accept(constantFolder, null);
+                translate(declaration, boundsChecks, translator, out);
+
+                methods.nodes.clear();
+            }
+        }
+
+        if(profile != null)
+            profile.writeDefinitions(out);
+
+        out.flush();
+        irBytes = out.getBytesWritten();
+        finished(Phase.TRANSLATOR);
+        return irBytes;
+    }
+
+    // Writes the code of the main class or of a class with one method, for --stream
+    private void translate(Node piece, BoundsCheckAnalysis boundsChecks, Translator translator, IRWriter out) throws IOException {
+        if(boundsChecks != null)
+            piece.accept(boundsChecks, null);
+
+        piece.accept(translator, null);
+        writeFunctions(translator.getModule(), out);
+        translator.getModule().getFunctions().clear();
+
+        // The accesses of the piece aren't looked up again
+        if(boundsChecks != null)
+            boundsChecks.clear();
+    }
+
+    // Prints the functions of the IR, with their locals in registers if --ssa-locals is given
+    private void writeFunctions(IRModule module, IRWriter out) throws IOException {
+        IRPrinter printer = new IRPrinter(module);
+        LocalPromoter localPromoter = options.getSsaLocals() ? new LocalPromoter() : null;
+
+        for(IRFunction function : module.getFunctions())
+            out.write(printer.print(localPromoter != null ? localPromoter.promote(function) : function));
+    }
+
+    private void started(Phase phase) {
+        for(int i = 0; i < listeners.size(); i++)
+            listeners.get(i).phaseStarted(phase);
+    }
+
+    private void finished(Phase phase) {
+        for(int i = 0; i < listeners.size(); i++)
+            listeners.get(i).phaseFinished(phase);
+    }
+}
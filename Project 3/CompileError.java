@@ -0,0 +1,11 @@
+// An error in the program that is being compiled. The checkers throw it
+// instead of ending the process, so that a driver compiling many files can
+// report it and move on to the next file.
+public class CompileError extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CompileError(String message) {
+        super(message);
+    }
+}
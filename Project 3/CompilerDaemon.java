@@ -0,0 +1,222 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Keeps one JVM (and its warmed up parser and pipeline) alive and compiles
+// the programs that clients send over a local socket. The address is either
+// a TCP port on the loopback interface or unix:<path> for a Unix domain socket.
+//
+// A connection carries any number of requests, each one starting with a line:
+//
+//   COMPILE <n>    followed by n bytes of MiniJava source
+//   PING           answered with PONG
+//   SHUTDOWN       answered with BYE, then the daemon stops
+//
+// A compilation is answered with "OK <n>" and the n bytes of the .ll file,
+// or with "ERROR <n>" and n bytes describing the first error. A request
+// whose length is invalid or whose source is cut short is answered with an
+// ERROR too, and then the connection is closed.
+public class CompilerDaemon {
+
+    private static final int MAX_SOURCE_SIZE = 16 * 1024 * 1024;
+
+    private String address;
+    private ServerSocketChannel server;
+    private ExecutorService workers;
+    private ThreadLocal<Compilation> compilations; // One pipeline (and parser) per worker
+    private volatile boolean running;
+
+    public CompilerDaemon(String address) {
+        this.address = address;
+        compilations = ThreadLocal.withInitial(() -> new Compilation(false));
+        running = false;
+    }
+
+    // Accepts connections until a client asks for a shutdown
+    public void serve() throws IOException {
+        SocketAddress socketAddress;
+        Path socketPath = null;
+
+        if(address.startsWith("unix:")) {
+            socketPath = Path.of(address.substring("unix:".length()));
+            Files.deleteIfExists(socketPath);
+            socketAddress = UnixDomainSocketAddress.of(socketPath);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        }
+        else {
+            socketAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+            server = ServerSocketChannel.open();
+        }
+
+        server.bind(socketAddress);
+        // The workers don't keep the JVM alive once the daemon has stopped
+        workers = Executors.newCachedThreadPool(task -> {
+            Thread worker = new Thread(task);
+
+            worker.setDaemon(true);
+            return worker;
+        });
+        running = true;
+        System.err.println("Compiler daemon listening on " + server.getLocalAddress());
+
+        try {
+            while(running) {
+                SocketChannel client;
+
+                try {
+                    client = server.accept();
+                }
+                catch(IOException ex) {
+                    if(!running)
+                        break; // The channel was closed by a shutdown request
+                    throw ex;
+                }
+
+                workers.execute(() -> handle(client));
+            }
+        }
+        finally {
+            workers.shutdownNow();
+            server.close();
+            if(socketPath != null)
+                Files.deleteIfExists(socketPath);
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        try {
+            server.close();
+        }
+        catch(IOException ex) {
+            System.err.println(ex.getMessage());
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try {
+            InputStream in = new BufferedInputStream(Channels.newInputStream(client));
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(client));
+            String request;
+
+            while((request = readLine(in)) != null) {
+                if(request.startsWith("COMPILE ")) {
+                    if(!compile(request, in, out)) {
+                        out.flush();
+                        break;
+                    }
+                }
+                else if(request.equals("PING")) {
+                    out.write("PONG\n".getBytes(StandardCharsets.UTF_8));
+                }
+                else if(request.equals("SHUTDOWN")) {
+                    out.write("BYE\n".getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    shutdown();
+                    break;
+                }
+                else {
+                    reply(out, "ERROR", "Unknown request: " + request);
+                    out.flush();
+                    break;
+                }
+                out.flush();
+            }
+        }
+        catch(IOException ex) {
+            // The connections that are still open when the daemon stops are cut off
+            if(running)
+                System.err.println("Compiler daemon: " + ex.getMessage());
+        }
+        finally {
+            try {
+                client.close();
+            }
+            catch(IOException ex) {
+                System.err.println("Compiler daemon: " + ex.getMessage());
+            }
+        }
+    }
+
+    // Returns false when the rest of the connection can't be read, as the request was malformed
+    private boolean compile(String request, InputStream in, OutputStream out) throws IOException {
+        ByteArrayOutputStream ir = new ByteArrayOutputStream();
+        byte[] source;
+        int length;
+
+        try {
+            length = Integer.parseInt(request.substring("COMPILE ".length()).trim());
+        }
+        catch(NumberFormatException ex) {
+            length = -1;
+        }
+
+        if(length < 0 || length > MAX_SOURCE_SIZE) {
+            reply(out, "ERROR", "Invalid source length in \"" + request + "\"");
+            return false;
+        }
+
+        source = in.readNBytes(length);
+        if(source.length != length) {
+            reply(out, "ERROR", "Connection closed after " + source.length + " of " + length + " bytes");
+            return false;
+        }
+
+        try {
+            compilations.get().compile(new ByteArrayInputStream(source), ir);
+        }
+        catch(ParseException ex) {
+            reply(out, "ERROR", ex.getMessage());
+            return true;
+        }
+        catch(CompileError ex) {
+            reply(out, "ERROR", ex.getMessage());
+            return true;
+        }
+        catch(StackOverflowError ex) {
+            // The visitors are recursive, so a deeply nested program overflows the stack of the worker
+            reply(out, "ERROR", "Error: The program is nested too deeply to be compiled");
+            return true;
+        }
+        catch(Exception ex) {
+            reply(out, "ERROR", ex.toString());
+            return true;
+        }
+
+        out.write(("OK " + ir.size() + "\n").getBytes(StandardCharsets.UTF_8));
+        ir.writeTo(out);
+        return true;
+    }
+
+    private static void reply(OutputStream out, String status, String message) throws IOException {
+        byte[] body = message.getBytes(StandardCharsets.UTF_8);
+
+        out.write((status + " " + body.length + "\n").getBytes(StandardCharsets.UTF_8));
+        out.write(body);
+    }
+
+    // Returns null when the client closed the connection
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c;
+
+        while((c = in.read()) != '\n') {
+            if(c == -1)
+                return line.size() == 0 ? null : line.toString(StandardCharsets.UTF_8);
+            line.write(c);
+        }
+
+        return line.toString(StandardCharsets.UTF_8).trim();
+    }
+}
@@ -0,0 +1,134 @@
+// The switches that change the code a Compilation produces. They are given
+// on the command line before the input files.
+public class CompilerOptions {
+
+    private boolean packFields; // Reorder the fields of every class to leave no padding
+    private boolean ssaLocals; // Keep the local variables in registers instead of allocas
+    private boolean foldConstants; // Evaluate the constant expressions before the translation
+    private boolean keepBoundsChecks; // Check every array access, even the ones that are known to be safe
+    private boolean devirtualise; // Call the methods directly when the class hierarchy allows it
+    private boolean inline; // Replace the calls of small methods on "this" by their bodies
+    private boolean inlineReport; // Print the calls that were inlined
+    private String profileGenerate; // Where the instrumented program writes its branch profile, or null
+    private String profileUse; // The branch profile that guides the translation, or null
+    private boolean keepUnreachable; // Translate every class and method, even the ones main can't reach
+    private boolean stream; // Parse and translate one method at a time instead of the whole program at once
+
+    public CompilerOptions() {
+        packFields = false;
+        ssaLocals = false;
+        foldConstants = true;
+        keepBoundsChecks = false;
+        devirtualise = true;
+        inline = true;
+        inlineReport = false;
+        profileGenerate = null;
+        profileUse = null;
+        keepUnreachable = false;
+        stream = false;
+    }
+
+    public boolean getPackFields() { return packFields; }
+
+    public void setPackFields(boolean packFields) { this.packFields = packFields; }
+
+    public boolean getSsaLocals() { return ssaLocals; }
+
+    public void setSsaLocals(boolean ssaLocals) { this.ssaLocals = ssaLocals; }
+
+    public boolean getFoldConstants() { return foldConstants; }
+
+    public void setFoldConstants(boolean foldConstants) { this.foldConstants = foldConstants; }
+
+    public boolean getKeepBoundsChecks() { return keepBoundsChecks; }
+
+    public void setKeepBoundsChecks(boolean keepBoundsChecks) { this.keepBoundsChecks = keepBoundsChecks; }
+
+    public boolean getDevirtualise() { return devirtualise; }
+
+    public void setDevirtualise(boolean devirtualise) { this.devirtualise = devirtualise; }
+
+    public boolean getInline() { return inline; }
+
+    public void setInline(boolean inline) { this.inline = inline; }
+
+    public boolean getInlineReport() { return inlineReport; }
+
+    public void setInlineReport(boolean inlineReport) { this.inlineReport = inlineReport; }
+
+    public String getProfileGenerate() { return profileGenerate; }
+
+    public void setProfileGenerate(String profileGenerate) { this.profileGenerate = profileGenerate; }
+
+    public String getProfileUse() { return profileUse; }
+
+    public void setProfileUse(String profileUse) { this.profileUse = profileUse; }
+
+    public boolean getKeepUnreachable() { return keepUnreachable; }
+
+    public void setKeepUnreachable(boolean keepUnreachable) { this.keepUnreachable = keepUnreachable; }
+
+    public boolean getStream() { return stream; }
+
+    public void setStream(boolean stream) { this.stream = stream; }
+
+    // Returns false if the argument isn't one of the options
+    public boolean parse(String option) {
+        if(option.startsWith("--profile-generate=") && option.length() > "--profile-generate=".length()) {
+            profileGenerate = option.substring("--profile-generate=".length());
+            return true;
+        }
+        if(option.startsWith("--profile-use=") && option.length() > "--profile-use=".length()) {
+            profileUse = option.substring("--profile-use=".length());
+            return true;
+        }
+
+        switch (option) {
+            case "--pack-fields":
+                packFields = true;
+                return true;
+            case "--ssa-locals":
+                ssaLocals = true;
+                return true;
+            case "--no-fold-constants":
+                foldConstants = false;
+                return true;
+            case "--no-devirtualise":
+                devirtualise = false;
+                return true;
+            case "--no-inline":
+                inline = false;
+                return true;
+            case "--inline-report":
+                inlineReport = true;
+                return true;
+            case "--keep-bounds-checks":
+                keepBoundsChecks = true;
+                return true;
+            case "--keep-unreachable":
+                keepUnreachable = true;
+                return true;
+            case "--stream":
+                stream = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // The lines of the usage message that describe the options
+    public static String usage() {
+        return "Options:\n" +
+               "  --pack-fields    Order the fields of every class from the largest to the smallest\n" +
+               "  --ssa-locals     Keep the local variables in registers, with phis where the control flow joins\n" +
+               "  --no-fold-constants  Translate the constant expressions instead of evaluating them\n" +
+               "  --keep-bounds-checks Check the index of every array access, even when it's known to be in bounds\n" +
+               "  --no-devirtualise    Make every call through the V-Table\n" +
+               "  --no-inline          Keep the calls of small methods instead of replacing them by their bodies\n" +
+               "  --inline-report      Print the calls that were inlined\n" +
+               "  --profile-generate=<file>  Count the executions of every branch and write them to the file at exit\n" +
+               "  --profile-use=<file>       Weigh the branches and order the blocks by a profile written by --profile-generate\n" +
+               "  --keep-unreachable   Translate every class and method, even the ones main can't reach\n" +
+               "  --stream             Parse and translate one method at a time, without inlining or removing unreachable code\n";
+    }
+}
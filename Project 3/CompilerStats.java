@@ -0,0 +1,152 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+// Records the wall time, the CPU time, the allocated bytes and the peak heap
+// of every phase, by listening to a Compilation, and counts the tokens, the
+// AST nodes, the classes, the methods and the bytes of IR of the program.
+// The CPU time and the allocations are those of the compiling thread; the
+// peak heap is the sum of the peaks of the heap pools during the phase, so it
+// also includes whatever the other threads allocated in the meantime.
+public class CompilerStats implements PhaseListener {
+
+    private ThreadMXBean threads;
+    private List<MemoryPoolMXBean> heapPools;
+    private PhaseStats[] phases;
+
+    private long wallStart;
+    private long cpuStart;
+    private long allocatedStart;
+
+    private long tokens;
+    private long astNodes;
+    private int classes;
+    private int methods;
+    private long irBytes;
+
+    public CompilerStats() {
+        threads = ManagementFactory.getThreadMXBean();
+        heapPools = new ArrayList<MemoryPoolMXBean>();
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if(pool.getType() == MemoryType.HEAP)
+                heapPools.add(pool);
+        }
+
+        phases = new PhaseStats[Phase.values().length];
+    }
+
+    // Null if the phase didn't run to the end
+    public PhaseStats getPhaseStats(Phase phase) { return phases[phase.ordinal()]; }
+
+    public long getTokens() { return tokens; }
+
+    public long getAstNodes() { return astNodes; }
+
+    public int getClasses() { return classes; }
+
+    public int getMethods() { return methods; }
+
+    public long getIrBytes() { return irBytes; }
+
+    public void phaseStarted(Phase phase) {
+        for(int i = 0; i < heapPools.size(); i++)
+            heapPools.get(i).resetPeakUsage();
+
+        allocatedStart = allocatedBytes();
+        cpuStart = cpuTime();
+        wallStart = System.nanoTime();
+    }
+
+    public void phaseFinished(Phase phase) {
+        long wall = System.nanoTime() - wallStart;
+        long cpu = cpuTime() - cpuStart;
+        long allocated = allocatedBytes() - allocatedStart;
+        long peakHeap = 0;
+
+        for(int i = 0; i < heapPools.size(); i++)
+            peakHeap += heapPools.get(i).getPeakUsage().getUsed();
+
+        phases[phase.ordinal()] = new PhaseStats(wall, cpu, allocated, peakHeap);
+    }
+
+    // Takes the counts from the program that the compilation has just compiled
+    public void count(Compilation compilation) {
+        AstCounter astCounter = new AstCounter();
+        SymbolTable symbolTable = compilation.getSymbolTable();
+
+        astCounter.count(compilation.getRoot());
+        tokens = astCounter.getTokens();
+        astNodes = astCounter.getNodes();
+
+        classes = symbolTable.getClasses().size();
+        methods = 0;
+        for(int i = 0; i < classes; i++)
+            methods += symbolTable.getClass(symbolTable.getClasses().get(i)).getMethods().size();
+
+        irBytes = compilation.getIrBytes();
+    }
+
+    private long cpuTime() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
+    }
+
+    // Only HotSpot's ThreadMXBean can tell how much a thread has allocated
+    private long allocatedBytes() {
+        if(threads instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        return 0;
+    }
+
+    public void print(PrintStream out) {
+        long wall = 0;
+        long cpu = 0;
+        long allocated = 0;
+        long peakHeap = 0;
+
+        out.printf("%-22s %12s %12s %16s %16s%n", "Phase", "Wall (ms)", "CPU (ms)", "Allocated (KB)", "Peak heap (KB)");
+        for(Phase phase : Phase.values()) {
+            PhaseStats stats = phases[phase.ordinal()];
+
+            if(stats == null)
+                continue;
+
+            out.printf("%-22s %12.3f %12.3f %16d %16d%n", phase, stats.getWallNanos() / 1e6, stats.getCpuNanos() / 1e6,
+                    stats.getAllocatedBytes() / 1024, stats.getPeakHeapBytes() / 1024);
+
+            wall += stats.getWallNanos();
+            cpu += stats.getCpuNanos();
+            allocated += stats.getAllocatedBytes();
+            peakHeap = Math.max(peakHeap, stats.getPeakHeapBytes());
+        }
+        out.printf("%-22s %12.3f %12.3f %16d %16d%n", "TOTAL", wall / 1e6, cpu / 1e6, allocated / 1024, peakHeap / 1024);
+
+        out.println();
+        out.println("Tokens: " + tokens + ", AST nodes: " + astNodes + ", classes: " + classes + ", methods: " + methods + ", IR bytes: " + irBytes);
+    }
+}
+
+class PhaseStats {
+    private long wallNanos;
+    private long cpuNanos;
+    private long allocatedBytes;
+    private long peakHeapBytes;
+
+    public PhaseStats(long wallNanos, long cpuNanos, long allocatedBytes, long peakHeapBytes) {
+        this.wallNanos = wallNanos;
+        this.cpuNanos = cpuNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.peakHeapBytes = peakHeapBytes;
+    }
+
+    public long getWallNanos() { return wallNanos; }
+
+    public long getCpuNanos() { return cpuNanos; }
+
+    public long getAllocatedBytes() { return allocatedBytes; }
+
+    public long getPeakHeapBytes() { return peakHeapBytes; }
+}
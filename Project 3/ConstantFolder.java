@@ -0,0 +1,407 @@
+import syntaxtree.*;
+import visitor.GJDepthFirst;
+
+import java.util.HashMap;
+
+// Evaluates the parts of the program that don't depend on its input, after
+// the program has been checked and before it's translated. Arithmetic,
+// comparisons, && and ! on literals are replaced by their result, an if
+// whose condition is known is replaced by the branch that would run and a
+// while whose condition is false is removed.
+//
+// The constants are also propagated: a local variable that is assigned only
+// once, and to a constant, is replaced by that constant wherever it's read,
+// which may in turn make more expressions constant.
+//
+// Every visit returns the value of the node ("true", "false" or a number),
+// or null if it isn't known at compile time. The argument is the method.
+public class ConstantFolder extends GJDepthFirst<String, Info> {
+    private SymbolTable symbolTable;
+    private HashMap<String, String> constants; // The locals of the method that always have the same value
+    private HashMap<String, Integer> assignments; // How many times every local is assigned
+    private HashMap<String, String> assignedValues; // The value of the last constant assignment to every local
+    private boolean removedStatements; // Whether an if or a while was replaced during the last pass
+
+    // Constructor
+    public ConstantFolder(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+        constants = new HashMap<String, String>();
+        assignments = new HashMap<String, Integer>();
+        assignedValues = new HashMap<String, String>();
+    }
+
+    // Folds the body of a method until no more of its locals turn out to be constants
+    private void foldMethod(MethodInfo currentMethod, Node statements, Node returnExpression) {
+        boolean changed = true;
+
+        constants.clear();
+        while(changed) {
+            assignments.clear();
+            assignedValues.clear();
+            removedStatements = false;
+
+            statements.accept(this, currentMethod);
+            if(returnExpression != null)
+                returnExpression.accept(this, currentMethod);
+
+            // The assignments in the statements that were removed were still counted
+            changed = removedStatements;
+            for(String name : assignments.keySet()) {
+                if(assignments.get(name) == 1 && assignedValues.containsKey(name) && !constants.containsKey(name)) {
+                    constants.put(name, assignedValues.get(name));
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    // A literal with the given value
+    private static PrimaryExpression literal(String value) {
+        if(value.equals("true"))
+            return new PrimaryExpression(new NodeChoice(new TrueLiteral(new NodeToken("true")), 1));
+        else if(value.equals("false"))
+            return new PrimaryExpression(new NodeChoice(new FalseLiteral(new NodeToken("false")), 2));
+        else
+            return new PrimaryExpression(new NodeChoice(new IntegerLiteral(new NodeToken(value)), 0));
+    }
+
+    private static int intValue(String value) { return Integer.parseInt(value); }
+
+    private static String booleanValue(boolean value) { return value ? "true" : "false"; }
+
+    /**
+     * f0 -> MainClass()
+     * f1 -> ( TypeDeclaration() )*
+     * f2 -> <EOF>
+     */
+    public String visit(Goal n, Info argu) {
+        n.f0.accept(this, null);
+        if (n.f1.present())
+            n.f1.accept(this, null);
+        return null;
+    }
+
+    /**
+     * f0 -> "class"
+     * f1 -> Identifier()
+     * ...
+     * f15 -> ( Statement() )*
+     * f16 -> "}"
+     * f17 -> "}"
+     */
+    public String visit(MainClass n, Info argu) {
+        ClassInfo currentClass = symbolTable.getClass(n.f1.f0.toString());
+
+        foldMethod(currentClass.getClassMethod("main"), n.f15, null);
+        return null;
+    }
+
+    /**
+     * f0 -> "class"
+     * f1 -> Identifier()
+     * f2 -> "{"
+     * f3 -> ( VarDeclaration() )*
+     * f4 -> ( MethodDeclaration() )*
+     * f5 -> "}"
+     */
+    public String visit(ClassDeclaration n, Info argu) {
+        ClassInfo currentClass = symbolTable.getClass(n.f1.f0.toString());
+
+        if (n.f4.present())
+            n.f4.accept(this, currentClass);
+        return null;
+    }
+
+    /**
+     * f0 -> "class"
+     * f1 -> Identifier()
+     * f2 -> "extends"
+     * f3 -> Identifier()
+     * f4 -> "{"
+     * f5 -> ( VarDeclaration() )*
+     * f6 -> ( MethodDeclaration() )*
+     * f7 -> "}"
+     */
+    public String visit(ClassExtendsDeclaration n, Info argu) {
+        ClassInfo currentClass = symbolTable.getClass(n.f1.f0.toString());
+
+        if (n.f6.present())
+            n.f6.accept(this, currentClass);
+        return null;
+    }
+
+    /**
+     * f0 -> "public"
+     * f1 -> Type()
+     * f2 -> Identifier()
+     * ...
+     * f8 -> ( Statement() )*
+     * f9 -> "return"
+     * f10 -> Expression()
+     * f11 -> ";"
+     * f12 -> "}"
+     */
+    public String visit(MethodDeclaration n, Info argu) {
+        MethodInfo currentMethod = ((ClassInfo) argu).getClassMethod(n.f2.f0.toString());
+
+        foldMethod(currentMethod, n.f8, n.f10);
+        return null;
+    }
+
+    /**
+     * f0 -> Block()
+     *       | AssignmentStatement()
+     *       | ArrayAssignmentStatement()
+     *       | IfStatement()
+     *       | WhileStatement()
+     *       | PrintStatement()
+     */
+    public String visit(Statement n, Info argu) {
+        String condition = n.f0.accept(this, argu);
+
+        if(condition == null)
+            return null;
+
+        if(n.f0.choice instanceof IfStatement) {
+            IfStatement ifStatement = (IfStatement) n.f0.choice;
+
+            n.f0 = condition.equals("true") ? ifStatement.f4.f0 : ifStatement.f6.f0;
+            removedStatements = true;
+        }
+        else if(n.f0.choice instanceof WhileStatement && condition.equals("false")) {
+            n.f0 = new NodeChoice(new Block(new NodeListOptional()), 0);
+            removedStatements = true;
+        }
+
+        return null;
+    }
+
+    /**
+     * f0 -> "if"
+     * f1 -> "("
+     * f2 -> Expression()
+     * f3 -> ")"
+     * f4 -> Statement()
+     * f5 -> "else"
+     * f6 -> Statement()
+     */
+    public String visit(IfStatement n, Info argu) {
+        String condition = n.f2.accept(this, argu);
+
+        n.f4.accept(this, argu);
+        n.f6.accept(this, argu);
+        return condition;
+    }
+
+    /**
+     * f0 -> "while"
+     * f1 -> "("
+     * f2 -> Expression()
+     * f3 -> ")"
+     * f4 -> Statement()
+     */
+    public String visit(WhileStatement n, Info argu) {
+        String condition = n.f2.accept(this, argu);
+
+        n.f4.accept(this, argu);
+        return condition;
+    }
+
+    /**
+     * f0 -> Identifier()
+     * f1 -> "="
+     * f2 -> Expression()
+     * f3 -> ";"
+     */
+    public String visit(AssignmentStatement n, Info argu) {
+        MethodInfo currentMethod = (MethodInfo) argu;
+        String name = n.f0.f0.toString();
+        String value = n.f2.accept(this, argu);
+        FieldInfo variable = currentMethod.getCertainVariable(name);
+
+        // Only the locals can be propagated, the fields may be changed by other methods
+        if(variable != null && !currentMethod.isArgument(variable)) {
+            assignments.merge(name, 1, Integer::sum);
+            if(value != null)
+                assignedValues.put(name, value);
+            else
+                assignedValues.remove(name);
+        }
+
+        return null;
+    }
+
+    /**
+     * f0 -> AndExpression()
+     *       | CompareExpression()
+     *       | PlusExpression()
+     *       | MinusExpression()
+     *       | TimesExpression()
+     *       | ArrayLookup()
+     *       | ArrayLength()
+     *       | MessageSend()
+     *       | Clause()
+     */
+    public String visit(Expression n, Info argu) {
+        String value = n.f0.accept(this, argu);
+
+        if(value != null && !(n.f0.choice instanceof Clause))
+            n.f0 = new NodeChoice(new Clause(new NodeChoice(literal(value), 1)), 8);
+
+        return value;
+    }
+
+    /**
+     * f0 -> Clause()
+     * f1 -> "&&"
+     * f2 -> Clause()
+     */
+    public String visit(AndExpression n, Info argu) {
+        String left = n.f0.accept(this, argu);
+        String right = n.f2.accept(this, argu);
+
+        // The right clause isn't evaluated when the left one is false
+        if(left != null && left.equals("false"))
+            return "false";
+        if(left != null && right != null)
+            return right;
+
+        return null;
+    }
+
+    /**
+     * f0 -> PrimaryExpression()
+     * f1 -> "<"
+     * f2 -> PrimaryExpression()
+     */
+    public String visit(CompareExpression n, Info argu) {
+        String left = n.f0.accept(this, argu);
+        String right = n.f2.accept(this, argu);
+
+        if(left == null || right == null)
+            return null;
+
+        return booleanValue(intValue(left) < intValue(right));
+    }
+
+    /**
+     * f0 -> PrimaryExpression()
+     * f1 -> "+"
+     * f2 -> PrimaryExpression()
+     */
+    public String visit(PlusExpression n, Info argu) {
+        String left = n.f0.accept(this, argu);
+        String right = n.f2.accept(this, argu);
+
+        if(left == null || right == null)
+            return null;
+
+        return String.valueOf(intValue(left) + intValue(right));
+    }
+
+    /**
+     * f0 -> PrimaryExpression()
+     * f1 -> "-"
+     * f2 -> PrimaryExpression()
+     */
+    public String visit(MinusExpression n, Info argu) {
+        String left = n.f0.accept(this, argu);
+        String right = n.f2.accept(this, argu);
+
+        if(left == null || right == null)
+            return null;
+
+        return String.valueOf(intValue(left) - intValue(right));
+    }
+
+    /**
+     * f0 -> PrimaryExpression()
+     * f1 -> "*"
+     * f2 -> PrimaryExpression()
+     */
+    public String visit(TimesExpression n, Info argu) {
+        String left = n.f0.accept(this, argu);
+        String right = n.f2.accept(this, argu);
+
+        if(left == null || right == null)
+            return null;
+
+        return String.valueOf(intValue(left) * intValue(right));
+    }
+
+    /**
+     * f0 -> NotExpression()
+     *       | PrimaryExpression()
+     */
+    public String visit(Clause n, Info argu) {
+        String value = n.f0.accept(this, argu);
+
+        if(value != null && n.f0.choice instanceof NotExpression)
+            n.f0 = new NodeChoice(literal(value), 1);
+
+        return value;
+    }
+
+    /**
+     * f0 -> "!"
+     * f1 -> Clause()
+     */
+    public String visit(NotExpression n, Info argu) {
+        String value = n.f1.accept(this, argu);
+
+        if(value == null)
+            return null;
+
+        return booleanValue(value.equals("false"));
+    }
+
+    /**
+     * f0 -> IntegerLiteral()
+     *       | TrueLiteral()
+     *       | FalseLiteral()
+     *       | Identifier()
+     *       | ThisExpression()
+     *       | ArrayAllocationExpression()
+     *       | AllocationExpression()
+     *       | BracketExpression()
+     */
+    public String visit(PrimaryExpression n, Info argu) {
+        String value;
+
+        if(n.f0.choice instanceof Identifier) {
+            value = constants.get(((Identifier) n.f0.choice).f0.toString());
+        }
+        else if(n.f0.choice instanceof BracketExpression) {
+            value = ((BracketExpression) n.f0.choice).f1.accept(this, argu);
+        }
+        else {
+            return n.f0.accept(this, argu);
+        }
+
+        if(value != null)
+            n.f0 = literal(value).f0;
+        return value;
+    }
+
+    /**
+     * f0 -> <INTEGER_LITERAL>
+     */
+    public String visit(IntegerLiteral n, Info argu) {
+        try {
+            return String.valueOf(Integer.parseInt(n.f0.toString()));
+        }
+        catch(NumberFormatException ex) {
+            return null; // Too large for an int, the translator writes it as it is
+        }
+    }
+
+    /**
+     * f0 -> "true"
+     */
+    public String visit(TrueLiteral n, Info argu) { return "true"; }
+
+    /**
+     * f0 -> "false"
+     */
+    public String visit(FalseLiteral n, Info argu) { return "false"; }
+}
@@ -3,12 +3,14 @@ public class FieldInfo extends Info {
     private String type;
     private String regName; // The register in which we've stored the value"
     private boolean initialized;
+    private int fieldIndex; // The position of a class field in the struct type of its objects
 
     public FieldInfo(String type, String name, int offset, boolean initialized) {
         super(name, offset);
         setType(type);
         this.initialized = initialized;
         regName = null;
+        fieldIndex = -1;
     }
 
     public void printField() {
@@ -27,6 +29,10 @@ public class FieldInfo extends Info {
 
     public String getRegName() { return regName; }
 
+    public void setFieldIndex(int fieldIndex) { this.fieldIndex = fieldIndex; }
+
+    public int getFieldIndex() { return fieldIndex; }
+
     public void setInitialized(boolean initialized) {this.initialized = initialized; }
 
     public boolean getInitialized() { return initialized; }
@@ -0,0 +1,363 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+// A function in the intermediate representation: typed three-address
+// instructions in basic blocks, over virtual registers.
+//
+// Nothing is kept in an object per instruction. Every value (the result of an
+// instruction, a parameter or a constant) and every instruction is a number
+// that indexes a few int arrays: the opcode, type and result of instruction i
+// are opcodes[i], types[i] and results[i], and its operands are
+// operands[operandStarts[i]] up to the start of instruction i + 1. The
+// operands are values, except for the blocks a branch or a phi refers to,
+// which are block numbers. The types are numbers in the table of the module.
+//
+// Instructions are appended to the block that was placed last, so a block is
+// the run of instructions between its start and the start of the block that
+// was placed after it. Blocks can be created before they are placed, to be
+// branched to, and are printed in the order in which they were placed.
+//
+// A pass that changes a function doesn't edit it in place: it builds a new one
+// in the same module, copying the instructions it keeps, and sets the operands
+// of the copies once every value they refer to has been created.
+public class IRFunction {
+
+    // The opcodes
+    public static final int ALLOCA = 0;
+    public static final int LOAD = 1;
+    public static final int STORE = 2;
+    public static final int GETELEMENTPTR = 3;
+    public static final int ADD = 4;
+    public static final int SUB = 5;
+    public static final int MUL = 6;
+    public static final int AND = 7;
+    public static final int XOR = 8;
+    public static final int ICMP_EQ = 9;
+    public static final int ICMP_SLT = 10;
+    public static final int ICMP_SGE = 11;
+    public static final int ZEXT = 12;
+    public static final int TRUNC = 13;
+    public static final int BITCAST = 14;
+    public static final int CALL = 15;
+    public static final int PHI = 16;
+    public static final int BR = 17;
+    public static final int CONDBR = 18;
+    public static final int RET = 19;
+
+    // The kinds of values
+    public static final int REGISTER = 0; // The result of an instruction
+    public static final int PARAMETER = 1;
+    public static final int CONSTANT = 2; // A literal, a global or a constant expression, written as it is
+
+    public static final int NONE = -1; // The result of an instruction that has none, or a ret without a value
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private IRModule module;
+    private String name;
+    private int returnType;
+    private IntList parameters;
+
+    // The values, by number. The registers without a name are written as %_<number>.
+    private int valueCount;
+    private int[] valueKinds;
+    private int[] valueTypes;
+    private String[] valueNames;
+    private HashMap<String, Integer> constants; // The constants that were already added, by type and text
+
+    // The instructions, by number
+    private int instructionCount;
+    private int[] opcodes;
+    private int[] types;
+    private int[] results;
+    private int[] operandStarts;
+    private int operandCount;
+    private int[] operands;
+    private HashMap<Integer, String> attachments; // The metadata of the few instructions that have some
+
+    // The blocks, by number
+    private int blockCount;
+    private String[] labels; // null for the entry block, which has no label
+    private int[] blockStarts; // The first instruction of every block, -1 until it's placed
+    private IntList layout; // The blocks that were placed, in order
+
+    public IRFunction(IRModule module, String name, int returnType) {
+        this.module = module;
+        this.name = name;
+        this.returnType = returnType;
+        parameters = new IntList();
+
+        valueCount = 0;
+        valueKinds = new int[INITIAL_CAPACITY];
+        valueTypes = new int[INITIAL_CAPACITY];
+        valueNames = new String[INITIAL_CAPACITY];
+        constants = new HashMap<String, Integer>();
+
+        instructionCount = 0;
+        opcodes = new int[INITIAL_CAPACITY];
+        types = new int[INITIAL_CAPACITY];
+        results = new int[INITIAL_CAPACITY];
+        operandStarts = new int[INITIAL_CAPACITY];
+        operandCount = 0;
+        operands = new int[2 * INITIAL_CAPACITY];
+        attachments = new HashMap<Integer, String>();
+
+        blockCount = 0;
+        labels = new String[INITIAL_CAPACITY / 4];
+        blockStarts = new int[INITIAL_CAPACITY / 4];
+        layout = new IntList();
+    }
+
+    public IRModule getModule() { return module; }
+
+    public String getName() { return name; }
+
+    public int getReturnType() { return returnType; }
+
+    public int getParameterCount() { return parameters.size(); }
+
+    public int getParameter(int index) { return parameters.get(index); }
+
+    /* The values */
+
+    public int getValueCount() { return valueCount; }
+
+    public int getValueKind(int value) { return valueKinds[value]; }
+
+    public int getValueType(int value) { return valueTypes[value]; }
+
+    public String getValueName(int value) { return valueNames[value]; }
+
+    public int addParameter(int type, String name) {
+        int value = addValue(PARAMETER, type, name);
+
+        parameters.add(value);
+        return value;
+    }
+
+    // A constant is added once for every type and text it's used with
+    public int constant(int type, String text) {
+        String key = type + " " + text;
+        Integer value = constants.get(key);
+
+        if(value == null) {
+            value = addValue(CONSTANT, type, text);
+            constants.put(key, value);
+        }
+
+        return value;
+    }
+
+    public int constant(int value) { return constant(IRModule.I32, Integer.toString(value)); }
+
+    private int addValue(int kind, int type, String name) {
+        if(valueCount == valueKinds.length) {
+            valueKinds = Arrays.copyOf(valueKinds, 2 * valueCount);
+            valueTypes = Arrays.copyOf(valueTypes, 2 * valueCount);
+            valueNames = Arrays.copyOf(valueNames, 2 * valueCount);
+        }
+
+        valueKinds[valueCount] = kind;
+        valueTypes[valueCount] = type;
+        valueNames[valueCount] = name;
+        return valueCount++;
+    }
+
+    /* The blocks */
+
+    public int getBlockCount() { return blockCount; }
+
+    public String getLabel(int block) { return labels[block]; }
+
+    public int newBlock(String label) {
+        if(blockCount == labels.length) {
+            labels = Arrays.copyOf(labels, 2 * blockCount);
+            blockStarts = Arrays.copyOf(blockStarts, 2 * blockCount);
+        }
+
+        labels[blockCount] = label;
+        blockStarts[blockCount] = -1;
+        return blockCount++;
+    }
+
+    // The instructions that follow go to the block
+    public void placeBlock(int block) {
+        if(blockStarts[block] != -1)
+            throw new CompileError("Error: block " + labels[block] + " of " + name + " was placed twice");
+
+        blockStarts[block] = instructionCount;
+        layout.add(block);
+    }
+
+    // The block the instructions go to
+    public int getCurrentBlock() { return layout.get(layout.size() - 1); }
+
+    public int getPlacedBlockCount() { return layout.size(); }
+
+    // The block that was placed index-th
+    public int getPlacedBlock(int index) { return layout.get(index); }
+
+    public int getBlockStart(int block) { return blockStarts[block]; }
+
+    // The instruction after the last one of the block that was placed index-th
+    public int getBlockEnd(int index) {
+        return index + 1 < layout.size() ? blockStarts[layout.get(index + 1)] : instructionCount;
+    }
+
+    // Whether the block that was placed last already ends with a branch or a ret
+    public boolean isTerminated() {
+        int last = instructionCount - 1;
+
+        if(layout.size() == 0 || last < blockStarts[layout.get(layout.size() - 1)])
+            return false;
+
+        return opcodes[last] == BR || opcodes[last] == CONDBR || opcodes[last] == RET;
+    }
+
+    /* The instructions */
+
+    public int getInstructionCount() { return instructionCount; }
+
+    public int getOpcode(int instruction) { return opcodes[instruction]; }
+
+    public int getType(int instruction) { return types[instruction]; }
+
+    public int getResult(int instruction) { return results[instruction]; }
+
+    public int getOperandCount(int instruction) {
+        int end = instruction + 1 < instructionCount ? operandStarts[instruction + 1] : operandCount;
+
+        return end - operandStarts[instruction];
+    }
+
+    public int getOperand(int instruction, int index) { return operands[operandStarts[instruction] + index]; }
+
+    public String getAttachment(int instruction) { return attachments.get(instruction); }
+
+    // Whether the operand is the number of a block instead of a value
+    public boolean isBlockOperand(int instruction, int index) {
+        switch (opcodes[instruction]) {
+            case BR:
+                return true;
+            case CONDBR:
+                return index > 0;
+            case PHI:
+                return index % 2 == 1;
+            default:
+                return false;
+        }
+    }
+
+    public void setOperand(int instruction, int index, int value) { operands[operandStarts[instruction] + index] = value; }
+
+    // Attaches metadata (", !prof !0") to the last instruction
+    public void attach(String metadata) {
+        if(metadata != null && !metadata.isEmpty())
+            attachments.put(instructionCount - 1, metadata);
+    }
+
+    // Appends an instruction to the current block and returns its result. The type is the
+    // one the instruction is written with, which isn't always the type of the result.
+    private int append(int opcode, int type, int resultType, String resultName, int... instructionOperands) {
+        if(layout.size() == 0)
+            throw new CompileError("Error: instruction outside of a block in " + name);
+
+        if(instructionCount == opcodes.length) {
+            opcodes = Arrays.copyOf(opcodes, 2 * instructionCount);
+            types = Arrays.copyOf(types, 2 * instructionCount);
+            results = Arrays.copyOf(results, 2 * instructionCount);
+            operandStarts = Arrays.copyOf(operandStarts, 2 * instructionCount);
+        }
+        if(operandCount + instructionOperands.length > operands.length)
+            operands = Arrays.copyOf(operands, Math.max(2 * operands.length, operandCount + instructionOperands.length));
+
+        opcodes[instructionCount] = opcode;
+        types[instructionCount] = type;
+        results[instructionCount] = resultType == IRModule.VOID ? NONE : addValue(REGISTER, resultType, resultName);
+        operandStarts[instructionCount] = operandCount;
+
+        System.arraycopy(instructionOperands, 0, operands, operandCount, instructionOperands.length);
+        operandCount += instructionOperands.length;
+
+        return results[instructionCount++];
+    }
+
+    // Appends a copy of an instruction of another function of the module, with its
+    // metadata and the name of its result, and returns the new result
+    public int copy(IRFunction source, int instruction, int... instructionOperands) {
+        int result = source.getResult(instruction);
+        int copy = append(source.getOpcode(instruction), source.getType(instruction),
+                          result == NONE ? IRModule.VOID : source.getValueType(result),
+                          result == NONE ? null : source.getValueName(result), instructionOperands);
+
+        attach(source.getAttachment(instruction));
+        return copy;
+    }
+
+    // A stack slot for a value of the type, in a register with the given name
+    public int alloca(int type, String registerName) {
+        return append(ALLOCA, type, module.pointerTo(type), registerName);
+    }
+
+    public int load(int pointer) {
+        int type = module.elementOf(valueTypes[pointer]);
+
+        return append(LOAD, type, type, null, pointer);
+    }
+
+    public void store(int value, int pointer) {
+        append(STORE, valueTypes[value], IRModule.VOID, null, value, pointer);
+    }
+
+    // A pointer of the result type to the element of the base (a pointer to elementType) at the indices
+    public int getElementPtr(int elementType, int resultType, int base, int... indices) {
+        int[] instructionOperands = new int[indices.length + 1];
+
+        instructionOperands[0] = base;
+        System.arraycopy(indices, 0, instructionOperands, 1, indices.length);
+        return append(GETELEMENTPTR, elementType, resultType, null, instructionOperands);
+    }
+
+    // An arithmetic, logical or comparison instruction on two values of the same type
+    public int binary(int opcode, int left, int right) {
+        int type = valueTypes[left];
+        boolean comparison = opcode == ICMP_EQ || opcode == ICMP_SLT || opcode == ICMP_SGE;
+
+        return append(opcode, type, comparison ? IRModule.I1 : type, null, left, right);
+    }
+
+    public int cast(int opcode, int value, int type) { return cast(opcode, value, type, null); }
+
+    public int cast(int opcode, int value, int type, String registerName) {
+        return append(opcode, type, type, registerName, value);
+    }
+
+    // A call of the callee (a function constant or a function pointer); returns NONE if the function returns void
+    public int call(int returnType, int callee, int... arguments) {
+        int[] instructionOperands = new int[arguments.length + 1];
+
+        instructionOperands[0] = callee;
+        System.arraycopy(arguments, 0, instructionOperands, 1, arguments.length);
+        return append(CALL, returnType, returnType, null, instructionOperands);
+    }
+
+    // The incoming values and the blocks they come from, in pairs
+    public int phi(int type, int... valuesAndBlocks) { return phi(type, null, valuesAndBlocks); }
+
+    public int phi(int type, String registerName, int... valuesAndBlocks) {
+        return append(PHI, type, type, registerName, valuesAndBlocks);
+    }
+
+    public void branch(int block) { append(BR, IRModule.VOID, IRModule.VOID, null, block); }
+
+    public void branch(int condition, int taken, int notTaken) {
+        append(CONDBR, IRModule.I1, IRModule.VOID, null, condition, taken, notTaken);
+    }
+
+    public void ret(int value) {
+        if(value == NONE)
+            append(RET, IRModule.VOID, IRModule.VOID, null);
+        else
+            append(RET, valueTypes[value], IRModule.VOID, null, value);
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// The translated program in the intermediate representation: its
+// functions and the table of the LLVM types they use. A type is known by its
+// number in the table everywhere in the IR, so the instructions only hold
+// ints, and two values have the same type exactly when their numbers match.
+// The V-Tables and the class types are still written by VTables.
+public class IRModule {
+
+    // The types every module starts with
+    public static final int VOID = 0;
+    public static final int I1 = 1;
+    public static final int I8 = 2;
+    public static final int I32 = 3;
+    public static final int I64 = 4;
+    public static final int I8_PTR = 5; // Objects and boolean arrays
+    public static final int I32_PTR = 6; // Integer arrays
+    public static final int I64_PTR = 7;
+    public static final int I8_PTR_PTR = 8; // V-Tables
+    public static final int I8_PTR_PTR_PTR = 9; // Pointers to the V-Table pointer of an object
+
+    private List<String> typeNames; // The LLVM name of every type, by number
+    private HashMap<String, Integer> typeNumbers;
+    private List<IRFunction> functions;
+
+    public IRModule() {
+        typeNames = new ArrayList<String>();
+        typeNumbers = new HashMap<String, Integer>();
+        functions = new ArrayList<IRFunction>();
+
+        for(String name : new String[] { "void", "i1", "i8", "i32", "i64", "i8*", "i32*", "i64*", "i8**", "i8***" })
+            type(name);
+    }
+
+    // The number of the type with the given LLVM name, which is added to the table if it's new
+    public int type(String name) {
+        Integer number = typeNumbers.get(name);
+
+        if(number == null) {
+            number = typeNames.size();
+            typeNames.add(name);
+            typeNumbers.put(name, number);
+        }
+
+        return number;
+    }
+
+    public String typeName(int type) { return typeNames.get(type); }
+
+    public int pointerTo(int type) { return type(typeNames.get(type) + "*"); }
+
+    // The type a pointer of the given type points to
+    public int elementOf(int pointerType) {
+        String name = typeNames.get(pointerType);
+
+        if(!name.endsWith("*"))
+            throw new CompileError("Error: " + name + " isn't a pointer type");
+
+        return type(name.substring(0, name.length() - 1));
+    }
+
+    // The type of a value of a MiniJava type, like VTables.setType
+    public int valueType(String type) {
+        switch (type) {
+            case "int":
+                return I32;
+            case "boolean":
+                return I1;
+            case "int[]":
+                return I32_PTR;
+            default:
+                return I8_PTR;
+        }
+    }
+
+    public int getTypeCount() { return typeNames.size(); }
+
+    public void addFunction(IRFunction function) { functions.add(function); }
+
+    public List<IRFunction> getFunctions() { return functions; }
+}
@@ -0,0 +1,135 @@
+// Writes the functions of the intermediate representation as LLVM code: one
+// instruction per line, a label for every block but the entry block, and an
+// empty line after every branch.
+public class IRPrinter {
+
+    private static final String[] OPERATIONS = {
+        "alloca", "load", "store", "getelementptr", "add", "sub", "mul", "and", "xor",
+        "icmp eq", "icmp slt", "icmp sge", "zext", "trunc", "bitcast", "call", "phi", "br", "br", "ret"
+    };
+
+    private IRModule module;
+    private IRFunction function;
+    private StringBuilder s;
+
+    public IRPrinter(IRModule module) {
+        this.module = module;
+    }
+
+    // The LLVM code of the function
+    public String print(IRFunction function) {
+        this.function = function;
+        s = new StringBuilder(64 * function.getInstructionCount());
+
+        s.append("define ").append(module.typeName(function.getReturnType())).append(" @").append(function.getName()).append("(");
+        for(int i = 0; i < function.getParameterCount(); i++) {
+            if(i > 0)
+                s.append(", ");
+            typedValue(function.getParameter(i));
+        }
+        s.append(") {\n");
+
+        for(int i = 0; i < function.getPlacedBlockCount(); i++) {
+            int block = function.getPlacedBlock(i);
+
+            if(function.getLabel(block) != null)
+                s.append(function.getLabel(block)).append(":\n");
+
+            for(int j = function.getBlockStart(block); j < function.getBlockEnd(i); j++)
+                instruction(j);
+        }
+
+        s.append("}\n\n");
+        return s.toString();
+    }
+
+    private void instruction(int i) {
+        int opcode = function.getOpcode(i);
+        int type = function.getType(i);
+        int operands = function.getOperandCount(i);
+
+        s.append("\t");
+        if(function.getResult(i) != IRFunction.NONE)
+            value(function.getResult(i)).append(" = ");
+        s.append(OPERATIONS[opcode]).append(" ");
+
+        switch (opcode) {
+            case IRFunction.ALLOCA:
+                s.append(module.typeName(type));
+                break;
+            case IRFunction.LOAD:
+            case IRFunction.GETELEMENTPTR:
+                s.append(module.typeName(type));
+                for(int k = 0; k < operands; k++) {
+                    s.append(", ");
+                    typedValue(function.getOperand(i, k));
+                }
+                break;
+            case IRFunction.STORE:
+                typedValue(function.getOperand(i, 0)).append(", ");
+                typedValue(function.getOperand(i, 1));
+                break;
+            case IRFunction.ZEXT:
+            case IRFunction.TRUNC:
+            case IRFunction.BITCAST:
+                typedValue(function.getOperand(i, 0)).append(" to ").append(module.typeName(type));
+                break;
+            case IRFunction.CALL:
+                s.append(module.typeName(type)).append(" ");
+                value(function.getOperand(i, 0)).append("(");
+                for(int k = 1; k < operands; k++) {
+                    if(k > 1)
+                        s.append(", ");
+                    typedValue(function.getOperand(i, k));
+                }
+                s.append(")");
+                break;
+            case IRFunction.PHI:
+                s.append(module.typeName(type));
+                for(int k = 0; k < operands; k += 2) {
+                    s.append(k > 0 ? ", [" : " [");
+                    value(function.getOperand(i, k)).append(", %").append(function.getLabel(function.getOperand(i, k + 1))).append("]");
+                }
+                break;
+            case IRFunction.BR:
+                s.append("label %").append(function.getLabel(function.getOperand(i, 0)));
+                break;
+            case IRFunction.CONDBR:
+                typedValue(function.getOperand(i, 0));
+                s.append(", label %").append(function.getLabel(function.getOperand(i, 1)));
+                s.append(", label %").append(function.getLabel(function.getOperand(i, 2)));
+                break;
+            case IRFunction.RET:
+                if(operands == 0)
+                    s.append("void");
+                else
+                    typedValue(function.getOperand(i, 0));
+                break;
+            default:
+                // The arithmetic, the logical operations and the comparisons
+                s.append(module.typeName(type)).append(" ");
+                value(function.getOperand(i, 0)).append(", ");
+                value(function.getOperand(i, 1));
+        }
+
+        if(function.getAttachment(i) != null)
+            s.append(function.getAttachment(i));
+        s.append("\n");
+
+        if(opcode == IRFunction.BR || opcode == IRFunction.CONDBR || opcode == IRFunction.RET)
+            s.append("\n");
+    }
+
+    private StringBuilder value(int value) {
+        String name = function.getValueName(value);
+
+        if(name != null)
+            return s.append(name);
+        return s.append("%_").append(value);
+    }
+
+    private StringBuilder typedValue(int value) {
+        s.append(module.typeName(function.getValueType(value))).append(" ");
+        return value(value);
+    }
+}
@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+// The sink through which every phase writes the generated LLVM code.
+// Fragments are collected in a char buffer and encoded in large chunks,
+// so the underlying stream only sees one write per filled buffer.
+public class IRWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private WritableByteChannel channel;
+    private CharsetEncoder encoder;
+    private CharBuffer chars;
+    private ByteBuffer bytes;
+    private long bytesWritten; // Total number of encoded bytes handed to the stream
+    private int writeCount; // Number of writes issued to the stream
+    private boolean closed;
+
+    public IRWriter(OutputStream out) {
+        channel = Channels.newChannel(out);
+        encoder = StandardCharsets.UTF_8.newEncoder();
+        chars = CharBuffer.allocate(BUFFER_SIZE);
+        bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        bytesWritten = 0;
+        writeCount = 0;
+        closed = false;
+    }
+
+    public long getBytesWritten() { return bytesWritten; }
+
+    public int getWriteCount() { return writeCount; }
+
+    // Appends a fragment of the .ll file
+    public void write(String s) throws IOException {
+        int start = 0;
+        int length = s.length();
+
+        while(start < length) {
+            int end = Math.min(length, start + chars.remaining());
+            chars.put(s, start, end);
+            start = end;
+
+            if(!chars.hasRemaining())
+                encode(false);
+        }
+    }
+
+    // Encodes whatever is pending and hands it to the stream
+    public void flush() throws IOException {
+        encode(false);
+        writeBytes();
+    }
+
+    public void close() throws IOException {
+        if(closed)
+            return;
+
+        closed = true;
+        encode(true);
+
+        while(encoder.flush(bytes).isOverflow())
+            writeBytes();
+
+        writeBytes();
+        channel.close();
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        CoderResult result;
+
+        chars.flip();
+        while(true) {
+            result = encoder.encode(chars, bytes, endOfInput);
+
+            if(result.isOverflow())
+                writeBytes();
+            else if(result.isUnderflow())
+                break;
+            else
+                result.throwException();
+        }
+
+        // A lone high surrogate at the end of the buffer stays for the next round
+        chars.compact();
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+
+        if(bytes.hasRemaining()) {
+            bytesWritten += bytes.remaining();
+            while(bytes.hasRemaining())
+                channel.write(bytes);
+            writeCount++;
+        }
+
+        bytes.clear();
+    }
+}
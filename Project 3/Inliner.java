@@ -0,0 +1,561 @@
+import syntaxtree.*;
+import visitor.DepthFirstVisitor;
+import visitor.GJDepthFirst;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Replaces the calls of small leaf methods by their bodies, before the
+// translation. A method can be inlined when it
+//
+//  - makes no calls (so it can't be recursive) and declares no variables,
+//  - has at most MAX_STATEMENTS statements, all of them assignments to fields,
+//  - has at most MAX_TOKENS tokens in its statements and its return expression.
+//
+// MiniJava can only reach the fields of "this", so only the calls on "this"
+// are inlined, when the class hierarchy says they always reach the same
+// method. Their arguments have to be literals, variables or "this", so that
+// they can replace the parameters without changing what is evaluated.
+//
+// A method without statements is inlined wherever it's called, as its return
+// expression. One with statements is inlined where its result is assigned,
+// "x = this.m(...);" becoming "{ <statements> x = <return expression>; }".
+public class Inliner extends GJDepthFirst<String, Info> {
+
+    public static final int MAX_STATEMENTS = 4;
+    public static final int MAX_TOKENS = 48;
+
+    private SymbolTable symbolTable;
+    private ClassHierarchyAnalysis callTargets;
+    private HashMap<MethodInfo, MethodDeclaration> declarations;
+    private HashMap<MethodInfo, Boolean> inlinable; // Whether every method that was looked at can be inlined
+    private ClassInfo currentClass;
+    private MethodInfo currentMethod;
+    private List<String> report; // "Caller.method: Owner.method" for every call that was inlined
+    private TreeCopier copier;
+
+    // Constructor
+    public Inliner(SymbolTable symbolTable, ClassHierarchyAnalysis callTargets) {
+        this.symbolTable = symbolTable;
+        this.callTargets = callTargets;
+        declarations = new HashMap<MethodInfo, MethodDeclaration>();
+        inlinable = new HashMap<MethodInfo, Boolean>();
+        currentClass = null;
+        currentMethod = null;
+        report = new ArrayList<String>();
+        copier = new TreeCopier();
+    }
+
+    public int getInlinedCalls() { return report.size(); }
+
+    public void printReport(PrintStream out) {
+        out.println("Inlined " + report.size() + " call" + (report.size() == 1 ? "" : "s"));
+        for(int i = 0; i < report.size(); i++)
+            out.println("  " + report.get(i));
+    }
+
+    // The declarations of the methods are found first, since a method may call one declared after it
+    public void inline(Goal root) {
+        NodeListOptional typeDeclarations = root.f1;
+
+        for(int i = 0; i < typeDeclarations.size(); i++) {
+            Node declaration = ((TypeDeclaration) typeDeclarations.elementAt(i)).f0.choice;
+            ClassInfo declaredClass;
+            NodeListOptional methods;
+
+            if(declaration instanceof ClassDeclaration) {
+                declaredClass = symbolTable.getClass(((ClassDeclaration) declaration).f1.f0.toString());
+                methods = ((ClassDeclaration) declaration).f4;
+            }
+            else {
+                declaredClass = symbolTable.getClass(((ClassExtendsDeclaration) declaration).f1.f0.toString());
+                methods = ((ClassExtendsDeclaration) declaration).f6;
+            }
+
+            for(int j = 0; j < methods.size(); j++) {
+                MethodDeclaration method = (MethodDeclaration) methods.elementAt(j);
+
+                declarations.put(declaredClass.getClassMethod(method.f2.f0.toString()), method);
+            }
+        }
+
+        root.accept(this, null);
+    }
+
+    // The method a call on "this" always reaches, or null if it may reach others
+    private MethodInfo targetOf(MessageSend n) {
+        MethodInfo calledMethod;
+        CallTarget target;
+
+        if(!(n.f0.f0.choice instanceof ThisExpression))
+            return null;
+
+        calledMethod = currentClass.getClassMethod(n.f2.f0.toString());
+        if(calledMethod == null)
+            return null;
+
+        target = callTargets.resolve(currentClass.getName(), calledMethod.getOffset()/8);
+        return target.isUnique() ? target.getMethod() : null;
+    }
+
+    private boolean canInline(MethodInfo method) {
+        Boolean result = inlinable.get(method);
+
+        if(result == null) {
+            result = declarations.containsKey(method) && isSmallLeaf(method, declarations.get(method));
+            inlinable.put(method, result);
+        }
+
+        return result;
+    }
+
+    private boolean isSmallLeaf(MethodInfo method, MethodDeclaration n) {
+        AstCounter counter = new AstCounter();
+        VariableUses uses = new VariableUses();
+        long tokens;
+
+        if(n.f7.present() || n.f8.size() > MAX_STATEMENTS)
+            return false;
+
+        for(int i = 0; i < n.f8.size(); i++) {
+            Node statement = ((Statement) n.f8.elementAt(i)).f0.choice;
+
+            if(!(statement instanceof AssignmentStatement) && !(statement instanceof ArrayAssignmentStatement))
+                return false;
+        }
+
+        counter.count(n.f8);
+        tokens = counter.getTokens();
+        counter.count(n.f10);
+        if(tokens + counter.getTokens() > MAX_TOKENS)
+            return false;
+
+        n.f8.accept(uses);
+        n.f10.accept(uses);
+        if(uses.calls)
+            return false;
+
+        // The parameters are replaced by the arguments, so they can't be assigned
+        for(FieldInfo argument : method.getArguments()) {
+            if(uses.assigned.contains(argument.getName()))
+                return false;
+        }
+
+        return true;
+    }
+
+    // The arguments of the call, if all of them are literals, variables or "this"
+    private List<PrimaryExpression> simpleArguments(MessageSend n) {
+        List<PrimaryExpression> arguments = new ArrayList<PrimaryExpression>();
+        List<Expression> expressions = new ArrayList<Expression>();
+
+        if(n.f4.present()) {
+            ExpressionList list = (ExpressionList) n.f4.node;
+
+            expressions.add(list.f0);
+            for(int i = 0; i < list.f1.f0.size(); i++)
+                expressions.add(((ExpressionTerm) list.f1.f0.elementAt(i)).f1);
+        }
+
+        for(Expression expression : expressions) {
+            Node primary;
+
+            if(!(expression.f0.choice instanceof Clause) || !(((Clause) expression.f0.choice).f0.choice instanceof PrimaryExpression))
+                return null;
+
+            primary = ((PrimaryExpression) ((Clause) expression.f0.choice).f0.choice).f0.choice;
+            if(!(primary instanceof IntegerLiteral || primary instanceof TrueLiteral || primary instanceof FalseLiteral ||
+                 primary instanceof Identifier || primary instanceof ThisExpression))
+                return null;
+
+            arguments.add((PrimaryExpression) ((Clause) expression.f0.choice).f0.choice);
+        }
+
+        return arguments;
+    }
+
+    // The parameters of the method and the arguments that replace them, if the body
+    // means the same thing in the calling method once they have been replaced
+    private HashMap<String, PrimaryExpression> bindArguments(MethodInfo method, MessageSend n) {
+        List<PrimaryExpression> arguments = simpleArguments(n);
+        HashMap<String, PrimaryExpression> parameters = new HashMap<String, PrimaryExpression>();
+        MethodDeclaration declaration = declarations.get(method);
+        VariableUses uses = new VariableUses();
+
+        if(arguments == null || arguments.size() != method.getArguments().size())
+            return null;
+
+        for(int i = 0; i < arguments.size(); i++)
+            parameters.put(method.getArguments().get(i).getName(), arguments.get(i));
+
+        declaration.f8.accept(uses);
+        declaration.f10.accept(uses);
+
+        // The fields of the method have to be the same fields in the caller, not its locals
+        for(String name : uses.used) {
+            if(parameters.containsKey(name))
+                continue;
+            if(currentMethod.getCertainVariable(name) != null || currentClass.getVisibleField(name) != method.getOwner().getVisibleField(name))
+                return null;
+        }
+
+        // A variable that is passed can't be assigned before the parameter is read
+        for(PrimaryExpression argument : arguments) {
+            if(argument.f0.choice instanceof Identifier && uses.assigned.contains(((Identifier) argument.f0.choice).f0.toString()))
+                return null;
+        }
+
+        return parameters;
+    }
+
+    private void inlined(MethodInfo method) {
+        report.add(currentClass.getName() + "." + currentMethod.getName() + ": " + method.getOwner().getName() + "." + method.getName());
+    }
+
+    /**
+     * f0 -> "class"
+     * f1 -> Identifier()
+     * f2 -> "{"
+     * ...
+     * f15 -> ( Statement() )*
+     * f16 -> "}"
+     * f17 -> "}"
+     */
+    public String visit(MainClass n, Info argu) {
+        return null; // There is no "this" in main
+    }
+
+    /**
+     * f0 -> "class"
+     * f1 -> Identifier()
+     * f2 -> "{"
+     * f3 -> ( VarDeclaration() )*
+     * f4 -> ( MethodDeclaration() )*
+     * f5 -> "}"
+     */
+    public String visit(ClassDeclaration n, Info argu) {
+        currentClass = symbolTable.getClass(n.f1.f0.toString());
+        n.f4.accept(this, argu);
+        currentClass = null;
+        return null;
+    }
+
+    /**
+     * f0 -> "class"
+     * f1 -> Identifier()
+     * f2 -> "extends"
+     * f3 -> Identifier()
+     * f4 -> "{"
+     * f5 -> ( VarDeclaration() )*
+     * f6 -> ( MethodDeclaration() )*
+     * f7 -> "}"
+     */
+    public String visit(ClassExtendsDeclaration n, Info argu) {
+        currentClass = symbolTable.getClass(n.f1.f0.toString());
+        n.f6.accept(this, argu);
+        currentClass = null;
+        return null;
+    }
+
+    /**
+     * f0 -> "public"
+     * f1 -> Type()
+     * f2 -> Identifier()
+     * ...
+     * f8 -> ( Statement() )*
+     * f9 -> "return"
+     * f10 -> Expression()
+     * f11 -> ";"
+     * f12 -> "}"
+     */
+    public String visit(MethodDeclaration n, Info argu) {
+        currentMethod = currentClass.getClassMethod(n.f2.f0.toString());
+        n.f8.accept(this, argu);
+        n.f10.accept(this, argu);
+        currentMethod = null;
+        return null;
+    }
+
+    /**
+     * f0 -> Block()
+     *       | AssignmentStatement()
+     *       | ArrayAssignmentStatement()
+     *       | IfStatement()
+     *       | WhileStatement()
+     *       | PrintStatement()
+     */
+    public String visit(Statement n, Info argu) {
+        AssignmentStatement assignment;
+        MessageSend call;
+        MethodInfo method;
+        MethodDeclaration declaration;
+        HashMap<String, PrimaryExpression> parameters;
+        NodeListOptional statements;
+
+        if(n.f0.choice instanceof AssignmentStatement && ((AssignmentStatement) n.f0.choice).f2.f0.choice instanceof MessageSend) {
+            assignment = (AssignmentStatement) n.f0.choice;
+            call = (MessageSend) assignment.f2.f0.choice;
+            method = targetOf(call);
+
+            if(method != null && canInline(method) && declarations.get(method).f8.present() && (parameters = bindArguments(method, call)) != null) {
+                declaration = declarations.get(method);
+                statements = new NodeListOptional();
+
+                for(int i = 0; i < declaration.f8.size(); i++)
+                    statements.addNode(declaration.f8.elementAt(i).accept(copier, parameters));
+                statements.addNode(new Statement(new NodeChoice(new AssignmentStatement(assignment.f0, (Expression) declaration.f10.accept(copier, parameters)), 1)));
+
+                n.f0 = new NodeChoice(new Block(statements), 0);
+                inlined(method);
+                return null;
+            }
+        }
+
+        n.f0.accept(this, argu);
+        return null;
+    }
+
+    /**
+     * f0 -> AndExpression()
+     *       | CompareExpression()
+     *       | PlusExpression()
+     *       | MinusExpression()
+     *       | TimesExpression()
+     *       | ArrayLookup()
+     *       | ArrayLength()
+     *       | MessageSend()
+     *       | Clause()
+     */
+    public String visit(Expression n, Info argu) {
+        MessageSend call;
+        MethodInfo method;
+        HashMap<String, PrimaryExpression> parameters;
+
+        n.f0.accept(this, argu);
+        if(!(n.f0.choice instanceof MessageSend))
+            return null;
+
+        call = (MessageSend) n.f0.choice;
+        method = targetOf(call);
+        if(method != null && canInline(method) && !declarations.get(method).f8.present() && (parameters = bindArguments(method, call)) != null) {
+            n.f0 = ((Expression) declarations.get(method).f10.accept(copier, parameters)).f0;
+            inlined(method);
+        }
+
+        return null;
+    }
+}
+
+// The variables a method body reads and assigns (an array counts as assigned
+// when one of its elements is), and whether it makes any calls
+class VariableUses extends DepthFirstVisitor {
+    Set<String> used = new HashSet<String>();
+    Set<String> assigned = new HashSet<String>();
+    boolean calls = false;
+
+    public void visit(AssignmentStatement n) {
+        used.add(n.f0.f0.toString());
+        assigned.add(n.f0.f0.toString());
+        super.visit(n);
+    }
+
+    public void visit(ArrayAssignmentStatement n) {
+        used.add(n.f0.f0.toString());
+        assigned.add(n.f0.f0.toString());
+        super.visit(n);
+    }
+
+    public void visit(PrimaryExpression n) {
+        if(n.f0.choice instanceof Identifier)
+            used.add(((Identifier) n.f0.choice).f0.toString());
+        super.visit(n);
+    }
+
+    public void visit(MessageSend n) {
+        calls = true;
+        super.visit(n);
+    }
+}
+
+// A deep copy of the statements and the expressions of a method body, with
+// every parameter replaced by a copy of the argument it's bound to
+class TreeCopier extends GJDepthFirst<Node, HashMap<String, PrimaryExpression>> {
+
+    // The copy of a child, which has the class of the child
+    @SuppressWarnings("unchecked")
+    private <T extends Node> T copy(T n, HashMap<String, PrimaryExpression> parameters) {
+        return (T) n.accept(this, parameters);
+    }
+
+    // A NodeChoice passes the visitor on to its choice, so it's copied by its parent
+    private NodeChoice choice(NodeChoice n, HashMap<String, PrimaryExpression> parameters) {
+        return new NodeChoice(n.accept(this, parameters), n.which);
+    }
+
+    public Node visit(NodeToken n, HashMap<String, PrimaryExpression> parameters) {
+        return new NodeToken(n.tokenImage, n.kind, n.beginLine, n.beginColumn, n.endLine, n.endColumn);
+    }
+
+    public Node visit(NodeOptional n, HashMap<String, PrimaryExpression> parameters) {
+        NodeOptional optional = new NodeOptional();
+
+        if(n.present())
+            optional.addNode(n.node.accept(this, parameters));
+        return optional;
+    }
+
+    public Node visit(NodeListOptional n, HashMap<String, PrimaryExpression> parameters) {
+        NodeListOptional list = new NodeListOptional();
+
+        for(int i = 0; i < n.size(); i++)
+            list.addNode(n.elementAt(i).accept(this, parameters));
+        return list;
+    }
+
+    public Node visit(Statement n, HashMap<String, PrimaryExpression> parameters) {
+        return new Statement(choice(n.f0, parameters));
+    }
+
+    public Node visit(Block n, HashMap<String, PrimaryExpression> parameters) {
+        return new Block(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters));
+    }
+
+    public Node visit(AssignmentStatement n, HashMap<String, PrimaryExpression> parameters) {
+        return new AssignmentStatement(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters), copy(n.f3, parameters));
+    }
+
+    public Node visit(ArrayAssignmentStatement n, HashMap<String, PrimaryExpression> parameters) {
+        return new ArrayAssignmentStatement(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters), copy(n.f3, parameters),
+                                            copy(n.f4, parameters), copy(n.f5, parameters), copy(n.f6, parameters));
+    }
+
+    public Node visit(IfStatement n, HashMap<String, PrimaryExpression> parameters) {
+        return new IfStatement(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters), copy(n.f3, parameters),
+                               copy(n.f4, parameters), copy(n.f5, parameters), copy(n.f6, parameters));
+    }
+
+    public Node visit(WhileStatement n, HashMap<String, PrimaryExpression> parameters) {
+        return new WhileStatement(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters), copy(n.f3, parameters),
+                                  copy(n.f4, parameters));
+    }
+
+    public Node visit(PrintStatement n, HashMap<String, PrimaryExpression> parameters) {
+        return new PrintStatement(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters), copy(n.f3, parameters),
+                                  copy(n.f4, parameters));
+    }
+
+    public Node visit(Expression n, HashMap<String, PrimaryExpression> parameters) {
+        return new Expression(choice(n.f0, parameters));
+    }
+
+    public Node visit(AndExpression n, HashMap<String, PrimaryExpression> parameters) {
+        return new AndExpression(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters));
+    }
+
+    public Node visit(CompareExpression n, HashMap<String, PrimaryExpression> parameters) {
+        return new CompareExpression(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters));
+    }
+
+    public Node visit(PlusExpression n, HashMap<String, PrimaryExpression> parameters) {
+        return new PlusExpression(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters));
+    }
+
+    public Node visit(MinusExpression n, HashMap<String, PrimaryExpression> parameters) {
+        return new MinusExpression(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters));
+    }
+
+    public Node visit(TimesExpression n, HashMap<String, PrimaryExpression> parameters) {
+        return new TimesExpression(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters));
+    }
+
+    public Node visit(ArrayLookup n, HashMap<String, PrimaryExpression> parameters) {
+        return new ArrayLookup(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters), copy(n.f3, parameters));
+    }
+
+    public Node visit(ArrayLength n, HashMap<String, PrimaryExpression> parameters) {
+        return new ArrayLength(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters));
+    }
+
+    public Node visit(MessageSend n, HashMap<String, PrimaryExpression> parameters) {
+        return new MessageSend(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters), copy(n.f3, parameters),
+                               copy(n.f4, parameters), copy(n.f5, parameters));
+    }
+
+    public Node visit(ExpressionList n, HashMap<String, PrimaryExpression> parameters) {
+        return new ExpressionList(copy(n.f0, parameters), copy(n.f1, parameters));
+    }
+
+    public Node visit(ExpressionTail n, HashMap<String, PrimaryExpression> parameters) {
+        return new ExpressionTail(copy(n.f0, parameters));
+    }
+
+    public Node visit(ExpressionTerm n, HashMap<String, PrimaryExpression> parameters) {
+        return new ExpressionTerm(copy(n.f0, parameters), copy(n.f1, parameters));
+    }
+
+    public Node visit(Clause n, HashMap<String, PrimaryExpression> parameters) {
+        return new Clause(choice(n.f0, parameters));
+    }
+
+    // A parameter is replaced by its argument, whose own names are the caller's
+    public Node visit(PrimaryExpression n, HashMap<String, PrimaryExpression> parameters) {
+        PrimaryExpression argument = null;
+
+        if(n.f0.choice instanceof Identifier)
+            argument = parameters.get(((Identifier) n.f0.choice).f0.toString());
+        if(argument != null)
+            return argument.accept(this, new HashMap<String, PrimaryExpression>());
+
+        return new PrimaryExpression(choice(n.f0, parameters));
+    }
+
+    public Node visit(IntegerLiteral n, HashMap<String, PrimaryExpression> parameters) {
+        return new IntegerLiteral(copy(n.f0, parameters));
+    }
+
+    public Node visit(TrueLiteral n, HashMap<String, PrimaryExpression> parameters) {
+        return new TrueLiteral(copy(n.f0, parameters));
+    }
+
+    public Node visit(FalseLiteral n, HashMap<String, PrimaryExpression> parameters) {
+        return new FalseLiteral(copy(n.f0, parameters));
+    }
+
+    public Node visit(Identifier n, HashMap<String, PrimaryExpression> parameters) {
+        return new Identifier(copy(n.f0, parameters));
+    }
+
+    public Node visit(ThisExpression n, HashMap<String, PrimaryExpression> parameters) {
+        return new ThisExpression(copy(n.f0, parameters));
+    }
+
+    public Node visit(ArrayAllocationExpression n, HashMap<String, PrimaryExpression> parameters) {
+        return new ArrayAllocationExpression(choice(n.f0, parameters));
+    }
+
+    public Node visit(BooleanArrayAllocationExpression n, HashMap<String, PrimaryExpression> parameters) {
+        return new BooleanArrayAllocationExpression(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters),
+                                                    copy(n.f3, parameters), copy(n.f4, parameters));
+    }
+
+    public Node visit(IntegerArrayAllocationExpression n, HashMap<String, PrimaryExpression> parameters) {
+        return new IntegerArrayAllocationExpression(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters),
+                                                    copy(n.f3, parameters), copy(n.f4, parameters));
+    }
+
+    public Node visit(AllocationExpression n, HashMap<String, PrimaryExpression> parameters) {
+        return new AllocationExpression(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters), copy(n.f3, parameters));
+    }
+
+    public Node visit(NotExpression n, HashMap<String, PrimaryExpression> parameters) {
+        return new NotExpression(copy(n.f0, parameters), copy(n.f1, parameters));
+    }
+
+    public Node visit(BracketExpression n, HashMap<String, PrimaryExpression> parameters) {
+        return new BracketExpression(copy(n.f0, parameters), copy(n.f1, parameters), copy(n.f2, parameters));
+    }
+}
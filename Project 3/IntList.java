@@ -0,0 +1,24 @@
+import java.util.Arrays;
+
+// A growable array of ints
+public class IntList {
+    private int[] elements;
+    private int size;
+
+    public IntList() {
+        elements = new int[8];
+        size = 0;
+    }
+
+    public void add(int element) {
+        if(size == elements.length)
+            elements = Arrays.copyOf(elements, 2 * size);
+        elements[size++] = element;
+    }
+
+    public int get(int index) { return elements[index]; }
+
+    public int size() { return size; }
+
+    public int[] toArray() { return Arrays.copyOf(elements, size); }
+}
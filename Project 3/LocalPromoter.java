@@ -0,0 +1,387 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Keeps the local variables of a translated function in registers instead of
+// stack slots (--ssa-locals). The Translator gives every local an alloca and
+// reaches it with loads and stores; here the loads are replaced by the value
+// that was last stored to the variable, and where the control flow of an if
+// or a while joins, a phi picks that value out of the blocks that lead there.
+//
+// A variable is only promoted when its alloca is used by nothing but loads
+// and stores of its own type; the others are left in memory. The phis that
+// turn out to always get the same value are removed again.
+//
+// The values are worked out on the IR of the function before anything is
+// written: a value is one of the function, a phi (numbered after the values
+// of the function) or UNDEFINED. The promoted function is then a copy of the
+// function without the allocas, loads and stores of the promoted variables,
+// and with the phis at the start of their blocks.
+public class LocalPromoter {
+
+    private static final String ENTRY = "entry";
+    private static final int UNDEFINED = -1; // Read before it was written, or unreachable
+
+    // Everything we know about the function that is being rewritten
+    private IRFunction function;
+    private BasicBlock[] blocks; // By block number
+    private Map<Integer, Integer> types; // The allocas of the promoted variables and the types of their values
+    private Map<Integer, Integer> aliases; // Loads and phis that were replaced by another value
+    private boolean[] removed; // The allocas, loads and stores of the promoted variables, by instruction
+    private List<PhiNode> phis;
+
+    // The function being written, and the value of it every value of the old one became
+    private IRFunction promoted;
+    private int[] values;
+
+    // Returns the function with its locals promoted to registers
+    public IRFunction promote(IRFunction function) {
+        this.function = function;
+        types = new HashMap<Integer, Integer>();
+        aliases = new HashMap<Integer, Integer>();
+        removed = new boolean[function.getInstructionCount()];
+        phis = new ArrayList<PhiNode>();
+
+        findVariables();
+        if(types.isEmpty())
+            return function;
+
+        findBlocks();
+        rename();
+        removeTrivialPhis();
+        return rebuild();
+    }
+
+    // The allocas whose address is only used to load and store a value of their own type
+    private void findVariables() {
+        Set<Integer> escaped = new HashSet<Integer>();
+        int opcode, operand;
+
+        for(int i = 0; i < function.getInstructionCount(); i++) {
+            if(function.getOpcode(i) == IRFunction.ALLOCA)
+                types.put(function.getResult(i), function.getType(i));
+        }
+
+        for(int i = 0; i < function.getInstructionCount(); i++) {
+            opcode = function.getOpcode(i);
+
+            for(int k = 0; k < function.getOperandCount(i); k++) {
+                if(function.isBlockOperand(i, k) || !types.containsKey(operand = function.getOperand(i, k)))
+                    continue;
+
+                // Any other use of a variable's address keeps it in memory
+                if(opcode == IRFunction.LOAD && function.getType(i) == types.get(operand))
+                    continue;
+                if(opcode == IRFunction.STORE && k == 1 && function.getType(i) == types.get(operand))
+                    continue;
+                escaped.add(operand);
+            }
+        }
+
+        for(Integer variable : escaped)
+            types.remove(variable);
+    }
+
+    // Connects every block to the ones it branches to
+    private void findBlocks() {
+        BasicBlock block;
+        int terminator;
+
+        blocks = new BasicBlock[function.getBlockCount()];
+        for(int i = 0; i < function.getPlacedBlockCount(); i++) {
+            block = new BasicBlock(function.getPlacedBlock(i), function.getBlockStart(function.getPlacedBlock(i)), function.getBlockEnd(i));
+            blocks[block.number] = block;
+        }
+
+        for(int i = 0; i < function.getPlacedBlockCount(); i++) {
+            block = blocks[function.getPlacedBlock(i)];
+            terminator = block.terminator(function);
+            if(terminator == -1)
+                continue;
+
+            for(int k = 0; k < function.getOperandCount(terminator); k++) {
+                if(function.isBlockOperand(terminator, k) && blocks[function.getOperand(terminator, k)] != null)
+                    blocks[function.getOperand(terminator, k)].predecessors.add(block);
+            }
+        }
+    }
+
+    // Drops the allocas, loads and stores of the promoted variables
+    private void rename() {
+        BasicBlock block;
+        Map<Integer, Integer> current;
+        int opcode, value;
+
+        // The value every block leaves in a variable, if the block stores to it
+        for(int i = 0; i < function.getPlacedBlockCount(); i++) {
+            block = blocks[function.getPlacedBlock(i)];
+
+            for(int j = block.first; j < block.last; j++) {
+                if(function.getOpcode(j) == IRFunction.STORE && types.containsKey(function.getOperand(j, 1)))
+                    block.stored.put(function.getOperand(j, 1), function.getOperand(j, 0));
+            }
+        }
+
+        for(int i = 0; i < function.getPlacedBlockCount(); i++) {
+            block = blocks[function.getPlacedBlock(i)];
+            current = new HashMap<Integer, Integer>();
+
+            for(int j = block.first; j < block.last; j++) {
+                opcode = function.getOpcode(j);
+
+                if(opcode == IRFunction.ALLOCA && types.containsKey(function.getResult(j))) {
+                    removed[j] = true;
+                }
+                else if(opcode == IRFunction.LOAD && types.containsKey(function.getOperand(j, 0))) {
+                    Integer stored = current.get(function.getOperand(j, 0));
+
+                    value = stored != null ? stored : valueAtStart(function.getOperand(j, 0), block, new HashSet<BasicBlock>());
+                    aliases.put(function.getResult(j), value);
+                    removed[j] = true;
+                }
+                else if(opcode == IRFunction.STORE && types.containsKey(function.getOperand(j, 1))) {
+                    current.put(function.getOperand(j, 1), function.getOperand(j, 0));
+                    removed[j] = true;
+                }
+            }
+        }
+
+        // Filling in the phis, which may need more phis in their predecessors
+        for(int i = 0; i < phis.size(); i++) {
+            PhiNode phi = phis.get(i);
+
+            for(BasicBlock predecessor : phi.block.predecessors)
+                phi.operands.add(valueAtEnd(phi.variable, predecessor, new HashSet<BasicBlock>()));
+        }
+    }
+
+    private int valueAtStart(int variable, BasicBlock block, Set<BasicBlock> visited) {
+        Integer incoming = block.incoming.get(variable);
+        PhiNode phi;
+        int value;
+
+        if(incoming != null)
+            return incoming;
+
+        if(block.predecessors.isEmpty() || !visited.add(block)) {
+            value = UNDEFINED;
+        }
+        else if(block.predecessors.size() == 1) {
+            value = valueAtEnd(variable, block.predecessors.get(0), visited);
+        }
+        else {
+            phi = new PhiNode(variable, block, function.getValueCount() + phis.size());
+            phis.add(phi);
+            block.phis.add(phi);
+            value = phi.value;
+        }
+
+        block.incoming.put(variable, value);
+        return value;
+    }
+
+    private int valueAtEnd(int variable, BasicBlock block, Set<BasicBlock> visited) {
+        Integer value = block.stored.get(variable);
+
+        return value != null ? value : valueAtStart(variable, block, visited);
+    }
+
+    // A phi whose operands are all the same value (or the phi itself) is replaced by that value
+    private void removeTrivialPhis() {
+        boolean changed = true;
+
+        while(changed) {
+            changed = false;
+
+            for(PhiNode phi : phis) {
+                Integer same = null;
+                boolean trivial = true;
+
+                if(phi.removed)
+                    continue;
+
+                for(int operand : phi.operands) {
+                    operand = resolve(operand);
+                    if(operand == phi.value || (same != null && operand == same))
+                        continue;
+                    if(same != null) {
+                        trivial = false;
+                        break;
+                    }
+                    same = operand;
+                }
+
+                if(trivial) {
+                    aliases.put(phi.value, same != null ? same : UNDEFINED);
+                    phi.removed = true;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    // Copies the function without the promoted variables, with the phis right
+    // after the labels. The operands are set once every copy has its result.
+    private IRFunction rebuild() {
+        IntList sources = new IntList(); // The instructions that were copied
+        IntList copies = new IntList(); // And their copies
+        String label;
+        int[] operands;
+        int block;
+
+        promoted = new IRFunction(function.getModule(), function.getName(), function.getReturnType());
+        values = new int[function.getValueCount()];
+        Arrays.fill(values, IRFunction.NONE);
+
+        for(int i = 0; i < function.getParameterCount(); i++) {
+            int parameter = function.getParameter(i);
+
+            values[parameter] = promoted.addParameter(function.getValueType(parameter), function.getValueName(parameter));
+        }
+
+        // The entry block gets a label too, since the phis may name it
+        for(int i = 0; i < function.getBlockCount(); i++) {
+            label = function.getLabel(i);
+            promoted.newBlock(label == null && i == function.getPlacedBlock(0) ? ENTRY : label);
+        }
+
+        for(int i = 0; i < function.getPlacedBlockCount(); i++) {
+            block = function.getPlacedBlock(i);
+            promoted.placeBlock(block);
+
+            for(PhiNode phi : blocks[block].phis) {
+                if(phi.removed)
+                    continue;
+
+                operands = new int[2 * phi.operands.size()];
+                for(int k = 0; k < phi.operands.size(); k++)
+                    operands[2 * k + 1] = phi.block.predecessors.get(k).number;
+
+                phi.instruction = promoted.getInstructionCount();
+                phi.result = promoted.phi(types.get(phi.variable), phiName(phi), operands);
+            }
+
+            for(int j = blocks[block].first; j < blocks[block].last; j++) {
+                if(removed[j])
+                    continue;
+
+                operands = new int[function.getOperandCount(j)];
+                for(int k = 0; k < operands.length; k++)
+                    operands[k] = function.getOperand(j, k);
+
+                sources.add(j);
+                copies.add(promoted.getInstructionCount());
+                if(function.getResult(j) == IRFunction.NONE)
+                    promoted.copy(function, j, operands);
+                else
+                    values[function.getResult(j)] = promoted.copy(function, j, operands);
+            }
+        }
+
+        for(int c = 0; c < sources.size(); c++) {
+            int j = sources.get(c);
+
+            for(int k = 0; k < function.getOperandCount(j); k++) {
+                if(!function.isBlockOperand(j, k))
+                    promoted.setOperand(copies.get(c), k, value(function.getOperand(j, k), function.getValueType(function.getOperand(j, k))));
+            }
+        }
+
+        for(PhiNode phi : phis) {
+            if(phi.removed)
+                continue;
+
+            for(int k = 0; k < phi.operands.size(); k++)
+                promoted.setOperand(phi.instruction, 2 * k, value(phi.operands.get(k), types.get(phi.variable)));
+        }
+
+        return promoted;
+    }
+
+    // The value of the promoted function that a value of the old one stands for
+    private int value(int value, int type) {
+        value = resolve(value);
+
+        if(value == UNDEFINED)
+            return promoted.constant(type, undefined(type));
+        if(value >= function.getValueCount())
+            return phis.get(value - function.getValueCount()).result;
+
+        if(values[value] == IRFunction.NONE && function.getValueKind(value) == IRFunction.CONSTANT)
+            values[value] = promoted.constant(function.getValueType(value), function.getValueName(value));
+        return values[value];
+    }
+
+    private int resolve(int value) {
+        Integer alias;
+
+        while((alias = aliases.get(value)) != null)
+            value = alias;
+        return value;
+    }
+
+    // The phi of a variable is named after its register and the label of its block
+    private String phiName(PhiNode phi) {
+        String variable = function.getValueName(phi.variable);
+
+        return variable != null ? variable + "." + promoted.getLabel(phi.block.number) : null;
+    }
+
+    private String undefined(int type) {
+        return function.getModule().typeName(type).endsWith("*") ? "null" : "0";
+    }
+}
+
+// The instructions of a block of the function that is being promoted
+class BasicBlock {
+    int number;
+    int first; // The first instruction of the block
+    int last; // The instruction after the last one
+    List<BasicBlock> predecessors;
+    Map<Integer, Integer> stored; // The last value stored to each variable in the block
+    Map<Integer, Integer> incoming; // The value each variable has when the block starts
+    List<PhiNode> phis;
+
+    BasicBlock(int number, int first, int last) {
+        this.number = number;
+        this.first = first;
+        this.last = last;
+        predecessors = new ArrayList<BasicBlock>();
+        stored = new HashMap<Integer, Integer>();
+        incoming = new HashMap<Integer, Integer>();
+        phis = new ArrayList<PhiNode>();
+    }
+
+    // The branch or ret that ends the block, or -1
+    int terminator(IRFunction function) {
+        for(int i = first; i < last; i++) {
+            int opcode = function.getOpcode(i);
+
+            if(opcode == IRFunction.BR || opcode == IRFunction.CONDBR || opcode == IRFunction.RET)
+                return i;
+        }
+        return -1;
+    }
+}
+
+class PhiNode {
+    int variable; // The alloca of the variable
+    BasicBlock block;
+    int value; // The number it's known by until the function is rebuilt
+    List<Integer> operands;
+    boolean removed;
+    int instruction; // The phi instruction and its result in the promoted function
+    int result;
+
+    PhiNode(int variable, BasicBlock block, int value) {
+        this.variable = variable;
+        this.block = block;
+        this.value = value;
+        operands = new ArrayList<Integer>();
+        removed = false;
+    }
+}
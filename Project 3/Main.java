@@ -1,79 +1,123 @@
-import syntaxtree.*;
-import visitor.*;
 import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.HashMap;
 
 class Main {
     public static void main (String [] args){
-        if(args.length != 1){
-            System.err.println("Usage: java Driver <inputFile>");
-            System.exit(1);
+        if(args.length >= 2 && args[0].equals("--batch")) {
+            batch(args);
+            return;
         }
-        FileInputStream fis = null;
-
-        try{
-            fis = new FileInputStream(args[0]);
-
-            MiniJavaParser parser = new MiniJavaParser(fis);
-            System.err.println("Program parsed successfully.");
-            Goal root = parser.Goal();
-            SymbolTable symbolTable = new SymbolTable();
-
-            ClassChecker classChecker = new ClassChecker(symbolTable);
-            root.accept(classChecker, null);
-            symbolTable.checkDataTypes();
 
-            MethodChecker methodChecker = new MethodChecker(symbolTable);
-            root.accept(methodChecker, null);
-
-            /* Creating the .ll file */
-            String[] arrOfStr = args[0].split(".java", 2);
-            String fileName = "./" + arrOfStr[0] + ".ll";
-            System.out.println("Filename: " + fileName);
-            FileOutputStream out = new FileOutputStream(fileName);
+        if(args.length == 2 && args[0].equals("--daemon")) {
+            daemon(args[1]);
+            return;
+        }
 
-            StatementChecker statementChecker = new StatementChecker(symbolTable);
-            root.accept(statementChecker, null);
+        CompilerOptions options = new CompilerOptions();
+        boolean stats = false;
+        int first;
 
-            symbolTable.setOffsets();
-            symbolTable.setInheritedMethods();
-            //symbolTable.printInheritedMethods();
+        // The options come before the input file
+        for(first = 0; first < args.length - 1; first++) {
+            if(args[first].equals("--stats"))
+                stats = true;
+            else if(!options.parse(args[first]))
+                break;
+        }
 
-            symbolTable.printSymbolTable();
+        if(first != args.length - 1){
+            usage();
+            System.exit(1);
+        }
 
-            /* Creating the V-Tables */
-            VTables vtables = new VTables(symbolTable, out);
-            vtables.createClassTables();
-            //vtables.printClassTables();
-            vtables.writeVTables();
+        try{
+            Compilation compilation = new Compilation(true, options);
+            CompilerStats compilerStats = new CompilerStats();
 
-            Functions.declareFunctions(out);
+            if(stats)
+                compilation.addListener(compilerStats);
 
-            symbolTable.setRegisterNames();
+            compilation.compile(args[args.length - 1]);
 
-            /* Creating the visitor responsible for the translation */
-            Translator translator = new Translator(vtables);
-            root.accept(translator, null);
-            //System.out.println(root.accept(eval, null));
+            if(stats) {
+                compilerStats.count(compilation);
+                compilerStats.print(System.err);
+            }
         }
         catch(ParseException ex){
             System.out.println(ex.getMessage());
         }
+        catch(CompileError ex){
+            System.out.println(ex.getMessage());
+            System.exit(1);
+        }
         catch(FileNotFoundException ex){
             System.err.println(ex.getMessage());
         }
         catch (Exception ex){
             System.err.println(ex.getMessage());
         }
-        finally{
-            try{
-                if(fis != null) fis.close();
+    }
+
+    private static void usage() {
+        System.err.println("Usage: java Driver [--stats] [options] <inputFile>");
+        System.err.println("       java Driver --batch [--jobs <n>] [options] <inputFile | directory | @manifest>...");
+        System.err.println("       java Driver --daemon <port | unix:path>");
+        System.err.print(CompilerOptions.usage());
+    }
+
+    // Compiles every input in the same JVM and exits with 1 if any of them failed
+    private static void batch(String[] args) {
+        CompilerOptions options = new CompilerOptions();
+        BatchCompiler batchCompiler;
+        int jobs = 1;
+        int first = 1; // Index of the first input
+
+        if(args.length >= 3 && args[1].equals("--jobs")) {
+            try {
+                jobs = Integer.parseInt(args[2]);
             }
-            catch(IOException ex){
-                System.err.println(ex.getMessage());
+            catch(NumberFormatException ex) {
+                jobs = 0;
             }
+
+            if(jobs < 1) {
+                System.err.println("Error: --jobs expects a positive number, not " + args[2]);
+                System.exit(1);
+            }
+            first = 3;
+        }
+
+        while(first < args.length && options.parse(args[first]))
+            first++;
+
+        batchCompiler = new BatchCompiler(jobs, options);
+        try {
+            for(int i = first; i < args.length; i++)
+                batchCompiler.addInput(args[i]);
+        }
+        catch(IOException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(1);
+        }
+
+        if(batchCompiler.compileAll() != 0)
+            System.exit(1);
+    }
+
+    // Serves compile requests until a client sends SHUTDOWN
+    private static void daemon(String address) {
+        CompilerDaemon compilerDaemon = new CompilerDaemon(address);
+
+        try {
+            compilerDaemon.serve();
+        }
+        catch(NumberFormatException ex) {
+            System.err.println("Error: --daemon expects a port or unix:<path>, not " + address);
+            System.exit(1);
+        }
+        catch(IOException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(1);
         }
     }
 }
@@ -1,11 +1,16 @@
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 
 public class MethodInfo extends Info {
 
     private String returnType;
     private List<FieldInfo> arguments;
-    private List<FieldInfo> variables;
+    private List<FieldInfo> variables; // The arguments come first, followed by the local variables
+    private HashMap<String, FieldInfo> argumentMap; // The arguments by name
+    private HashMap<String, FieldInfo> variableMap; // The variables by name
+    private HashSet<FieldInfo> duplicates; // The variables named like one before them, reported by SymbolTable.checkMethods
     private ClassInfo owner; // The class that owns the method
 
     // Constructor
@@ -15,6 +20,9 @@ public class MethodInfo extends Info {
         this.returnType = returnType;
         arguments = new ArrayList<FieldInfo>();
         variables = new ArrayList<FieldInfo>();
+        argumentMap = new HashMap<String, FieldInfo>();
+        variableMap = new HashMap<String, FieldInfo>();
+        duplicates = new HashSet<FieldInfo>();
         //statements = new ArrayList<StatementInfo>();
         this.owner = owner;
     }
@@ -33,54 +41,35 @@ public class MethodInfo extends Info {
     }
 
     // Returns a local certain variable
-    public FieldInfo getCertainVariable(String variableName) {
-        FieldInfo var = null;
-
-        if(variableNameExists(variableName)) {
-            for(int i = 0; i < variables.size(); i++) {
-                if(variables.get(i).getName().equals(variableName)){
-                    var = variables.get(i);
-                    break;
-                }
-            }
-        }
-
-        return var;
-    }
+    public FieldInfo getCertainVariable(String variableName) { return variableMap.get(variableName); }
 
     // Adds a new variable(field) to the list of variables
     public void addVariable(String type, String name, int offset, boolean initialized) {
-        variables.add(new FieldInfo(type, name, offset, initialized));
+        FieldInfo variable = new FieldInfo(type, name, offset, initialized);
+
+        variables.add(variable);
+        if(variableMap.putIfAbsent(name, variable) != null)
+            duplicates.add(variable);
     }
 
     // Adds a new variable to the list of arguments
     public void addParameter(String type, String name,  int offset, boolean initialized) {
-        arguments.add(new FieldInfo(type, name, offset, initialized)); }
+        FieldInfo argument = new FieldInfo(type, name, offset, initialized);
 
-    // Checks to see if a variable's named has already been used
-    public boolean variableNameExists(String variableName) {
-        boolean nameExists = false;
-        for(int i = 0; i < variables.size(); i++) {
-            if(variables.get(i).getName().equals(variableName)) {
-                nameExists = true;
-                break;
-            }
-        }
-        return nameExists;
+        arguments.add(argument);
+        argumentMap.putIfAbsent(name, argument);
     }
 
-    public boolean checkVariableType(String typeToCheck, String varName) {
-        boolean flag = false;
+    // Checks whether the name of the variable was used by a variable before it
+    public boolean isDuplicate(FieldInfo variable) { return duplicates.contains(variable); }
 
-        for(int i = 0; i < variables.size(); i++) {
-            if(variables.get(i).getName().equals(varName)) {
-                if(variables.get(i).getType().equals(typeToCheck))
-                    flag = true;
-                break;
-            }
-        }
+    // Checks to see if a variable's named has already been used
+    public boolean variableNameExists(String variableName) { return variableMap.containsKey(variableName); }
+
+    public boolean checkVariableType(String typeToCheck, String varName) {
+        FieldInfo variable = variableMap.get(varName);
 
-        return flag;
+        return variable != null && variable.getType().equals(typeToCheck);
     }
 
     public void printMethod(String methodName) {
@@ -101,126 +90,36 @@ public class MethodInfo extends Info {
         }
     }
 
-    public boolean fieldInSuper(String fieldName) {
-
-        boolean found = false;
-        ClassInfo parentPtr = this.getOwner().getParent();
-
-
-        while(parentPtr != null) {
-
-            if(parentPtr.fieldNameExists(fieldName)) {
-                found = true;
-                break;
-            }
-            else {
-                parentPtr = parentPtr.getParent();
-                continue;
-            }
-        }
-
-        return found;
-    }
+    public boolean fieldInSuper(String fieldName) { return getSuper(fieldName) != null; }
 
     public boolean methodInSuper(String methodName, ClassInfo ptr) {
-
-        boolean flag = false;
         ClassInfo parentPtr = ptr.getParent();
 
-        while(parentPtr != null) {
-
-            if(parentPtr.getMethods().contains(methodName)) {
-                flag = true;
-                break;
-            }
-            else {
-                parentPtr = parentPtr.getParent();
-                continue;
-            }
-        }
-
-        return flag;
+        return parentPtr != null && parentPtr.getVisibleMethod(methodName) != null;
     }
 
+    // The nearest superclass of the owner that declares the method
     public ClassInfo getSuperMethod(String methodName) {
-
         ClassInfo parentPtr = this.getOwner().getParent();
-        boolean found = false;
-
-        while(parentPtr != null) {
+        MethodInfo superMethod;
 
-            if(parentPtr.getMethods().contains(methodName)) {
-                found = true;
-                break;
-            }
-            else {
-                parentPtr = parentPtr.getParent();
-                continue;
-            }
-        }
+        if(parentPtr == null)
+            return null;
 
-        return parentPtr;
+        superMethod = parentPtr.getVisibleMethod(methodName);
+        return superMethod != null ? superMethod.getOwner() : null;
     }
 
+    // The nearest superclass of the owner that declares the field
     public ClassInfo getSuper(String fieldName) {
-
-        ClassInfo superPtr = null;
-
-        boolean found = false;
         ClassInfo parentPtr = this.getOwner().getParent();
 
-        while(parentPtr != null) {
-
-            if(parentPtr.fieldNameExists(fieldName)) {
-                found = true;
-                superPtr = parentPtr;
-                break;
-            }
-            else {
-                parentPtr = parentPtr.getParent();
-                continue;
-            }
-        }
-
-        return superPtr;
+        if(parentPtr == null)
+            return null;
+        return parentPtr.getFieldOwner(fieldName);
     }
 
-    public boolean checkPolymorphism(String identifierType, ClassInfo idClass) {
-
-        System.out.println("Checking " + identifierType);
-
-        boolean flag = false;
-        ClassInfo parentPtr = idClass.getParent();
-
-        while(parentPtr != null) {
-            System.out.println("Current class name: " + parentPtr.getName());
-            if(parentPtr.getName().equals(identifierType)) {
-                flag = true;
-                break;
-            }
-            else {
-                parentPtr = parentPtr.getParent();
-                continue;
-            }
-        }
-        return flag;
-    }
-
-    public boolean isArgument(FieldInfo var) {
-
-        String varName;
-        FieldInfo currentArg;
-
-        varName = var.getName();
-
-        for(int i = 0; i < arguments.size(); i++) {
-            currentArg = arguments.get(i);
-            if(currentArg.getName().equals(varName))
-                return true;
-        }
-
-        return false;
-    }
+    public boolean isArgument(FieldInfo var) { return argumentMap.containsKey(var.getName()); }
 
     public void setRegisters() {
         for(int i = 0; i < variables.size(); i++)
@@ -0,0 +1,79 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Places the fields of a class in its objects. Every object starts with the
+// pointer to its V-Table (8 bytes), followed by the fields of its superclasses
+// and then by its own, each one aligned to its size so that the i32 and
+// pointer loads of the generated code are never misaligned. The offsets of
+// the fields don't include the V-Table pointer.
+//
+// Every class also gets a struct type, %class.<name>, whose members are the
+// V-Table pointer and the fields in the order of their offsets. LLVM lays
+// out such a struct exactly like we do, so the generated code can reach a
+// field with a typed getelementptr instead of a byte offset and a bitcast.
+//
+// When the fields are packed, the fields of every class are placed from the
+// largest to the smallest, which leaves no padding between them. The fields
+// inherited from a superclass keep their offsets either way, so a method of
+// the superclass can still be called on an object of the subclass.
+public class ObjectLayout {
+
+    public static final int OBJECT_ALIGNMENT = 8; // Objects are aligned like their V-Table pointer
+
+    private boolean packFields;
+
+    public ObjectLayout(boolean packFields) {
+        this.packFields = packFields;
+    }
+
+    // The number of bytes (and the alignment) of a field of the given type
+    public static int sizeOf(String type) {
+        switch (type) {
+            case "int":
+                return 4;
+            case "boolean":
+                return 1;
+            default:
+                return 8; // Arrays and objects are pointers
+        }
+    }
+
+    // Rounds the offset up to a multiple of the alignment
+    public static int align(int offset, int alignment) {
+        return (offset + alignment - 1) / alignment * alignment;
+    }
+
+    public static String typeName(ClassInfo currentClass) { return "%class." + currentClass.getName(); }
+
+    // Sets the offsets of the fields of the class. Its superclass has to be laid out first.
+    public void layOut(ClassInfo currentClass) {
+        List<FieldInfo> fields = new ArrayList<FieldInfo>(currentClass.getFields());
+        List<FieldInfo> objectFields = currentClass.getObjectFields();
+        int offset = 0;
+        int size;
+
+        objectFields.clear();
+        if(currentClass.getParent() != null) {
+            offset = currentClass.getParent().getFieldOffset();
+            objectFields.addAll(currentClass.getParent().getObjectFields());
+        }
+
+        // Stable, so fields of the same size stay in the order they were declared
+        if(packFields)
+            fields.sort((a, b) -> sizeOf(b.getType()) - sizeOf(a.getType()));
+
+        for(int i = 0; i < fields.size(); i++) {
+            size = sizeOf(fields.get(i).getType());
+            offset = align(offset, size);
+
+            fields.get(i).setOffset(offset);
+            offset += size;
+
+            // The V-Table pointer is the first member of the struct
+            objectFields.add(fields.get(i));
+            fields.get(i).setFieldIndex(objectFields.size());
+        }
+
+        currentClass.setFieldOffset(offset);
+    }
+}
@@ -0,0 +1,18 @@
+// The steps of the pipeline, in the order in which Compilation runs them
+public enum Phase {
+    PARSE,
+    CLASS_CHECKER,
+    HIERARCHY,
+    CHECK_DATA_TYPES,
+    CHECK_METHODS,
+    STATEMENT_CHECKER,
+    CONSTANT_FOLDING,
+    BOUNDS_CHECKS,
+    SET_OFFSETS,
+    SET_INHERITED_METHODS,
+    REACHABILITY,
+    VTABLES,
+    CLASS_HIERARCHY_ANALYSIS,
+    INLINING,
+    TRANSLATOR
+}
@@ -0,0 +1,8 @@
+// Notified by Compilation around every phase of the pipeline. When a phase
+// fails, phaseFinished is not called for it and no later phase is started.
+public interface PhaseListener {
+
+    void phaseStarted(Phase phase);
+
+    void phaseFinished(Phase phase);
+}
@@ -0,0 +1,418 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Measures every phase of the pipeline separately, in the way of an average
+// time JMH benchmark: a number of warmup iterations is thrown away, then
+// every measurement iteration compiles the input over and over for a fixed
+// amount of time and records the mean time per compilation of each phase.
+// The inputs are compiled from memory and the IR is discarded, so neither
+// the disk nor the output affects the numbers.
+//
+// Usage: java PipelineBenchmark [--warmup n] [--iterations n] [--time ms]
+//                               [--scale n,n,...] [--generate n,n,...] [--seed n]
+//                               [--json file] inputs...
+//
+// Every input can be a source file or a directory (its .java and .txt files,
+// except the *-error ones). With --scale, every input is also measured with
+// its classes copied n times. With --generate, programs of n classes are
+// written by the ProgramGenerator and measured as well. With --json the
+// results are written in the JSON format of JMH so they can be compared
+// between runs.
+public class PipelineBenchmark implements PhaseListener {
+
+    private static final double Z_999 = 3.291; // Normal quantile of the 99.9% confidence interval, as JMH reports it
+
+    private int warmupIterations;
+    private int measurementIterations;
+    private long iterationMillis;
+    private List<BenchmarkInput> inputs;
+
+    private Compilation compilation;
+    private long[] phaseNanos; // Time spent in every phase during the current iteration
+    private long phaseStart;
+    private Phase currentPhase;
+    private volatile long sink; // Keeps the JIT from dropping the compilations
+
+    public PipelineBenchmark(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationMillis = iterationMillis;
+        inputs = new ArrayList<BenchmarkInput>();
+
+        compilation = new Compilation(false);
+        compilation.addListener(this);
+        phaseNanos = new long[Phase.values().length];
+    }
+
+    public List<BenchmarkInput> getInputs() { return inputs; }
+
+    public void phaseStarted(Phase phase) {
+        currentPhase = phase;
+        phaseStart = System.nanoTime();
+    }
+
+    public void phaseFinished(Phase phase) {
+        phaseNanos[phase.ordinal()] += System.nanoTime() - phaseStart;
+    }
+
+    public void addInput(String input, int[] scales) throws IOException {
+        File file = new File(input);
+
+        if(file.isDirectory()) {
+            File[] entries = file.listFiles();
+
+            if(entries == null)
+                return;
+
+            Arrays.sort(entries);
+            for(int i = 0; i < entries.length; i++) {
+                String name = entries[i].getName();
+
+                if(entries[i].isFile() && (name.endsWith(".java") || name.endsWith(".txt")) && !name.contains("-error"))
+                    addInput(entries[i].getPath(), scales);
+            }
+            return;
+        }
+
+        String source = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+        for(int i = 0; i < scales.length; i++)
+            inputs.add(new BenchmarkInput(file.getName(), scales[i], scale(source, scales[i])));
+    }
+
+    public void addGenerated(int classes, long seed) throws IOException {
+        ProgramGenerator generator = new ProgramGenerator(seed).setClasses(classes);
+
+        inputs.add(new BenchmarkInput("generated-" + classes + "-classes", 1, generator.generate()));
+    }
+
+    // Copies every class but the main one (the first) factor - 1 times. The
+    // classes of the k-th copy are renamed to <name>_k, so every copy only
+    // refers to itself and the program stays valid.
+    public static String scale(String source, int factor) {
+        int mainEnd = endOfClass(source, source.indexOf("class"));
+        String rest = source.substring(mainEnd);
+        Matcher declarations = Pattern.compile("\\bclass\\s+([A-Za-z_$][A-Za-z0-9_$]*)").matcher(rest);
+        Set<String> classNames = new LinkedHashSet<String>();
+        StringBuilder scaled = new StringBuilder(source);
+
+        while(declarations.find())
+            classNames.add(Pattern.quote(declarations.group(1)));
+
+        if(factor <= 1 || classNames.isEmpty())
+            return source;
+
+        Pattern references = Pattern.compile("(?<![A-Za-z0-9_$])(" + String.join("|", classNames) + ")(?![A-Za-z0-9_$])");
+        for(int k = 1; k < factor; k++)
+            scaled.append(references.matcher(rest).replaceAll("$1_" + k));
+
+        return scaled.toString();
+    }
+
+    // Index right after the closing brace of the class that starts at start
+    private static int endOfClass(String source, int start) {
+        int depth = 0;
+
+        for(int i = source.indexOf('{', start); i >= 0 && i < source.length(); i++) {
+            if(source.charAt(i) == '{')
+                depth++;
+            else if(source.charAt(i) == '}' && --depth == 0)
+                return i + 1;
+        }
+
+        return source.length();
+    }
+
+    public void run() {
+        PrintStream stdout = System.out;
+
+        // The checkers print some progress on their own, which would be measured too
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for(int i = 0; i < inputs.size(); i++) {
+                BenchmarkInput input = inputs.get(i);
+
+                System.gc();
+                runIterations(input, warmupIterations);
+                input.setScores(runIterations(input, measurementIterations));
+                stdout.print(report(input));
+            }
+        }
+        finally {
+            System.setOut(stdout);
+        }
+    }
+
+    // Returns the microseconds per compilation of every phase in every iteration
+    private double[][] runIterations(BenchmarkInput input, int iterations) {
+        double[][] scores = new double[Phase.values().length][iterations];
+
+        for(int iteration = 0; iteration < iterations; iteration++) {
+            long deadline = System.nanoTime() + iterationMillis * 1000000L;
+            long operations = 0;
+
+            Arrays.fill(phaseNanos, 0);
+            do {
+                compileOnce(input);
+                operations++;
+            } while(System.nanoTime() < deadline);
+
+            for(int phase = 0; phase < phaseNanos.length; phase++)
+                scores[phase][iteration] = phaseNanos[phase] / 1000.0 / operations;
+        }
+
+        return scores;
+    }
+
+    private void compileOnce(BenchmarkInput input) {
+        currentPhase = null;
+        try {
+            sink += compilation.compile(new ByteArrayInputStream(input.getSource()), OutputStream.nullOutputStream());
+            return;
+        }
+        catch(ParseException ex) {
+            input.setError(ex.getMessage());
+        }
+        catch(CompileError ex) {
+            input.setError(ex.getMessage());
+        }
+        catch(Exception ex) {
+            input.setError(ex.toString());
+        }
+
+        // Only the phases before the one that failed are reported
+        input.setFailedPhase(currentPhase != null ? currentPhase : Phase.PARSE);
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+
+        for(int i = 0; i < values.length; i++)
+            sum += values[i];
+        return sum / values.length;
+    }
+
+    private static double error(double[] values) {
+        double mean = mean(values);
+        double squares = 0;
+
+        if(values.length < 2)
+            return Double.NaN;
+
+        for(int i = 0; i < values.length; i++)
+            squares += (values[i] - mean) * (values[i] - mean);
+        return Z_999 * Math.sqrt(squares / (values.length - 1)) / Math.sqrt(values.length);
+    }
+
+    private String report(BenchmarkInput input) {
+        StringBuilder report = new StringBuilder();
+        double[][] scores = input.getScores();
+        double total = 0;
+
+        report.append(String.format(Locale.ROOT, "%s (x%d, %d bytes)%n", input.getName(), input.getScale(), input.getSource().length));
+        for(Phase phase : input.getCompletedPhases()) {
+            double[] values = scores[phase.ordinal()];
+
+            total += mean(values);
+            report.append(String.format(Locale.ROOT, "  %-22s %12.3f +- %9.3f us/op%n", phase, mean(values), error(values)));
+        }
+
+        if(input.getFailedPhase() != null)
+            report.append("  failed in " + input.getFailedPhase() + ": " + input.getError() + System.lineSeparator());
+        else
+            report.append(String.format(Locale.ROOT, "  %-22s %12.3f us/op%n", "TOTAL", total));
+
+        return report.toString();
+    }
+
+    public void writeJson(String fileName) throws IOException {
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(fileName), "UTF-8"));
+        boolean first = true;
+
+        try {
+            out.println("[");
+            for(int i = 0; i < inputs.size(); i++) {
+                BenchmarkInput input = inputs.get(i);
+
+                for(Phase phase : input.getCompletedPhases()) {
+                    if(!first)
+                        out.println(",");
+                    first = false;
+                    writeJsonEntry(out, input, phase);
+                }
+            }
+            out.println();
+            out.println("]");
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    private void writeJsonEntry(PrintWriter out, BenchmarkInput input, Phase phase) {
+        double[] values = input.getScores()[phase.ordinal()];
+        double score = mean(values);
+        double error = error(values);
+        StringBuilder rawData = new StringBuilder();
+
+        for(int i = 0; i < values.length; i++)
+            rawData.append(i == 0 ? "" : ", ").append(number(values[i]));
+
+        out.println("    {");
+        out.println("        \"benchmark\" : \"PipelineBenchmark." + phase.name().toLowerCase(Locale.ROOT) + "\",");
+        out.println("        \"mode\" : \"avgt\",");
+        out.println("        \"warmupIterations\" : " + warmupIterations + ",");
+        out.println("        \"warmupTime\" : \"" + iterationMillis + " ms\",");
+        out.println("        \"measurementIterations\" : " + measurementIterations + ",");
+        out.println("        \"measurementTime\" : \"" + iterationMillis + " ms\",");
+        out.println("        \"params\" : {");
+        out.println("            \"input\" : " + quote(input.getName()) + ",");
+        out.println("            \"scale\" : \"" + input.getScale() + "\",");
+        out.println("            \"sourceBytes\" : \"" + input.getSource().length + "\"" + (input.getFailedPhase() != null ? "," : ""));
+        if(input.getFailedPhase() != null)
+            out.println("            \"failedPhase\" : \"" + input.getFailedPhase() + "\"");
+        out.println("        },");
+        out.println("        \"primaryMetric\" : {");
+        out.println("            \"score\" : " + number(score) + ",");
+        out.println("            \"scoreError\" : " + number(error) + ",");
+        out.println("            \"scoreConfidence\" : [ " + number(score - error) + ", " + number(score + error) + " ],");
+        out.println("            \"scoreUnit\" : \"us/op\",");
+        out.println("            \"rawData\" : [ [ " + rawData + " ] ]");
+        out.println("        }");
+        out.print("    }");
+    }
+
+    private static String number(double value) {
+        if(Double.isNaN(value) || Double.isInfinite(value))
+            return "\"NaN\"";
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static String quote(String s) {
+        StringBuilder quoted = new StringBuilder("\"");
+
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+
+            if(c == '"' || c == '\\')
+                quoted.append('\\').append(c);
+            else if(c < 0x20)
+                quoted.append(String.format("\\u%04x", (int) c));
+            else
+                quoted.append(c);
+        }
+
+        return quoted.append('"').toString();
+    }
+
+    public static void main(String[] args) {
+        int warmupIterations = 5;
+        int measurementIterations = 10;
+        long iterationMillis = 500;
+        int[] scales = { 1 };
+        int[] generated = {};
+        long seed = 1;
+        String json = null;
+        List<String> inputNames = new ArrayList<String>();
+        PipelineBenchmark benchmark;
+
+        try {
+            for(int i = 0; i < args.length; i++) {
+                if(args[i].equals("--warmup"))
+                    warmupIterations = Integer.parseInt(args[++i]);
+                else if(args[i].equals("--iterations"))
+                    measurementIterations = Integer.parseInt(args[++i]);
+                else if(args[i].equals("--time"))
+                    iterationMillis = Long.parseLong(args[++i]);
+                else if(args[i].equals("--scale"))
+                    scales = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                else if(args[i].equals("--generate"))
+                    generated = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                else if(args[i].equals("--seed"))
+                    seed = Long.parseLong(args[++i]);
+                else if(args[i].equals("--json"))
+                    json = args[++i];
+                else
+                    inputNames.add(args[i]);
+            }
+        }
+        catch(NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+            inputNames.clear();
+            generated = new int[0];
+        }
+
+        if((inputNames.isEmpty() && generated.length == 0) || measurementIterations < 1) {
+            System.err.println("Usage: java PipelineBenchmark [--warmup <n>] [--iterations <n>] [--time <ms>] [--scale <n,n,...>] [--generate <n,n,...>] [--seed <n>] [--json <file>] <inputFile | directory>...");
+            System.exit(1);
+        }
+
+        benchmark = new PipelineBenchmark(warmupIterations, measurementIterations, iterationMillis);
+        try {
+            for(int i = 0; i < inputNames.size(); i++)
+                benchmark.addInput(inputNames.get(i), scales);
+            for(int i = 0; i < generated.length; i++)
+                benchmark.addGenerated(generated[i], seed);
+
+            benchmark.run();
+            if(json != null)
+                benchmark.writeJson(json);
+        }
+        catch(IOException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(1);
+        }
+    }
+}
+
+class BenchmarkInput {
+    private String name;
+    private int scale;
+    private byte[] source;
+    private double[][] scores; // Microseconds per compilation, for every phase and iteration
+    private Phase failedPhase;
+    private String error;
+
+    public BenchmarkInput(String name, int scale, String source) throws UnsupportedEncodingException {
+        this.name = name;
+        this.scale = scale;
+        this.source = source.getBytes("UTF-8");
+    }
+
+    public String getName() { return name; }
+
+    public int getScale() { return scale; }
+
+    public byte[] getSource() { return source; }
+
+    public double[][] getScores() { return scores; }
+
+    public void setScores(double[][] scores) { this.scores = scores; }
+
+    public Phase getFailedPhase() { return failedPhase; }
+
+    public void setFailedPhase(Phase failedPhase) { this.failedPhase = failedPhase; }
+
+    public String getError() { return error; }
+
+    public void setError(String error) { this.error = error; }
+
+    // The phases that ran to the end on every compilation
+    public List<Phase> getCompletedPhases() {
+        List<Phase> phases = new ArrayList<Phase>();
+
+        for(Phase phase : Phase.values()) {
+            if(failedPhase != null && phase.ordinal() >= failedPhase.ordinal())
+                break;
+            phases.add(phase);
+        }
+
+        return phases;
+    }
+}
@@ -0,0 +1,459 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Writes random MiniJava programs of any size, for the benchmark and for
+// finding the parts of the compiler that don't scale. The shape of the
+// program is tunable: the number of classes, how deep the inheritance goes,
+// the methods of every class, the locals and statements of every method and
+// how deeply the expressions nest. The same seed always gives the same
+// program.
+//
+// The programs are valid and also terminate when they are run: a method
+// only calls the earlier methods of its own class and the methods of earlier
+// classes, overriding methods don't call anything and every loop counts up
+// to a constant. With invalid set, exactly one semantic error is added to a
+// random method.
+//
+// Usage: java ProgramGenerator [--classes n] [--depth n] [--methods n]
+//                              [--fields n] [--locals n] [--statements n]
+//                              [--nesting n] [--seed n] [--invalid]
+public class ProgramGenerator {
+
+    private int classes;
+    private int depth; // Longest chain of superclasses
+    private int methods; // New methods declared by every class
+    private int fields; // Int fields declared by every class
+    private int locals; // Int locals declared by every method
+    private int statements; // Statements of every method body
+    private int nesting; // How deeply the expressions nest
+    private boolean invalid;
+    private Random random;
+
+    private StringBuilder out;
+    private List<GeneratedClass> generated;
+
+    public ProgramGenerator(long seed) {
+        classes = 10;
+        depth = 3;
+        methods = 4;
+        fields = 2;
+        locals = 4;
+        statements = 8;
+        nesting = 3;
+        invalid = false;
+        random = new Random(seed);
+    }
+
+    public ProgramGenerator setClasses(int classes) { this.classes = classes; return this; }
+
+    public ProgramGenerator setDepth(int depth) { this.depth = depth; return this; }
+
+    public ProgramGenerator setMethods(int methods) { this.methods = methods; return this; }
+
+    public ProgramGenerator setFields(int fields) { this.fields = fields; return this; }
+
+    public ProgramGenerator setLocals(int locals) { this.locals = locals; return this; }
+
+    public ProgramGenerator setStatements(int statements) { this.statements = statements; return this; }
+
+    public ProgramGenerator setNesting(int nesting) { this.nesting = nesting; return this; }
+
+    public ProgramGenerator setInvalid(boolean invalid) { this.invalid = invalid; return this; }
+
+    public String generate() {
+        int invalidClass = random.nextInt(classes);
+
+        out = new StringBuilder();
+        generated = new ArrayList<GeneratedClass>();
+
+        for(int i = 0; i < classes; i++)
+            generated.add(declareClass(i));
+
+        writeMainClass();
+        for(int i = 0; i < classes; i++)
+            writeClass(generated.get(i), invalid && i == invalidClass);
+
+        return out.toString();
+    }
+
+    // Picks the superclass and the methods of the i-th class
+    private GeneratedClass declareClass(int i) {
+        GeneratedClass parent = null;
+        GeneratedClass declared;
+
+        // Most classes extend an earlier one that is not too deep already
+        if(i > 0 && random.nextInt(4) != 0) {
+            GeneratedClass candidate = generated.get(random.nextInt(i));
+
+            if(candidate.getDepth() < depth)
+                parent = candidate;
+        }
+
+        declared = new GeneratedClass("C" + i, i, parent);
+        for(int k = 0; k < methods; k++)
+            declared.getMethods().add(new GeneratedMethod("m" + i + "_" + k, random.nextInt(4), false));
+
+        // Overriding a method of a superclass, so that the V-Tables differ
+        if(parent != null) {
+            List<GeneratedMethod> inherited = parent.getAllMethods();
+            GeneratedMethod overridden = inherited.get(random.nextInt(inherited.size()));
+
+            declared.getMethods().add(new GeneratedMethod(overridden.getName(), overridden.getParameters(), true));
+        }
+
+        return declared;
+    }
+
+    private void writeMainClass() {
+        out.append("class Main {\n");
+        out.append("    public static void main(String[] a) {\n");
+
+        for(int i = 0; i < classes; i++)
+            out.append("        C" + i + " o" + i + ";\n");
+
+        for(int i = 0; i < classes; i++) {
+            GeneratedMethod first = generated.get(i).getMethods().get(0);
+
+            out.append("        o" + i + " = new C" + i + "();\n");
+            out.append("        System.out.println(o" + i + "." + first.getName() + "(" + constantArguments(first.getParameters()) + "));\n");
+        }
+
+        out.append("    }\n");
+        out.append("}\n");
+    }
+
+    private String constantArguments(int count) {
+        StringBuilder arguments = new StringBuilder();
+
+        for(int i = 0; i < count; i++)
+            arguments.append(i == 0 ? "" : ", ").append(random.nextInt(100));
+        return arguments.toString();
+    }
+
+    private void writeClass(GeneratedClass generatedClass, boolean withError) {
+        int errorMethod = random.nextInt(generatedClass.getMethods().size());
+
+        out.append("\nclass " + generatedClass.getName());
+        if(generatedClass.getParent() != null)
+            out.append(" extends " + generatedClass.getParent().getName());
+        out.append(" {\n");
+
+        for(int k = 0; k < fields; k++)
+            out.append("    int f" + generatedClass.getIndex() + "_" + k + ";\n");
+        out.append("    int[] arr" + generatedClass.getIndex() + ";\n");
+
+        for(int k = 0; k < generatedClass.getMethods().size(); k++)
+            writeMethod(generatedClass, k, withError && k == errorMethod);
+
+        out.append("}\n");
+    }
+
+    private void writeMethod(GeneratedClass owner, int index, boolean withError) {
+        GeneratedMethod method = owner.getMethods().get(index);
+        MethodContext context = new MethodContext(owner, index, method);
+
+        if(!method.isOverride() && owner.getIndex() > 0)
+            context.setCallee(generated.get(random.nextInt(owner.getIndex())));
+
+        out.append("\n    public int " + method.getName() + "(");
+        for(int p = 0; p < method.getParameters(); p++)
+            out.append(p == 0 ? "" : ", ").append("int p" + p);
+        out.append(") {\n");
+
+        for(int l = 0; l < locals; l++)
+            out.append("        int l" + l + ";\n");
+        out.append("        boolean b;\n");
+        out.append("        int i;\n");
+        if(context.getCallee() != null)
+            out.append("        " + context.getCallee().getName() + " obj;\n");
+
+        // Everything that is read later is written first
+        for(int l = 0; l < locals; l++)
+            out.append("        l" + l + " = " + random.nextInt(100) + ";\n");
+        out.append("        b = true;\n");
+        out.append("        i = 0;\n");
+        for(int k = 0; k < fields; k++)
+            out.append("        f" + owner.getIndex() + "_" + k + " = " + random.nextInt(100) + ";\n");
+        out.append("        arr" + owner.getIndex() + " = new int[10];\n");
+        if(context.getCallee() != null)
+            out.append("        obj = new " + context.getCallee().getName() + "();\n");
+
+        if(withError)
+            writeError(context);
+
+        for(int s = 0; s < statements; s++)
+            writeStatement(context);
+
+        out.append("        return " + intExpression(context, nesting) + ";\n");
+        out.append("    }\n");
+    }
+
+    private void writeError(MethodContext context) {
+        switch(random.nextInt(5)) {
+            case 0:
+                out.append("        l0 = true;\n");
+                break;
+            case 1:
+                out.append("        b = l0;\n");
+                break;
+            case 2:
+                out.append("        l0 = undefinedVariable;\n");
+                break;
+            case 3:
+                out.append("        l0 = this.undefinedMethod();\n");
+                break;
+            default:
+                out.append("        if(l0) { l0 = 1; } else { l0 = 2; }\n");
+                break;
+        }
+    }
+
+    private void writeStatement(MethodContext context) {
+        String indent = "        ";
+
+        switch(random.nextInt(6)) {
+            case 0:
+                out.append(indent + "if(" + booleanExpression(context, nesting) + ") {\n");
+                out.append(indent + "    " + intVariable(context) + " = " + intExpression(context, nesting) + ";\n");
+                out.append(indent + "} else {\n");
+                out.append(indent + "    " + intVariable(context) + " = " + intExpression(context, nesting) + ";\n");
+                out.append(indent + "}\n");
+                break;
+            case 1:
+                out.append(indent + "i = 0;\n");
+                out.append(indent + "while(i < 10) {\n");
+                out.append(indent + "    arr" + context.getOwner().getIndex() + "[i] = " + intExpression(context, nesting) + ";\n");
+                out.append(indent + "    i = i + 1;\n");
+                out.append(indent + "}\n");
+                break;
+            case 2:
+                out.append(indent + "System.out.println(" + intExpression(context, nesting) + ");\n");
+                break;
+            case 3:
+                out.append(indent + "b = " + booleanExpression(context, nesting) + ";\n");
+                break;
+            default:
+                out.append(indent + intVariable(context) + " = " + intExpression(context, nesting) + ";\n");
+                break;
+        }
+    }
+
+    // A local, a parameter or a field of the class
+    private String intVariable(MethodContext context) {
+        int choice = random.nextInt(locals + context.getMethod().getParameters() + fields);
+
+        if(choice < locals)
+            return "l" + choice;
+        choice -= locals;
+
+        if(choice < context.getMethod().getParameters())
+            return "p" + choice;
+        choice -= context.getMethod().getParameters();
+
+        return "f" + context.getOwner().getIndex() + "_" + choice;
+    }
+
+    private String intExpression(MethodContext context, int level) {
+        int choice;
+
+        // Every result is a primary expression, so it can be an operand of anything
+        if(level == 0)
+            return random.nextInt(3) == 0 ? Integer.toString(random.nextInt(100)) : intVariable(context);
+
+        choice = random.nextInt(8);
+        if(choice == 0 || choice == 1)
+            return "(" + intExpression(context, level - 1) + " + " + intExpression(context, level - 1) + ")";
+        else if(choice == 2)
+            return "(" + intExpression(context, level - 1) + " - " + intExpression(context, level - 1) + ")";
+        else if(choice == 3)
+            return "(" + intExpression(context, level - 1) + " * " + intExpression(context, level - 1) + ")";
+        else if(choice == 4)
+            return "(arr" + context.getOwner().getIndex() + "[" + random.nextInt(10) + "])";
+        else if(choice == 5)
+            return "(arr" + context.getOwner().getIndex() + ".length)";
+        else if(choice == 6 && context.hasCallTarget())
+            return "(" + call(context, level - 1) + ")";
+        else
+            return intExpression(context, 0);
+    }
+
+    private String booleanExpression(MethodContext context, int level) {
+        int choice;
+
+        if(level == 0)
+            return random.nextBoolean() ? "b" : (random.nextBoolean() ? "true" : "false");
+
+        choice = random.nextInt(4);
+        if(choice == 0)
+            return "(" + booleanExpression(context, level - 1) + " && " + booleanExpression(context, level - 1) + ")";
+        else if(choice == 1)
+            return "!" + booleanExpression(context, level - 1);
+        else
+            return "(" + intExpression(context, level - 1) + " < " + intExpression(context, level - 1) + ")";
+    }
+
+    // A call of an earlier method of this class or of a method of an earlier class
+    private String call(MethodContext context, int level) {
+        GeneratedMethod target;
+        String receiver;
+        StringBuilder arguments = new StringBuilder();
+
+        if(context.getIndex() > 0 && (context.getCallee() == null || random.nextBoolean())) {
+            target = context.getOwner().getMethods().get(random.nextInt(context.getIndex()));
+            receiver = "this";
+        }
+        else {
+            // Only methods the class declares itself: the StatementChecker looks up
+            // inherited ones through the superclasses of the caller
+            List<GeneratedMethod> targets = context.getCallee().getMethods();
+
+            target = targets.get(random.nextInt(targets.size()));
+            receiver = "obj";
+        }
+
+        for(int p = 0; p < target.getParameters(); p++)
+            arguments.append(p == 0 ? "" : ", ").append(intExpression(context, Math.max(0, level - 1)));
+
+        return receiver + "." + target.getName() + "(" + arguments + ")";
+    }
+
+    public static void main(String[] args) {
+        ProgramGenerator generator;
+        long seed = 1;
+        int[] values = { 10, 3, 4, 2, 4, 8, 3 };
+        String[] names = { "--classes", "--depth", "--methods", "--fields", "--locals", "--statements", "--nesting" };
+        boolean invalid = false;
+
+        try {
+            for(int i = 0; i < args.length; i++) {
+                boolean known = false;
+
+                if(args[i].equals("--seed")) {
+                    seed = Long.parseLong(args[++i]);
+                    continue;
+                }
+                if(args[i].equals("--invalid")) {
+                    invalid = true;
+                    continue;
+                }
+
+                for(int k = 0; k < names.length && !known; k++) {
+                    if(args[i].equals(names[k])) {
+                        values[k] = Integer.parseInt(args[++i]);
+                        known = true;
+                    }
+                }
+
+                if(!known)
+                    throw new IllegalArgumentException(args[i]);
+            }
+        }
+        catch(IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+            System.err.println("Usage: java ProgramGenerator [--classes <n>] [--depth <n>] [--methods <n>] [--fields <n>] [--locals <n>] [--statements <n>] [--nesting <n>] [--seed <n>] [--invalid]");
+            System.exit(1);
+        }
+
+        if(values[0] < 1 || values[2] < 1 || values[4] < 1) {
+            System.err.println("Error: every program needs at least one class, one method per class and one local per method");
+            System.exit(1);
+        }
+
+        generator = new ProgramGenerator(seed)
+                .setClasses(values[0])
+                .setDepth(values[1])
+                .setMethods(values[2])
+                .setFields(values[3])
+                .setLocals(values[4])
+                .setStatements(values[5])
+                .setNesting(values[6])
+                .setInvalid(invalid);
+
+        System.out.print(generator.generate());
+    }
+}
+
+class GeneratedClass {
+    private String name;
+    private int index;
+    private GeneratedClass parent;
+    private int depth;
+    private List<GeneratedMethod> methods;
+
+    public GeneratedClass(String name, int index, GeneratedClass parent) {
+        this.name = name;
+        this.index = index;
+        this.parent = parent;
+        depth = (parent == null) ? 0 : parent.getDepth() + 1;
+        methods = new ArrayList<GeneratedMethod>();
+    }
+
+    public String getName() { return name; }
+
+    public int getIndex() { return index; }
+
+    public GeneratedClass getParent() { return parent; }
+
+    public int getDepth() { return depth; }
+
+    public List<GeneratedMethod> getMethods() { return methods; }
+
+    // The methods that can be called on an object of this class
+    public List<GeneratedMethod> getAllMethods() {
+        List<GeneratedMethod> all = new ArrayList<GeneratedMethod>();
+
+        for(GeneratedClass current = this; current != null; current = current.getParent()) {
+            for(int i = 0; i < current.getMethods().size(); i++) {
+                if(!current.getMethods().get(i).isOverride())
+                    all.add(current.getMethods().get(i));
+            }
+        }
+
+        return all;
+    }
+}
+
+class GeneratedMethod {
+    private String name;
+    private int parameters;
+    private boolean override; // Overriding methods never call anything
+
+    public GeneratedMethod(String name, int parameters, boolean override) {
+        this.name = name;
+        this.parameters = parameters;
+        this.override = override;
+    }
+
+    public String getName() { return name; }
+
+    public int getParameters() { return parameters; }
+
+    public boolean isOverride() { return override; }
+}
+
+class MethodContext {
+    private GeneratedClass owner;
+    private int index; // Index of the method in its class
+    private GeneratedMethod method;
+    private GeneratedClass callee; // An earlier class whose methods can be called, if any
+
+    public MethodContext(GeneratedClass owner, int index, GeneratedMethod method) {
+        this.owner = owner;
+        this.index = index;
+        this.method = method;
+        callee = null;
+    }
+
+    public GeneratedClass getOwner() { return owner; }
+
+    public int getIndex() { return index; }
+
+    public GeneratedMethod getMethod() { return method; }
+
+    public GeneratedClass getCallee() { return callee; }
+
+    public void setCallee(GeneratedClass callee) { this.callee = callee; }
+
+    public boolean hasCallTarget() { return !method.isOverride() && (index > 0 || callee != null); }
+}
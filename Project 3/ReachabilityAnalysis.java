@@ -0,0 +1,192 @@
+import syntaxtree.*;
+import visitor.DepthFirstVisitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Finds the classes and the methods the program can reach from main, by rapid
+// type analysis. A class is instantiated when a method that can be reached has
+// "new C()" in it. A call of V-Table slot i on an object of class C reaches
+// the method in slot i of every instantiated class that is C or a subclass of
+// it, since the object can't belong to any other class. The methods a call
+// reaches are then searched for more calls and allocations, until nothing new
+// is found; a class that is instantiated later makes the calls that were
+// already found reach its methods as well.
+//
+// The methods that can't be reached are removed from the AST, so nothing
+// after this translates them, and their V-Table slots are left null. The
+// classes that are never instantiated get no V-Table.
+public class ReachabilityAnalysis extends DepthFirstVisitor {
+
+    private SymbolTable symbolTable;
+    private HashMap<MethodInfo, Node> bodies; // The MethodDeclaration of every method, and the MainClass for main
+    private List<ClassInfo> declaringClasses; // The classes in the order of their method lists
+    private List<NodeListOptional> methodLists; // The MethodDeclarations of every class
+    private Set<ClassInfo> instantiated;
+    private Set<MethodInfo> reachable;
+    private Set<String> callSites; // The calls that were found, as "class.slot"
+    private List<ClassInfo> callClasses; // The class and the slot of every call that was found
+    private List<Integer> callSlots;
+    private ArrayDeque<MethodInfo> worklist; // The reachable methods that haven't been searched yet
+    private MethodInfo currentMethod;
+    private int removedMethods;
+
+    public ReachabilityAnalysis(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+        bodies = new HashMap<MethodInfo, Node>();
+        declaringClasses = new ArrayList<ClassInfo>();
+        methodLists = new ArrayList<NodeListOptional>();
+        instantiated = new HashSet<ClassInfo>();
+        reachable = new HashSet<MethodInfo>();
+        callSites = new HashSet<String>();
+        callClasses = new ArrayList<ClassInfo>();
+        callSlots = new ArrayList<Integer>();
+        worklist = new ArrayDeque<MethodInfo>();
+        currentMethod = null;
+        removedMethods = 0;
+    }
+
+    public boolean isInstantiated(ClassInfo currentClass) { return instantiated.contains(currentClass); }
+
+    public boolean isReachable(MethodInfo method) { return reachable.contains(method); }
+
+    // Whether anything of the class is left in the program: its objects or the code of its methods
+    public boolean isLive(ClassInfo currentClass) {
+        if(instantiated.contains(currentClass))
+            return true;
+
+        for(MethodInfo method : currentClass.getMethodMap().values()) {
+            if(reachable.contains(method))
+                return true;
+        }
+
+        return false;
+    }
+
+    public int getRemovedMethods() { return removedMethods; }
+
+    // Finds what main reaches and removes the methods it doesn't from the AST
+    public void analyse(Goal root) {
+        ClassInfo mainClass = symbolTable.getClass(symbolTable.getClasses().get(0));
+        MethodInfo method;
+
+        findBodies(root);
+        bodies.put(mainClass.getClassMethod("main"), root.f0);
+        reach(mainClass.getClassMethod("main"));
+
+        while(!worklist.isEmpty()) {
+            method = worklist.poll();
+            currentMethod = method;
+
+            if(bodies.get(method) instanceof MainClass)
+                ((MainClass) bodies.get(method)).f15.accept(this);
+            else {
+                ((MethodDeclaration) bodies.get(method)).f8.accept(this);
+                ((MethodDeclaration) bodies.get(method)).f10.accept(this);
+            }
+        }
+        currentMethod = null;
+
+        removeUnreachableMethods();
+    }
+
+    private void findBodies(Goal root) {
+        NodeListOptional typeDeclarations = root.f1;
+
+        for(int i = 0; i < typeDeclarations.size(); i++) {
+            Node declaration = ((TypeDeclaration) typeDeclarations.elementAt(i)).f0.choice;
+            ClassInfo declaredClass;
+            NodeListOptional methods;
+
+            if(declaration instanceof ClassDeclaration) {
+                declaredClass = symbolTable.getClass(((ClassDeclaration) declaration).f1.f0.toString());
+                methods = ((ClassDeclaration) declaration).f4;
+            }
+            else {
+                declaredClass = symbolTable.getClass(((ClassExtendsDeclaration) declaration).f1.f0.toString());
+                methods = ((ClassExtendsDeclaration) declaration).f6;
+            }
+
+            declaringClasses.add(declaredClass);
+            methodLists.add(methods);
+            for(int j = 0; j < methods.size(); j++) {
+                MethodDeclaration method = (MethodDeclaration) methods.elementAt(j);
+                bodies.put(declaredClass.getMethodMap().get(method.f2.f0.toString()), method);
+            }
+        }
+    }
+
+    private void removeUnreachableMethods() {
+        for(int i = 0; i < methodLists.size(); i++) {
+            HashMap<String, MethodInfo> methods = declaringClasses.get(i).getMethodMap();
+            int before = methodLists.get(i).size();
+
+            methodLists.get(i).nodes.removeIf(method -> !reachable.contains(methods.get(((MethodDeclaration) method).f2.f0.toString())));
+            removedMethods += before - methodLists.get(i).size();
+        }
+    }
+
+    private void reach(MethodInfo method) {
+        if(method != null && reachable.add(method))
+            worklist.add(method);
+    }
+
+    // A class whose objects are created reaches its methods in every slot that is called
+    private void instantiate(ClassInfo newClass) {
+        if(!instantiated.add(newClass))
+            return;
+
+        for(int i = 0; i < callClasses.size(); i++) {
+            if(symbolTable.isSubtype(newClass.getName(), callClasses.get(i).getName()))
+                reachSlot(newClass, callSlots.get(i));
+        }
+    }
+
+    private void call(ClassInfo objectClass, int slot) {
+        if(!callSites.add(objectClass.getName() + "." + slot))
+            return;
+
+        callClasses.add(objectClass);
+        callSlots.add(slot);
+        for(ClassInfo candidate : instantiated) {
+            if(symbolTable.isSubtype(candidate.getName(), objectClass.getName()))
+                reachSlot(candidate, slot);
+        }
+    }
+
+    private void reachSlot(ClassInfo objectClass, int slot) {
+        if(slot < objectClass.getVTableSlots().size())
+            reach(objectClass.getVTableSlots().get(slot));
+    }
+
+    /**
+     * f0 -> PrimaryExpression()
+     * f1 -> "."
+     * f2 -> Identifier()
+     * f3 -> "("
+     * f4 -> ( ExpressionList() )?
+     * f5 -> ")"
+     */
+    public void visit(MessageSend n) {
+        MethodInfo method = symbolTable.calledMethod(currentMethod, n);
+
+        call(symbolTable.getClass(symbolTable.classOf(currentMethod, n.f0)), method.getOffset() / 8);
+
+        n.f0.accept(this);
+        n.f4.accept(this);
+    }
+
+    /**
+     * f0 -> "new"
+     * f1 -> Identifier()
+     * f2 -> "("
+     * f3 -> ")"
+     */
+    public void visit(AllocationExpression n) {
+        instantiate(symbolTable.getClass(n.f1.f0.toString()));
+    }
+}
@@ -127,9 +127,7 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
 
         String returnType = n.f10.accept(this, currentMethod);
         if (!currentMethod.getReturnType().equals(returnType)) {
-            System.out.print("Line: " + n.f11.beginLine + " Error: Incompatible types: ");
-            System.out.println("cannot convert return type " + returnType + " to " + currentMethod.getReturnType());
-            System.exit(1);
+            throw new CompileError("Line: " + n.f11.beginLine + " Error: Incompatible types: cannot convert return type " + returnType + " to " + currentMethod.getReturnType());
         }
 
         StatementInfo statement = new StatementInfo(currentMethod, null);
@@ -182,22 +180,19 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
             superPtr = ((MethodInfo) argu).getSuper(identifier);
             arrayType = superPtr.getCertainField(identifier).getType();
         } else {
-            System.out.println("Line: " + n.f1.beginLine + " Error: Unknown symbol " + identifier);
-            System.exit(1);
+            throw new CompileError("Line: " + n.f1.beginLine + " Error: Unknown symbol " + identifier);
         }
 
         // Checking if we're working with an array
         if (!(arrayType.equals("int[]")) ^ (arrayType.equals("boolean[]"))) {
-            System.out.println("Line: " + n.f1.beginLine + " Error: Array required but " + arrayType + " found");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f1.beginLine + " Error: Array required but " + arrayType + " found");
         }
 
         n.f1.accept(this, null);
 
         // Checking the type of the expression that refers to the index
         if (!n.f2.accept(this, argu).equals("int")) {
-            System.out.println("Line: " + n.f3.beginLine + " Error: Incompatible types");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f3.beginLine + " Error: Incompatible types");
         }
 
         n.f3.accept(this, null);
@@ -205,11 +200,9 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
 
         // Checking the type of the expression that is to be assigned
         if (arrayType.equals("int[]") && !n.f5.accept(this, argu).equals("int")) {
-            System.out.println("Line: " + n.f6.beginLine + " Error: Incompatible types");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f6.beginLine + " Error: Incompatible types");
         } else if (arrayType.equals("boolean[]") && !n.f5.accept(this, argu).equals("boolean")) {
-            System.out.println("Line: " + n.f6.beginLine + " Error: Incompatible types");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f6.beginLine + " Error: Incompatible types");
         }
 
         // Checking whether the expression that is to be assigned has been initialized
@@ -268,8 +261,7 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
 
         String expression = n.f2.accept(this, argu);
         if (!expression.equals("boolean")) {
-            System.out.println("Line: " + n.f3.beginLine + " Error: Incompatible type in if statement");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f3.beginLine + " Error: Incompatible type in if statement");
         }
 
         n.f3.accept(this, null);
@@ -293,8 +285,7 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
 
         String expressionType = n.f2.accept(this, argu);
         if (!expressionType.equals("boolean")) {
-            System.out.println("Line: " + n.f3.beginLine + " Error: Invalid type in while loop");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f3.beginLine + " Error: Invalid type in while loop");
         }
 
         n.f4.accept(this, argu);
@@ -324,13 +315,11 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
 
                 // Checking the case of polymorphism
                 if (symbolTable.getClass(expressionType) != null) {
-                    if (!((MethodInfo) argu).checkPolymorphism(identifierType, symbolTable.getClass(expressionType))) {
-                        System.out.println("Line: " + n.f3.beginLine + " Error: Incompatible types (" + identifierType + " = " + expressionType + ")");
-                        System.exit(1);
+                    if (!symbolTable.isSubtype(expressionType, identifierType)) {
+                        throw new CompileError("Line: " + n.f3.beginLine + " Error: Incompatible types (" + identifierType + " = " + expressionType + ")");
                     }
                 } else {
-                    System.out.println("Line: " + n.f3.beginLine + " Error: Incompatible types (" + identifierType + " = " + expressionType + ")");
-                    System.exit(1);
+                    throw new CompileError("Line: " + n.f3.beginLine + " Error: Incompatible types (" + identifierType + " = " + expressionType + ")");
                 }
             }
 
@@ -351,13 +340,11 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
 
                 // Checking the case of polymorphism
                 if (symbolTable.getClass(expressionType) != null) {
-                    if (!((MethodInfo) argu).checkPolymorphism(identifierType, symbolTable.getClass(expressionType))) {
-                        System.out.println("Line: " + n.f3.beginLine + " Error: Incompatible types (" + identifierType + " = " + expressionType + ")");
-                        System.exit(1);
+                    if (!symbolTable.isSubtype(expressionType, identifierType)) {
+                        throw new CompileError("Line: " + n.f3.beginLine + " Error: Incompatible types (" + identifierType + " = " + expressionType + ")");
                     }
                 } else {
-                    System.out.println("Line: " + n.f3.beginLine + " Error: Incompatible types (" + identifierType + " = " + expressionType + ")");
-                    System.exit(1);
+                    throw new CompileError("Line: " + n.f3.beginLine + " Error: Incompatible types (" + identifierType + " = " + expressionType + ")");
                 }
             }
 
@@ -377,13 +364,11 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
 
                 // Checking the case of polymorphism
                 if (symbolTable.getClass(expressionType) != null) {
-                    if (!((MethodInfo) argu).checkPolymorphism(identifierType, symbolTable.getClass(expressionType))) {
-                        System.out.println("Line: " + n.f3.beginLine + " Error: Incompatible types (" + identifierType + " = " + expressionType + ")");
-                        System.exit(1);
+                    if (!symbolTable.isSubtype(expressionType, identifierType)) {
+                        throw new CompileError("Line: " + n.f3.beginLine + " Error: Incompatible types (" + identifierType + " = " + expressionType + ")");
                     }
                 } else {
-                    System.out.println("Line: " + n.f3.beginLine + " Error: Incompatible types (" + identifierType + " = " + expressionType + ")");
-                    System.exit(1);
+                    throw new CompileError("Line: " + n.f3.beginLine + " Error: Incompatible types (" + identifierType + " = " + expressionType + ")");
                 }
             }
 
@@ -395,8 +380,7 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
         }
         // If none of the above worked, print an error
         else {
-            System.out.println("Line: " + n.f1.beginLine + " Error: Unknown name " + identifier);
-            System.exit(1);
+            throw new CompileError("Line: " + n.f1.beginLine + " Error: Unknown name " + identifier);
         }
 
         return null;
@@ -461,16 +445,13 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
         else if (((MethodInfo) argu).fieldInSuper(primaryExpression)) {
             primaryExpressionType = ((MethodInfo) argu).getSuper(primaryExpression).getCertainField(primaryExpression).getType();
         } else {
-            System.out.println("Line: " + n.f1.beginLine + " Error: Incompatible primary expression for . operator");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f1.beginLine + " Error: Incompatible primary expression for . operator");
         }
 
 
         // Checking the type of the primary expression
         if (!symbolTable.classExists(primaryExpressionType)) {
-            System.out.print("Line: " + n.f1.beginLine + " Error: " + primaryExpressionType);
-            System.out.println(" cannot be dereferenced");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f1.beginLine + " Error: " + primaryExpressionType + " cannot be dereferenced");
         }
 
         n.f1.accept(this, null);
@@ -478,7 +459,7 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
         identifier = n.f2.accept(this, null);
 
         // Checking whether the method exists
-        if (!symbolTable.getClass(primaryExpressionType).getMethods().contains(identifier)) {
+        if (!symbolTable.getClass(primaryExpressionType).declaresMethod(identifier)) {
             // The method does not belong to the calling class
 
             if (!((MethodInfo) argu).methodInSuper(identifier, symbolTable.getClass(primaryExpressionType))) {
@@ -491,13 +472,11 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
         }
 
         if (!flag && !inParent) {
-            System.out.print("Line: " + n.f3.beginLine + " Error: Method " + identifier + "() does not exist in the calling class ");
+            String message = "Line: " + n.f3.beginLine + " Error: Method " + identifier + "() does not exist in the calling class ";
 
             if (((MethodInfo) argu).getOwner().hasParent())
-                System.out.println("and its superclass(es)");
-            else
-                System.out.println();
-            System.exit(1);
+                message += "and its superclass(es)";
+            throw new CompileError(message);
         }
 
         n.f3.accept(this, null);
@@ -515,8 +494,7 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
 
             // Checking whether the method takes any arguments
             if (calledMethod.getArguments().isEmpty()) {
-                System.out.println("Line: " + n.f5.beginLine + " Error: Method " + identifier + "() does not take arguments");
-                System.exit(1);
+                throw new CompileError("Line: " + n.f5.beginLine + " Error: Method " + identifier + "() does not take arguments");
             }
 
             statement = new StatementInfo(((MethodInfo) argu), null);
@@ -544,25 +522,11 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
 
         if (!((StatementInfo) argu).getFunction().getArguments().get(0).getType().equals(firstType)) {
 
-            if (symbolTable.classExists(firstType)) {
-                ClassInfo currentClass = symbolTable.getClass(firstType);
-                ClassInfo parentClass = currentClass.getParent();
-
-                while (parentClass != null) {
-                    if (parentClass.getName().equals(actualFirstType)) {
-                        flag = true;
-                        break;
-                    } else {
-                        parentClass = parentClass.getParent();
-                        continue;
-                    }
-                }
-            }
+            if (symbolTable.classExists(firstType))
+                flag = symbolTable.isSubtype(firstType, actualFirstType);
 
             if (!flag) {
-                System.out.print("Error: Incompatible types for first argument in method " + ((StatementInfo) argu).getFunction().getName() + "(). ");
-                System.out.println(firstType + " cannot be converted to " + ((StatementInfo) argu).getFunction().getArguments().get(0).getType());
-                System.exit(1);
+                throw new CompileError("Error: Incompatible types for first argument in method " + ((StatementInfo) argu).getFunction().getName() + "(). " + firstType + " cannot be converted to " + ((StatementInfo) argu).getFunction().getArguments().get(0).getType());
             }
         }
 
@@ -584,9 +548,7 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
         if (n.f0.present()) {
             // Checking if the method accepts more than one arguments
             if (((StatementInfo) argu).getFunction().getArguments().size() == 1) {
-                System.out.print("Error: Method " + ((StatementInfo) argu).getFunction().getName() + "() takes one ");
-                System.out.print("argument, but more were provided");
-                System.exit(1);
+                throw new CompileError("Error: Method " + ((StatementInfo) argu).getFunction().getName() + "() takes one argument, but more were provided");
             }
             n.f0.accept(this, argu);
         }
@@ -602,18 +564,13 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
         int argument = ((StatementInfo) argu).getArgument();
 
         if (argument >= ((StatementInfo) argu).getFunction().getArguments().size()) {
-            System.out.print("Line: " + n.f0.beginLine + " Error: Method " + ((StatementInfo) argu).getFunction().getName());
-            System.out.print("() takes " + ((StatementInfo) argu).getOwner().getArguments().size() + " arguments but ");
-            System.out.println(" more were provided");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f0.beginLine + " Error: Method " + ((StatementInfo) argu).getFunction().getName() + "() takes " + ((StatementInfo) argu).getOwner().getArguments().size() + " arguments but  more were provided");
         }
 
         String argumentType = n.f1.accept(this, ((StatementInfo) argu).getOwner());
 
         if (!((StatementInfo) argu).getFunction().getArguments().get(argument).getType().equals(argumentType)) {
-            System.out.print("Line: " + n.f0.beginLine + " Error in method " + ((StatementInfo) argu).getFunction().getName());
-            System.out.println("(): Incompatible types. Cannot convert " + argumentType + " to " + ((StatementInfo) argu).getFunction().getArguments().get(argument).getType());
-            System.exit(1);
+            throw new CompileError("Line: " + n.f0.beginLine + " Error in method " + ((StatementInfo) argu).getFunction().getName() + "(): Incompatible types. Cannot convert " + argumentType + " to " + ((StatementInfo) argu).getFunction().getArguments().get(argument).getType());
         }
 
         ((StatementInfo) argu).increaseArgument();
@@ -646,14 +603,12 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
         } else if (((MethodInfo) argu).fieldInSuper(arrayName)) {
             arrayType = ((MethodInfo) argu).getSuper(arrayName).getCertainField(arrayName).getType();
         } else {
-            System.out.println("Line: " + n.f1.beginLine + " Error: Symbol " + arrayName + " does not exist");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f1.beginLine + " Error: Symbol " + arrayName + " does not exist");
         }
 
         // Checking if we're working with an array
         if (!(arrayType.equals("int[]") ^ arrayType.equals("boolean[]"))) {
-            System.out.println("Line: " + n.f1.beginLine + " Error: Array required, but not found");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f1.beginLine + " Error: Array required, but not found");
         }
 
         n.f2.accept(this, null);
@@ -685,19 +640,16 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
         else if (((MethodInfo) argu).fieldInSuper(arrayName))
             arrayType = ((MethodInfo) argu).getSuper(arrayName).getCertainField(arrayName).getType();
         else {
-            System.out.println("Line: " + n.f1.beginLine + " Error: Symbol " + arrayName + " does not exist");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f1.beginLine + " Error: Symbol " + arrayName + " does not exist");
         }
 
         if (!(arrayType.equals("int[]") ^ arrayType.equals("boolean[]"))) {
-            System.out.println("Line: " + n.f1.beginLine + " Error: Array required, but not found");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f1.beginLine + " Error: Array required, but not found");
         }
 
         String expressionType = n.f2.accept(this, argu);
         if (!expressionType.equals("int")) {
-            System.out.println("Line: " + n.f3.beginLine + " Error: Incompatible types: " + expressionType + " cannot be converted to int");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f3.beginLine + " Error: Incompatible types: " + expressionType + " cannot be converted to int");
         }
 
         String returnType = null;
@@ -728,8 +680,7 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
         String secondType = n.f2.accept(this, argu);
 
         if (!(firstType.equals("boolean") && secondType.equals("boolean"))) {
-            System.out.println("Line: " + n.f1.beginLine + " Error: Bad operand types for && operator (" + firstType + " && " + secondType + ")");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f1.beginLine + " Error: Bad operand types for && operator (" + firstType + " && " + secondType + ")");
         }
 
         // Checking whether the primary expressions have been initialized
@@ -761,8 +712,7 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
         String secondType = n.f2.accept(this, argu);
 
         if (!(firstType.equals("int") && secondType.equals("int"))) {
-            System.out.println("Line: " + n.f1.beginLine + " Error: Incompatible types for * operator");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f1.beginLine + " Error: Incompatible types for * operator");
         }
 
         return "int";
@@ -787,8 +737,7 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
         String secondType = n.f2.accept(this, argu);
 
         if (!(firstType.equals("int") && secondType.equals("int"))) {
-            System.out.println("Line: " + n.f1.beginLine + " Error: Incompatible types for - operator");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f1.beginLine + " Error: Incompatible types for - operator");
         }
 
         return "int";
@@ -813,8 +762,7 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
         String secondType = n.f2.accept(this, argu);
 
         if (!(firstType.equals("int") && secondType.equals("int"))) {
-            System.out.println("Line: " + n.f1.beginLine + " Error: Incompatible types for + operator");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f1.beginLine + " Error: Incompatible types for + operator");
         }
 
         return "int";
@@ -839,8 +787,7 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
 
 
         if (!(firstType.equals("int") && secondType.equals("int"))) {
-            System.out.println("Line: " + n.f1.beginLine + " Error: Bad operand types for < operator (" + firstType + " < " + secondType + ")");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f1.beginLine + " Error: Bad operand types for < operator (" + firstType + " < " + secondType + ")");
         }
 
         // Checking whether the primary expressions have been initialized
@@ -877,8 +824,7 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
             System.out.println("Expression type is null");
 
         if (!expressionType/*n.f1.accept(this, argu)*/.equals("boolean")) {
-            System.out.println("Line: " + n.f0.beginLine + " Error: Bad operand type int for unary operator !");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f0.beginLine + " Error: Bad operand type int for unary operator !");
         }
 
         return "boolean";
@@ -940,8 +886,7 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
         // Identifier must be a name of a declared class
         String identifier = n.f1.accept(this, null);
         if (symbolTable.getClass(identifier) == null) {
-            System.out.println("Line: " + n.f2.beginLine + " Error: Name " + identifier + " does not exist");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f2.beginLine + " Error: Name " + identifier + " does not exist");
         }
 
         n.f2.accept(this, null);
@@ -973,8 +918,7 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
         n.f1.accept(this, null);
 
         if (!n.f3.accept(this, argu).equals("int")) {
-            System.out.println("Line: " + n.f4.beginLine + " Error: Incompatible types");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f4.beginLine + " Error: Incompatible types");
         }
 
         return "boolean[]";
@@ -999,8 +943,7 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
         n.f2.accept(this, null);
 
         if (!n.f3.accept(this, argu).equals("int")) {
-            System.out.println("Line: " + n.f4.beginLine + " Error: Incompatible types");
-            System.exit(1);
+            throw new CompileError("Line: " + n.f4.beginLine + " Error: Incompatible types");
         }
 
         return "int[]";
@@ -1058,22 +1001,19 @@ public class StatementChecker extends GJDepthFirst<String, Info> {
             // Case 1: The identifier is a local variable of the method
             if (owner.variableNameExists(identifier)) {
                 if (!owner.getCertainVariable(identifier).getInitialized()) {
-                    System.out.println("Line: " + n.f0.beginLine + " Error: Variable " + identifier + " might not have been initialized");
-                    System.exit(1);
+                    throw new CompileError("Line: " + n.f0.beginLine + " Error: Variable " + identifier + " might not have been initialized");
                 }
             }
             // Case 2: The identifier is a field of the class that owns the method
             else if (owner.getOwner().fieldNameExists(identifier)) {
                 if (!owner.getOwner().getCertainField(identifier).getInitialized()) {
-                    System.out.println("Line: " + n.f0.beginLine + " Error: Field " + identifier + " might not have been initialized");
-                    System.exit(1);
+                    throw new CompileError("Line: " + n.f0.beginLine + " Error: Field " + identifier + " might not have been initialized");
                 }
             }
             // Case 3: The identifier is a field of a super class
             else if (owner.fieldInSuper(identifier)) {
                 if (!owner.getSuper(identifier).getCertainField(identifier).getInitialized()) {
-                    System.out.println("Line: " + n.f0.beginLine + " Error: Field " + identifier + " might not have been initialized");
-                    System.exit(1);
+                    throw new CompileError("Line: " + n.f0.beginLine + " Error: Field " + identifier + " might not have been initialized");
                 }
             }
 
@@ -0,0 +1,190 @@
+import syntaxtree.*;
+
+// Reads a program a piece at a time for the streaming compilation (--stream),
+// so that the AST of the whole program never has to be in memory.
+//
+// The first pass reads the skeleton of the program: a Goal with every class,
+// field, method signature and local variable, but without the statements and
+// the return expressions, which are skipped by counting the braces. That's
+// all the ClassChecker needs. The second pass reads the classes again and
+// hands out their methods one at a time, each fully parsed.
+//
+// The grammar decides between a VarDeclaration and a Statement with two tokens
+// of lookahead, and so does this.
+public class StreamingParser implements MiniJavaParserConstants {
+
+    private MiniJavaParser parser;
+
+    public StreamingParser(MiniJavaParser parser) {
+        this.parser = parser;
+    }
+
+    /* The first pass */
+
+    // The program with the bodies of its methods left out
+    public Goal skeleton() throws ParseException {
+        MainClass mainClass = mainClassSkeleton();
+        NodeListOptional typeDeclarations = new NodeListOptional();
+        Node declaration;
+
+        while(next(CLASS)) {
+            declaration = classHeader();
+            while(next(PUBLIC))
+                methods(declaration).addNode(methodSkeleton());
+            closeClass(declaration);
+
+            typeDeclarations.addNode(new TypeDeclaration(new NodeChoice(declaration, declaration instanceof ClassDeclaration ? 0 : 1)));
+        }
+
+        return new Goal(mainClass, typeDeclarations, expect(EOF));
+    }
+
+    private MainClass mainClassSkeleton() throws ParseException {
+        NodeToken classToken = expect(CLASS);
+        Identifier className = parser.Identifier();
+        NodeToken[] header = new NodeToken[9];
+        int[] kinds = { LBRACE, PUBLIC, STATIC, VOID, MAIN, LPAREN, STRING, LSQPAREN, RSQPAREN };
+        Identifier argument;
+        NodeToken rightParen, bodyStart, bodyEnd;
+        NodeListOptional variables;
+
+        for(int i = 0; i < kinds.length; i++)
+            header[i] = expect(kinds[i]);
+
+        argument = parser.Identifier();
+        rightParen = expect(RPAREN);
+        bodyStart = expect(LBRACE);
+        variables = varDeclarations();
+        bodyEnd = skipBody();
+
+        return new MainClass(classToken, className, header[0], header[1], header[2], header[3], header[4], header[5], header[6],
+                             header[7], header[8], argument, rightParen, bodyStart, variables, new NodeListOptional(), bodyEnd, expect(RBRACE));
+    }
+
+    private MethodDeclaration methodSkeleton() throws ParseException {
+        NodeToken publicToken = expect(PUBLIC);
+        Type type = parser.Type();
+        Identifier name = parser.Identifier();
+        NodeToken leftParen = expect(LPAREN);
+        NodeOptional parameters = new NodeOptional();
+        NodeToken rightParen, bodyStart;
+        NodeListOptional variables;
+
+        if(!next(RPAREN))
+            parameters.addNode(parser.FormalParameterList());
+        rightParen = expect(RPAREN);
+        bodyStart = expect(LBRACE);
+        variables = varDeclarations();
+
+        return new MethodDeclaration(publicToken, type, name, leftParen, parameters, rightParen, bodyStart, variables,
+                                     new NodeListOptional(), new NodeToken("return"), null, new NodeToken(";"), skipBody());
+    }
+
+    // Skips the rest of a body whose "{" was just read, up to and including its "}"
+    private NodeToken skipBody() throws ParseException {
+        int depth = 1;
+        Token token;
+
+        do {
+            token = parser.getNextToken();
+            if(token.kind == EOF)
+                throw new ParseException("Encountered <EOF> at line " + token.beginLine + ", column " + token.beginColumn + ". Was expecting \"}\"");
+
+            if(token.kind == LBRACE)
+                depth++;
+            else if(token.kind == RBRACE)
+                depth--;
+        } while(depth > 0);
+
+        return nodeToken(token);
+    }
+
+    /* The second pass */
+
+    public MainClass mainClass() throws ParseException { return parser.MainClass(); }
+
+    // The next class with its fields and no methods, or null at the end of the program
+    public Node nextClass() throws ParseException {
+        if(next(EOF)) {
+            expect(EOF);
+            return null;
+        }
+
+        return classHeader();
+    }
+
+    // The next method of the class, or null once the class is over
+    public MethodDeclaration nextMethod(Node declaration) throws ParseException {
+        if(next(PUBLIC))
+            return parser.MethodDeclaration();
+
+        closeClass(declaration);
+        return null;
+    }
+
+    // The MethodDeclarations of a ClassDeclaration or a ClassExtendsDeclaration
+    public static NodeListOptional methods(Node declaration) {
+        if(declaration instanceof ClassDeclaration)
+            return ((ClassDeclaration) declaration).f4;
+
+        return ((ClassExtendsDeclaration) declaration).f6;
+    }
+
+    /* Both passes */
+
+    // "class" Identifier ["extends" Identifier] "{" VarDeclaration*, as a declaration without methods
+    private Node classHeader() throws ParseException {
+        NodeToken classToken = expect(CLASS);
+        Identifier className = parser.Identifier();
+        NodeToken extendsToken, bodyStart;
+        Identifier superName;
+
+        if(next(EXTENDS)) {
+            extendsToken = expect(EXTENDS);
+            superName = parser.Identifier();
+            bodyStart = expect(LBRACE);
+
+            return new ClassExtendsDeclaration(classToken, className, extendsToken, superName, bodyStart, varDeclarations(),
+                                               new NodeListOptional(), null);
+        }
+
+        bodyStart = expect(LBRACE);
+        return new ClassDeclaration(classToken, className, bodyStart, varDeclarations(), new NodeListOptional(), null);
+    }
+
+    private void closeClass(Node declaration) throws ParseException {
+        if(declaration instanceof ClassDeclaration)
+            ((ClassDeclaration) declaration).f5 = expect(RBRACE);
+        else
+            ((ClassExtendsDeclaration) declaration).f7 = expect(RBRACE);
+    }
+
+    private NodeListOptional varDeclarations() throws ParseException {
+        NodeListOptional variables = new NodeListOptional();
+        int first;
+
+        while(true) {
+            first = parser.getToken(1).kind;
+            if(first != INTEGER && first != BOOLEAN && !(first == IDENTIFIER && parser.getToken(2).kind == IDENTIFIER))
+                return variables;
+
+            variables.addNode(parser.VarDeclaration());
+        }
+    }
+
+    private boolean next(int kind) { return parser.getToken(1).kind == kind; }
+
+    private NodeToken expect(int kind) throws ParseException {
+        Token token = parser.getNextToken();
+
+        if(token.kind != kind)
+            throw new ParseException("Encountered \"" + token.image + "\" at line " + token.beginLine + ", column " + token.beginColumn +
+                                     ". Was expecting " + tokenImage[kind]);
+
+        return nodeToken(token);
+    }
+
+    private static NodeToken nodeToken(Token token) {
+        return new NodeToken(token.image.intern(), token.kind, token.beginLine, token.beginColumn, token.endLine, token.endColumn);
+    }
+}
@@ -1,15 +1,20 @@
+import syntaxtree.*;
+
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 public class SymbolTable {
 
-    private List<String> validTypes; // A list of all the valid data types
-    private List<String> classes; // A list with the names of all classes
+    private Set<String> validTypes; // All the valid data types, in the order they were added
+    private List<String> classes; // The names of all classes, in the order they were declared
     private HashMap<String, ClassInfo> classMap; // Where we'll keep information about every class
+    private ClassHierarchy hierarchy; // Built by finaliseHierarchy
 
     public SymbolTable() {
-        validTypes = new ArrayList<String>();
+        validTypes = new LinkedHashSet<String>();
         classes = new ArrayList<String>();
         classMap = new HashMap<String, ClassInfo>();
 
@@ -21,6 +26,15 @@ public class SymbolTable {
 
     public void addDataType(String dataType) { validTypes.add(dataType); }
 
+    public boolean isValidType(String dataType) { return validTypes.contains(dataType); }
+
+    // Declares a new class: its name becomes a valid data type and it gets a mapping
+    public void addClass(String className) {
+        addDataType(className);
+        classes.add(className);
+        putClass(className, 0, null);
+    }
+
     public void checkDataTypes() {
         ClassInfo currentClass;
 
@@ -30,9 +44,8 @@ public class SymbolTable {
             // Checking the data types of the class's fields
             List<FieldInfo> classFields = currentClass.getFields();
             for(int j = 0; j < classFields.size(); j++) {
-                if(!validTypes.contains(classFields.get(j).getType())) {
-                    System.out.println("Error: Invalid Type " + classFields.get(j).getType());
-                    System.exit(1);
+                if(!isValidType(classFields.get(j).getType())) {
+                    throw new CompileError("Error: Invalid Type " + classFields.get(j).getType());
                 }
             }
 
@@ -42,24 +55,81 @@ public class SymbolTable {
                 if("main".equals(classMethods.get(j)))
                     continue;
                 else {
-                    if(!validTypes.contains(currentClass.getClassMethod(classMethods.get(j)).getReturnType())){
-                        System.out.println("Error: Method " + classMethods.get(j) + "() has an invalid return type " + currentClass.getClassMethod(classMethods.get(j)).getReturnType());
-                        System.exit(1);
+                    if(!isValidType(currentClass.getClassMethod(classMethods.get(j)).getReturnType())){
+                        throw new CompileError("Error: Method " + classMethods.get(j) + "() has an invalid return type " + currentClass.getClassMethod(classMethods.get(j)).getReturnType());
                     }
                 }
             }
         }
     }
 
+    // Checks what the ClassChecker collected about every method once all the classes are
+    // known: the types and the names of the parameters and the local variables, and that
+    // a method that overrides another one has the same signature. The classes and their
+    // methods are checked in the order in which they were declared.
+    public void checkMethods() {
+        for(int i = 0; i < classes.size(); i++) {
+            ClassInfo currentClass = classMap.get(classes.get(i));
+            List<String> classMethods = currentClass.getMethods();
+
+            for(int j = 0; j < classMethods.size(); j++) {
+                MethodInfo currentMethod = currentClass.getClassMethod(classMethods.get(j));
+                List<FieldInfo> variables = currentMethod.getVariables();
+                int parameters = currentMethod.getArguments().size();
+
+                // The String[] argument of main isn't a type of the program
+                if(i > 0) {
+                    for(int k = 0; k < parameters; k++) {
+                        if(!isValidType(variables.get(k).getType()))
+                            throw new CompileError("Error: Invalid type " + variables.get(k).getType());
+                        checkDuplicate(currentMethod, variables.get(k));
+                    }
+
+                    checkOverriding(currentMethod, currentClass);
+                }
+
+                for(int k = parameters; k < variables.size(); k++) {
+                    if(!isValidType(variables.get(k).getType()))
+                        throw new CompileError("Error: invalid type " + variables.get(k).getType());
+                    checkDuplicate(currentMethod, variables.get(k));
+                }
+            }
+        }
+    }
+
+    private void checkDuplicate(MethodInfo currentMethod, FieldInfo variable) {
+        if(currentMethod.isDuplicate(variable))
+            throw new CompileError("Error: The name " + variable.getName() + " is already being used in method " + currentMethod.getName() + "()");
+    }
+
+    // A method that overrides one of a superclass must have the same return type and parameter types
+    private void checkOverriding(MethodInfo currentMethod, ClassInfo currentClass) {
+        String methodName = currentMethod.getName();
+
+        if(!currentMethod.methodInSuper(methodName, currentClass))
+            return;
+
+        MethodInfo superMethod = currentMethod.getSuperMethod(methodName).getClassMethod(methodName);
+
+        if(!superMethod.getReturnType().equals(currentMethod.getReturnType())) {
+            throw new CompileError("Error: Method " + methodName + "() has different return types in super class (" + superMethod.getReturnType() + ") and child (" + currentMethod.getReturnType() + ")");
+        }
+
+        if(superMethod.getArguments().size() != currentMethod.getArguments().size()) {
+            throw new CompileError("Error: Method " + methodName + "() must have the same number of arguments in both the super class (" + superMethod.getArguments().size() + ") and the child (" + currentMethod.getArguments().size() + ") class");
+        }
+
+        for(int i = 0; i < superMethod.getArguments().size(); i++) {
+            if(!superMethod.getArguments().get(i).getType().equals(currentMethod.getArguments().get(i).getType())) {
+                throw new CompileError("Error: Method " + methodName + "() must have the same type of arguments in both the super class and the child class");
+            }
+        }
+    }
+
     // Create a new mapping for the class named "className"
     public void putClass(String className, int offset, ClassInfo parent) { classMap.put(className, new ClassInfo(className, offset, parent)); }
 
-    public ClassInfo getClass(String className) {
-        if(classes.contains(className))
-            return classMap.get(className);
-        else
-            return null;
-    }
+    public ClassInfo getClass(String className) { return classMap.get(className); }
 
     public void printClass(String className) {
         classMap.get(className).printClassInfo();
@@ -92,17 +162,10 @@ public class SymbolTable {
         return (classMap.get(className)).getFields();
     }
 
-    public boolean classExists(String className) {
-        boolean returnValue = false;
+    public boolean classExists(String className) { return classMap.containsKey(className); }
 
-        if (classes.contains(className))
-            returnValue = true;
-
-        return returnValue;
-    }
-
-    // Returns the list that holds all of the valid data types
-    public List<String> getValidTypes() { return validTypes; }
+    // Returns the set that holds all of the valid data types
+    public Set<String> getValidTypes() { return validTypes; }
 
     public void printSymbolTable() {
 
@@ -136,94 +199,112 @@ public class SymbolTable {
         return true;
     }
 
-    public void setOffsets() {
+    public void setOffsets(CompilerOptions options) {
 
+        ObjectLayout objectLayout = new ObjectLayout(options.getPackFields());
         ClassInfo currentClass;
-        FieldInfo currentField;
         MethodInfo currentMethod;
-        ClassInfo offsetClass = null;
+        MethodInfo superMethod;
         ClassInfo parent;
-        int increment;
-        int offset = 0;
-        int flag;
+        List<MethodInfo> slots;
+        int slot;
 
         // Calculating the offsets for every class
         for(int i = 0; i < classes.size(); i++) {
 
             currentClass = getClass(classes.get(i));
 
-           // Calculating the offsets for the fields
-           for(int j = 0; j < currentClass.getFields().size(); j++) {
+            // Calculating the offsets for the fields
+            objectLayout.layOut(currentClass);
+
+            // Calculating the offsets for the methods. A class starts with the V-Table of its
+            // superclass (declared before it), its overridden methods take the slots they had
+            // there and its new methods are appended to the end.
+            parent = currentClass.getParent();
+            slots = currentClass.getVTableSlots();
+            slots.clear();
+            if(parent != null)
+                slots.addAll(parent.getVTableSlots());
 
-               currentField = currentClass.getFields().get(j);
-               offsetClass = currentClass;
-               parent = currentClass.getParent();
+            for(int j = 0; j < currentClass.getMethods().size(); j++) {
 
-               while(parent != null) {
-                   offsetClass = parent;
-                   parent = parent.getParent();
-               }
+                currentMethod = currentClass.getClassMethod(currentClass.getMethods().get(j));
+                superMethod = parent != null ? parent.getVisibleMethod(currentMethod.getName()) : null;
 
-                if(currentField.getType().equals("int")) {
-                    increment = 4;
-                }
-                else if(currentField.getType().equals("boolean")) {
-                    increment = 1;
-                }
-                else if(currentField.getType().equals("int[]") || currentField.getType().equals("boolean[]")) {
-                    increment = 8;
+                if(superMethod != null) {
+                    // This is an overridden method
+                    slot = superMethod.getOffset()/8;
+                    slots.set(slot, currentMethod);
                 }
                 else {
-                    increment = 8;
+                    slot = slots.size();
+                    slots.add(currentMethod);
                 }
 
-               currentField.setOffset(offsetClass.getFieldOffset());
-               offsetClass.incFieldOffset(increment);
-           }
+                currentMethod.setOffset(slot*8);
+            }
+        }
+    }
 
-            // Calculating the offsets for the methods and the pointers
-            for(int j = 0; j < currentClass.getMethods().size(); j++) {
+    // Computes the superclasses and the inherited members of every class.
+    // Must run after all of the classes and their members have been declared.
+    public void finaliseHierarchy() {
+        for(int i = 0; i < classes.size(); i++)
+            classMap.get(classes.get(i)).finaliseHierarchy();
 
-                currentMethod = currentClass.getClassMethod(currentClass.getMethods().get(j));
-                String methodName = currentMethod.getName();
+        hierarchy = new ClassHierarchy(this);
+    }
 
-                flag = 0;
-                parent = currentMethod.getOwner().getParent();
+    public ClassHierarchy getHierarchy() { return hierarchy; }
 
-                while(parent != null) {
+    // Whether a value of type subType can be assigned to one of type superType
+    public boolean isSubtype(String subType, String superType) { return hierarchy.isSubtype(subType, superType); }
 
-                    if(parent.getMethods().contains(methodName)) {
-                        // The method was found in one of its superclasses
-                        flag = 1;
-                        offset = parent.getClassMethod(methodName).getOffset();
-                        break;
-                    }
-                    else {
-                        flag = 2;
-                        offsetClass = parent;
-                        parent = parent.getParent();
-                    }
-                }
+    // The MiniJava type of a variable of the method or a field of its class
+    public String variableType(MethodInfo method, String name) {
+        FieldInfo variable = method.getCertainVariable(name);
 
-                switch (flag) {
-                    case 0:
-                        // The class doesn't extend any other classes
-                        currentMethod.setOffset(currentMethod.getOwner().getPointerOffset());
-                        currentMethod.getOwner().incPointerOffset(8);
-                        break;
-                    case 1:
-                        // This is an overridden method
-                        currentMethod.setOffset(/*-1*/offset);
-                        currentMethod.getOwner().incPointerOffset(8);
-                        break;
-                    case 2:
-                        // None of the super classes had the method
-                        currentMethod.setOffset(offsetClass.getPointerOffset());
-                        offsetClass.incPointerOffset(8);
-                        break;
-                }
-            }
+        if(variable == null)
+            variable = method.getOwner().getVisibleField(name);
+        if(variable == null)
+            throw new CompileError("Error: Variable " + name + " doesn't exist in method " + method.getName());
+
+        return variable.getType();
+    }
+
+    // The class of the object a primary expression of the method gives, for the calls made on it
+    public String classOf(MethodInfo method, PrimaryExpression n) {
+        Node expression = n.f0.choice;
+
+        if(expression instanceof Identifier)
+            return variableType(method, ((Identifier) expression).f0.toString());
+        if(expression instanceof ThisExpression)
+            return method.getOwner().getName();
+        if(expression instanceof AllocationExpression)
+            return ((AllocationExpression) expression).f1.f0.toString();
+
+        if(expression instanceof BracketExpression) {
+            expression = ((BracketExpression) expression).f1.f0.choice;
+
+            if(expression instanceof MessageSend)
+                return calledMethod(method, (MessageSend) expression).getReturnType();
+            if(expression instanceof Clause && ((Clause) expression).f0.choice instanceof PrimaryExpression)
+                return classOf(method, (PrimaryExpression) ((Clause) expression).f0.choice);
         }
+
+        throw new CompileError("Error: A method is called on something that isn't an object in method " + method.getName());
+    }
+
+    // The method a call made in the method reaches through the class of its object
+    public MethodInfo calledMethod(MethodInfo method, MessageSend n) {
+        String className = classOf(method, n.f0);
+        String methodName = n.f2.f0.toString();
+        MethodInfo calledMethod = getClass(className).getClassMethod(methodName);
+
+        if(calledMethod == null)
+            throw new CompileError("Error: Method " + methodName + " doesn't exist in class " + className + " or any of its superclasses");
+
+        return calledMethod;
     }
 
     public void setInheritedMethods() {
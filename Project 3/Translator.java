@@ -1,399 +1,239 @@
 import syntaxtree.*;
 import visitor.GJDepthFirst;
 
-import java.io.FileOutputStream;
-import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+
+// Translates the checked AST into the intermediate representation, one
+// IRFunction per method and one for main, which the IRPrinter then writes as
+// LLVM code. Every local variable gets a stack slot and every field is reached
+// through the struct type of its class. Every expression is a typed value, so
+// an object can be the result of any expression and a call can have any number
+// of arguments of any kind, and the operands are evaluated from left to right.
+//
+// The bounds checks are left out where the BoundsCheckAnalysis allows it, the
+// calls are devirtualised where the ClassHierarchyAnalysis allows it, and the
+// blocks are counted or their branches weighed when there is a profile.
+public class Translator extends GJDepthFirst<Integer, Integer> {
 
-public class Translator extends GJDepthFirst<Info, Info> {
+    private SymbolTable symbolTable;
+    private VTables vTables;
+    private IRModule module;
+    private BoundsCheckAnalysis boundsChecks; // The accesses that need no check, null if all of them do
+    private BranchProfile profile; // The block counters or the branch weights, null without a profile
+    private ClassHierarchyAnalysis callTargets; // The methods every call may reach, null if every call goes through the v-table
 
+    // The labels are numbered across the whole module, so that the profile can tell them apart
     private int ifCounter;
-    private int registers;
-    private int arrayCounter;
-    private int labelCounter;
     private int whileLoopCounter;
-    private int ArrayAssignmentCounter;
-    private VTables vTables;
-    private FileOutputStream out;
+    private int labelCounter;
+    private int arrayCounter;
+    private int arrayAccessCounter;
+    private int callCounter;
+
+    // The function being generated
     private ClassInfo currentClass;
-    private SymbolTable symbolTable;
     private MethodInfo currentMethod;
-    private FieldInfo currentVariable;
-    private List<FieldInfo> methodArguments;
+    private IRFunction function;
+    private HashMap<FieldInfo, Integer> slots; // The alloca of every local variable
+    private int thisValue; // %this
+    private int self; // %this as a pointer to the type of the class
 
-    // Constructor
-    public Translator(VTables vTables) {
-
-        ifCounter = 0;
-        registers = 0;
-        arrayCounter = 0;
-        labelCounter = 0;
-        whileLoopCounter = 0;
-        ArrayAssignmentCounter = 0;
+    public Translator(VTables vTables, BoundsCheckAnalysis boundsChecks, BranchProfile profile, ClassHierarchyAnalysis callTargets) {
         this.vTables = vTables;
-        out = vTables.getOutFile();
-        currentClass = null;
         symbolTable = vTables.getSymbolTable();
-        currentMethod = null;
-        currentVariable = null;
-        methodArguments = new ArrayList<FieldInfo>();
-    }
-
-    // Writes a string to the .ll file
-    public void writeOutput(String s) {
-        try{
-            byte b[] = s.getBytes();
-            out.write(b);
-        }
-        catch (Exception e) {
-            System.out.println(e);
-            System.exit(1);
-        }
+        module = new IRModule();
+        this.boundsChecks = boundsChecks;
+        this.profile = profile;
+        this.callTargets = callTargets;
+        ifCounter = 0;
+        whileLoopCounter = 0;
+        labelCounter = 0;
+        arrayCounter = 0;
+        arrayAccessCounter = 0;
+        callCounter = 0;
+        slots = new HashMap<FieldInfo, Integer>();
     }
 
-    // Locating an identifier
-    public VariableType findLocation(FieldInfo value) {
+    public IRModule getModule() { return module; }
 
-        VariableType variableType;
-        variableType = new VariableType(null, null);
+    // Starts a block that a branch leads to, counting its executions when the program is instrumented
+    private void enterBlock(int block) {
+        String counter = profile != null ? profile.counter(function.getLabel(block)) : null;
+        int pointer, count;
 
-        if(currentMethod.variableNameExists(value.getName())) {
-            // Case 1: Local variable of the method
-            variableType.setVariable(currentMethod.getCertainVariable(value.getName()));
-            variableType.setType("local");
-        }
-        else if(currentMethod.getOwner().fieldNameExists(value.getName())) {
-            // Case 2: Field of the class that owns the method
-            variableType.setVariable(currentMethod.getOwner().getCertainField(value.getName()));
-            variableType.setType("parent");
-        }
-        else if(currentMethod.getOwner().inheritedField(value.getName())) {
-            // Case 3: Field of a super class of the class that owns the method
-            variableType.setVariable(currentMethod.getOwner().getInheritedField(value.getName()));
-            variableType.setType("super");
-        }
+        function.placeBlock(block);
+        if(counter == null)
+            return;
 
-        return variableType;
+        pointer = function.constant(IRModule.I64_PTR, counter);
+        count = function.load(pointer);
+        function.store(function.binary(IRFunction.ADD, count, function.constant(IRModule.I64, "1")), pointer);
     }
 
-    public String getTempVariable() { return ("%_" + registers++); }
-
-    /**
-     * f0 -> "class"
-     * f1 -> Identifier()
-     * f2 -> "{"
-     * f3 -> "public"
-     * f4 -> "static"
-     * f5 -> "void"
-     * f6 -> "main"
-     * f7 -> "("
-     * f8 -> "String"
-     * f9 -> "["
-     * f10 -> "]"
-     * f11 -> Identifier()
-     * f12 -> ")"
-     * f13 -> "{"
-     * f14 -> ( VarDeclaration() )*
-     * f15 -> ( Statement() )*
-     * f16 -> "}"
-     * f17 -> "}"
-     */
-    public Info visit(MainClass n, Info argu) {
-
-
-        String type;
-        String registerName;
-        String mainClassName;
-
-        mainClassName = symbolTable.getClasses().get(0);
-        currentClass = symbolTable.getClass(mainClassName);
-        currentMethod = currentClass.getClassMethod("main");
-
-        writeOutput("define i32 @main() {\n");
-
-        // ** VarDeclaration **
-        // The variables have already been stored in the MethodInfo class
-        for(int i = 0; i < currentMethod.getVariables().size(); i++) {
-
-            currentVariable = currentMethod.getVariables().get(i);
-            if(!currentMethod.isArgument(currentVariable)) {
-
-                type = vTables.setType(currentVariable.getType());
-                // Register Name: %<Class_Name>_<Method_Name>_<Variable_Name>
-                registerName = "%" + mainClassName + "_" + currentMethod.getName() + "_" + currentVariable.getName();
-                currentVariable.setRegName(registerName);
-
-                // Allocating space on the stack for the reference
-                writeOutput("\t" + registerName + " = alloca " + type + "\n");
-            }
-        }
-
-        writeOutput("\n");
+    // A conditional branch, weighed by the profile if there is one
+    private void branch(int condition, int taken, int notTaken) {
+        function.branch(condition, taken, notTaken);
+        if(profile != null)
+            function.attach(profile.branchWeights(function.getLabel(taken), function.getLabel(notTaken)));
+    }
 
-        currentVariable = null; // We're done with this (for now)
+    // A call of one of the functions the runtime declares
+    private int callRuntime(int returnType, String name, String parameterTypes, int... arguments) {
+        int callee = function.constant(module.type(module.typeName(returnType) + " (" + parameterTypes + ")*"), name);
 
-        // ** Statement **
-        if(n.f15.present())
-            n.f15.accept(this, null);
+        return function.call(returnType, callee, arguments);
+    }
 
-        writeOutput("\n\tret i32 0\n}\n\n");
+    // The type of a pointer to the function that implements the method
+    private int functionType(MethodInfo method) {
+        String type = module.typeName(module.valueType(method.getReturnType())) + " (i8*";
 
-        currentClass = null;
-        currentMethod = null;
-        registers = 0;
+        for(int i = 0; i < method.getArguments().size(); i++)
+            type += ", " + module.typeName(module.valueType(method.getArguments().get(i).getType()));
 
-        return null;
+        return module.type(type + ")*");
     }
 
-    /**
-     * f0 -> Block()
-     *       | AssignmentStatement()
-     *       | ArrayAssignmentStatement()
-     *       | IfStatement()
-     *       | WhileStatement()
-     *       | PrintStatement()
-     */
-    public Info visit(Statement n, Info argu) {
-        FieldInfo statement = (FieldInfo)n.f0.accept(this, null);
-        return statement;
+    private int functionConstant(MethodInfo method) {
+        return function.constant(functionType(method), "@" + method.getOwner().getName() + "." + method.getName());
     }
 
-    /**
-     * f0 -> "while"
-     * f1 -> "("
-     * f2 -> Expression()
-     * f3 -> ")"
-     * f4 -> Statement()
-     */
-    public Info visit(WhileStatement n, Info argu) {
-
-        FieldInfo expression, statement;
-        String condLabel, bodyLabel, exitLabel;
+    // A pointer to a local variable or to a field of the object the method was called on
+    private int variablePointer(String name) {
+        FieldInfo variable = currentMethod.getCertainVariable(name);
+        int classType;
 
-        condLabel = "loop" + whileLoopCounter++;
-        bodyLabel = "loop" + whileLoopCounter++;
-        exitLabel = "loop" + whileLoopCounter++;
+        if(variable != null)
+            return slots.get(variable);
 
-        // Go to the condition check
-        writeOutput("\tbr label %" + condLabel + "\n\n");
+        variable = currentMethod.getOwner().getVisibleField(name);
+        if(variable == null)
+            throw new CompileError("Error: Variable " + name + " doesn't exist in method " + currentMethod.getName());
 
-        // Checking the condition
-        writeOutput(condLabel + ":\n");
-        expression = (FieldInfo)n.f2.accept(this, null);
-        writeOutput("\tbr i1 " + expression.getName() + ", label %" + bodyLabel + ", label %" + exitLabel + "\n\n");
+        classType = module.type(ObjectLayout.typeName(currentMethod.getOwner()));
+        return function.getElementPtr(classType, module.pointerTo(module.valueType(variable.getType())), self,
+                                      function.constant(0), function.constant(variable.getFieldIndex()));
+    }
 
-        // If the condition holds, we execute the loop's statements
-        // After that we check whether the condition again
-        writeOutput(bodyLabel + ":\n");
-        statement = (FieldInfo)n.f4.accept(this, null);
-        writeOutput("\tbr label %" + condLabel + "\n\n");
+    // Checks the index unless it's known to be within the array, and returns a pointer to the element
+    private int elementPointer(Node access, int array, int index) {
+        boolean booleanArray = function.getValueType(array) == IRModule.I8_PTR;
+        int number, okBlock, errorBlock, size, inBounds, position;
 
-        // Ending the loop
-        writeOutput(exitLabel + ":\n");
+        if(boundsChecks == null || !boundsChecks.isSafe(access)) {
+            number = arrayAccessCounter++;
+            okBlock = function.newBlock("oob_ok_" + number);
+            errorBlock = function.newBlock("oob_err_" + number);
 
-        return null;
-    }
+            // The size of the array is in its first four bytes
+            size = function.load(booleanArray ? function.cast(IRFunction.BITCAST, array, IRModule.I32_PTR) : array);
+            inBounds = function.binary(IRFunction.AND, function.binary(IRFunction.ICMP_SGE, index, function.constant(0)),
+                                                        function.binary(IRFunction.ICMP_SLT, index, size));
+            branch(inBounds, okBlock, errorBlock);
 
-    /**
-     * f0 -> Identifier()
-     * f1 -> "["
-     * f2 -> Expression()
-     * f3 -> "]"
-     * f4 -> "="
-     * f5 -> Expression()
-     * f6 -> ";"
-     */
-    public Info visit(ArrayAssignmentStatement n, Info argu) {
-
-        VariableType variableType;
-        String okLabel, errorLabel;
-        String nszOkLabel, nszErrorLabel;
-        String arrayAddr, arraySize;
-        String index = null;
-        String value = null;
-        String ptr = null;
-        boolean booleanArray = false;
-        String[] tempVariables;
-        FieldInfo identifier;
-        FieldInfo firstExpression, secondExpression;
-
-        okLabel = "oob_ok_" + ArrayAssignmentCounter;
-        errorLabel = "oob_err_" + ArrayAssignmentCounter;
-        ArrayAssignmentCounter++;
-
-        identifier = (FieldInfo)n.f0.accept(this, null);
-        variableType = findLocation(identifier);
-        identifier = variableType.getVariable();
-
-        // Checking if we're working on a boolean array
-        if(identifier.getType().equals("boolean[]"))
-            booleanArray = true;
-
-        // Loading the address of the array
-        if(booleanArray) {
-            ptr = getTempVariable();
-            arraySize = getTempVariable();
-            arrayAddr = getTempVariable();
+            enterBlock(errorBlock);
+            callRuntime(IRModule.VOID, "@throw_oob", "");
+            function.branch(okBlock);
 
-            writeOutput("\t" + ptr + " = load i8*, i8** " + identifier.getRegName() + "\n");
-            writeOutput("\t" + arrayAddr + " = bitcast i8* " + ptr + " to i32*\n");
+            enterBlock(okBlock);
         }
-        else {
-            arrayAddr = getTempVariable();
-            arraySize = getTempVariable();
-            writeOutput("\t" + arrayAddr + " = load i32*, i32** " + identifier.getRegName() + "\n");
-        }
-
-        // Loading the size of the array
-        writeOutput("\t" + arraySize + " = load i32, i32* " + arrayAddr + "\n");
 
-        firstExpression = (FieldInfo)n.f2.accept(this, null);
-        if(firstExpression.getType().equals("identifier")) {
-            variableType = findLocation(firstExpression);
-            firstExpression = variableType.getVariable();
+        if(booleanArray) {
+            position = function.binary(IRFunction.ADD, function.constant(4), index);
+            return function.getElementPtr(IRModule.I8, IRModule.I8_PTR, array, position);
+        }
 
-            if(variableType.getType().equals("local")) {
-                index = getTempVariable();
-                writeOutput("\t" + index + " = load i32, i32* " + firstExpression.getRegName() + "\n");
-            }
-            else {
-                String pointer = getTempVariable();
-                writeOutput("\t" + pointer + " = getelementptr i8, i8* %this, i32 " + (firstExpression.getOffset() + 8) + "\n");
+        position = function.binary(IRFunction.ADD, function.constant(1), index);
+        return function.getElementPtr(IRModule.I32, IRModule.I32_PTR, array, position);
+    }
 
-                String bitcast = getTempVariable();
-                writeOutput("\t" + bitcast + " bitcast i8* " + pointer + " to i32*\n");
+    // Allocates size elements of elementSize bytes, plus headerElements more at the start that hold the size
+    private int allocateArray(int size, String elementSize, int headerElements) {
+        int number = arrayCounter++;
+        int okBlock = function.newBlock("nsz_ok_" + number);
+        int errorBlock = function.newBlock("nsz_err_" + number);
+        int memory;
 
-                index = getTempVariable();
-                writeOutput("\t" + index + " = load i32, i32* " + bitcast + "\n");
-            }
-        }
-        else if(firstExpression.getType().equals("int"))
-            index = firstExpression.getName();
-        else
-            index = firstExpression.getName();
-
-        tempVariables = new String[5];
-        for(int i = 0; i < 5; i++)
-            tempVariables[i] = getTempVariable();
-
-        // Checking that the provided index is greater than zero
-        writeOutput("\t" + tempVariables[0] + " = icmp sge i32 " + index + ", 0\n");
-
-        // Checking that the index is less than the size of the array
-        writeOutput("\t" + tempVariables[1] + " = icmp slt i32 " + index + ", " + arraySize + '\n');
-
-        // Both of the above conditions must hold
-        writeOutput("\t" + tempVariables[2] + " = and i1 " + tempVariables[0] + ", " + tempVariables[1] + "\n");
-        writeOutput("\tbr i1 " + tempVariables[2] + ", label %" + okLabel + ", label %" + errorLabel + "\n\n");
-
-        // If that's not the case, throw an out of bounds exception
-        writeOutput(errorLabel + ":\n");
-        writeOutput("\tcall void @throw_oob()\n");
-        writeOutput("\tbr label %" + okLabel + "\n\n");
-
-        // Everything's ok, moving on to indexing the array
-        writeOutput(okLabel + ":\n");
-
-        secondExpression = (FieldInfo)n.f5.accept(this, null);
-        if(secondExpression.getType().equals("identifier")) {
-            variableType = findLocation(secondExpression);
-            secondExpression = variableType.getVariable();
-
-            if(variableType.getType().equals("local")) {
-                value = getTempVariable();
-                writeOutput("\t" + value + " = load i32, i32* " + firstExpression.getRegName() + "\n");
-            }
-            else {
-                String pointer = getTempVariable();
-                writeOutput("\t" + pointer + " = getelementptr i8, i8* %this, i32 " + (firstExpression.getOffset() + 8) + "\n");
-
-                String bitcast = getTempVariable();
-                writeOutput("\t" + bitcast + " bitcast i8* " + pointer + " to i32*\n");
-
-                value = getTempVariable();
-                writeOutput("\t" + value + " = load i32, i32* " + bitcast + "\n");
-            }
-        }
-        else if(secondExpression.getType().equals("int"))
-            value = secondExpression.getName();
-        else if(secondExpression.getType().equals("boolean"))
-            value = secondExpression.getName();
-        else
-            value = secondExpression.getName();
+        function.branch(function.binary(IRFunction.ICMP_SGE, size, function.constant(0)), okBlock, errorBlock);
 
-        if(booleanArray) {
-            // Adding four to the index, since the first element holds the size
-            writeOutput("\t" + tempVariables[3] + " = add i32 4, " + index + "\n");
+        function.placeBlock(errorBlock);
+        callRuntime(IRModule.VOID, "@throw_nsz", "");
+        function.branch(okBlock);
 
-            String zext = getTempVariable();
-            writeOutput("\t" + zext + " = zext i1 " + value + " to i8\n");
+        function.placeBlock(okBlock);
+        memory = callRuntime(IRModule.I8_PTR, "@calloc", "i32, i32",
+                             function.binary(IRFunction.ADD, function.constant(headerElements), size),
+                             function.constant(IRModule.I32, elementSize));
+        function.store(size, function.cast(IRFunction.BITCAST, memory, IRModule.I32_PTR));
 
-            // Getting a pointer to the (i+1)th element of the array
-            writeOutput("\t" + tempVariables[4] + " = getelementptr i8, i8* " + ptr + ", i32 " + tempVariables[3] + "\n");
+        return memory;
+    }
 
-            // Storing the value to that address
-            writeOutput("\tstore i8 " + zext + ", i8* " + tempVariables[4] + "\n\n");
-        }
-        else {
-            // Adding one to the index, since the first element holds the size
-            writeOutput("\t" + tempVariables[3] + " = add i32 1, " + index + "\n");
+    // Gives every local variable of the method a stack slot, and the arguments their values
+    private void allocateVariables() {
+        FieldInfo variable;
+        int slot;
 
-            // Getting a pointer to the (i+1)th element of the array
-            writeOutput("\t" + tempVariables[4] + " = getelementptr i32, i32* " + arrayAddr + ", i32 " + tempVariables[3] + "\n");
+        slots.clear();
+        for(int i = 0; i < currentMethod.getVariables().size(); i++) {
+            variable = currentMethod.getVariables().get(i);
+            slot = function.alloca(module.valueType(variable.getType()), variable.getRegName());
+            slots.put(variable, slot);
 
-            // Store the value to that address
-            writeOutput("\tstore i32 " + value + ", i32* " + tempVariables[4] + "\n\n");
+            // The arguments come first, after %this
+            if(currentMethod.isArgument(variable))
+                function.store(function.getParameter(i + 1), slot);
         }
-
-        return null;
     }
 
     /**
-     * f0 -> "if"
-     * f1 -> "("
-     * f2 -> Expression()
-     * f3 -> ")"
-     * f4 -> Statement()
-     * f5 -> "else"
-     * f6 -> Statement()
+     * f0 -> "class"
+     * f1 -> Identifier()
+     * f2 -> "{"
+     * f3 -> "public"
+     * f4 -> "static"
+     * f5 -> "void"
+     * f6 -> "main"
+     * f7 -> "("
+     * f8 -> "String"
+     * f9 -> "["
+     * f10 -> "]"
+     * f11 -> Identifier()
+     * f12 -> ")"
+     * f13 -> "{"
+     * f14 -> ( VarDeclaration() )*
+     * f15 -> ( Statement() )*
+     * f16 -> "}"
+     * f17 -> "}"
      */
-    public Info visit(IfStatement n, Info argu) {
+    public Integer visit(MainClass n, Integer argu) {
+        FieldInfo variable;
 
+        currentClass = symbolTable.getClass(symbolTable.getClasses().get(0));
+        currentMethod = currentClass.getClassMethod("main");
 
-        FieldInfo expression;
-        String ifLabel, elseLabel, endLabel;
+        function = new IRFunction(module, "main", IRModule.I32);
+        function.placeBlock(function.newBlock(null));
 
-        ifLabel = "if_then_" + ifCounter;
-        elseLabel = "if_else_" + ifCounter;
-        endLabel = "if_end_" + ifCounter;
-        ifCounter++;
+        if(profile != null && profile.isInstrumenting())
+            callRuntime(IRModule.I32, "@atexit", "void ()*", function.constant(module.type("void ()*"), "@_prof_dump"));
 
-        expression = (FieldInfo)n.f2.accept(this, null);
+        slots.clear();
+        for(int i = 0; i < currentMethod.getVariables().size(); i++) {
+            variable = currentMethod.getVariables().get(i);
+            if(currentMethod.isArgument(variable))
+                continue;
 
-        if(expression.getType().equals("boolean")) {
-            writeOutput("\tbr i1 " + expression.getName() + ", label %" + ifLabel + ", ");
-            writeOutput("label %" + elseLabel + "\n\n");
-        }
-        else if(expression.getType().equals("arrayLookUp")) {
-            writeOutput("\tbr i1 " + expression.getName() + ", label %" + ifLabel + ", ");
-            writeOutput("label %" + elseLabel + "\n\n");
-        }
-        else {
-            writeOutput("\tbr i1 " + expression.getName() + ", label %" + ifLabel + ", ");
-            writeOutput("label %" + elseLabel + "\n\n");
+            variable.setRegName("%" + currentClass.getName() + "_main_" + variable.getName());
+            slots.put(variable, function.alloca(module.valueType(variable.getType()), variable.getRegName()));
         }
 
-        writeOutput(elseLabel + ":\n");
-        n.f6.accept(this, null);
-        writeOutput("\tbr label %" + endLabel + "\n\n");
-
-        writeOutput(ifLabel + ":\n");
-        n.f4.accept(this, null);
-        writeOutput("\tbr label %" + endLabel + "\n\n");
-
-        writeOutput(endLabel + ":\n");
+        n.f15.accept(this, null);
+        function.ret(function.constant(0));
 
+        module.addFunction(function);
+        currentClass = null;
+        currentMethod = null;
         return null;
     }
 
@@ -405,23 +245,10 @@ public class Translator extends GJDepthFirst<Info, Info> {
      * f4 -> ( MethodDeclaration() )*
      * f5 -> "}"
      */
-    public Info visit(ClassDeclaration n, Info argu) {
-
-
-        String className;
-        FieldInfo identifier;
-
-        // Setting the current class
-        identifier = (FieldInfo)n.f1.accept(this, null);
-        className = identifier.getName();
-        currentClass = symbolTable.getClass(className);
-
-        if(n.f4.present())
-            n.f4.accept(this, null);
-
+    public Integer visit(ClassDeclaration n, Integer argu) {
+        currentClass = symbolTable.getClass(n.f1.f0.toString());
+        n.f4.accept(this, null);
         currentClass = null;
-        currentMethod = null;
-
         return null;
     }
 
@@ -435,21 +262,10 @@ public class Translator extends GJDepthFirst<Info, Info> {
      * f6 -> ( MethodDeclaration() )*
      * f7 -> "}"
      */
-    public Info visit(ClassExtendsDeclaration n, Info argu) {
-
-        String className;
-        FieldInfo identifier;
-
-        identifier = (FieldInfo)n.f1.accept(this, null);
-        className = identifier.getName();
-        currentClass = symbolTable.getClass(className);
-
-        if(n.f6.present())
-            n.f6.accept(this, null);
-
+    public Integer visit(ClassExtendsDeclaration n, Integer argu) {
+        currentClass = symbolTable.getClass(n.f1.f0.toString());
+        n.f6.accept(this, null);
         currentClass = null;
-        currentMethod = null;
-
         return null;
     }
 
@@ -468,483 +284,188 @@ public class Translator extends GJDepthFirst<Info, Info> {
      * f11 -> ";"
      * f12 -> "}"
      */
-    public Info visit(MethodDeclaration n, Info argu) {
-
-        String type = null;
-        String regName;
-        String methodName;
-        String returnType;
-        FieldInfo identifier;
-        FieldInfo returnStatement;
-        String returnRegister = null;
-        String[] registerNames = new String[2];
-
-        identifier = (FieldInfo)n.f2.accept(this, null);
-        methodName = identifier.getName();
-        currentMethod = currentClass.getClassMethod(methodName);
-        returnType = vTables.setType(currentMethod.getReturnType());
-
-        writeOutput("define " + returnType + " @" + currentMethod.getOwner().getName() + "." + methodName);
-        writeOutput("(i8* %this");
-
-        // Working on the method's arguments
-        for(int i = 0; i < currentMethod.getArguments().size(); i++) {
-
-            String[] str_array = currentMethod.getVariables().get(i).getRegName().split("%");
-            regName = "%." + str_array[1];
-            type = vTables.setType(currentMethod.getVariables().get(i).getType());
-            writeOutput(", " + type + " " + regName);
-        }
+    public Integer visit(MethodDeclaration n, Integer argu) {
+        FieldInfo argument;
+        int classType;
 
-        writeOutput(") {\n");
+        currentMethod = currentClass.getClassMethod(n.f2.f0.toString());
+        function = new IRFunction(module, currentMethod.getOwner().getName() + "." + currentMethod.getName(),
+                                  module.valueType(currentMethod.getReturnType()));
 
-        // ** VarDeclaration **
-        // The variables have already been stored in the MethodInfo class
-        for(int i = 0; i < currentMethod.getVariables().size(); i++) {
-            currentVariable = currentMethod.getVariables().get(i);
-            type = vTables.setType(currentVariable.getType());
-            writeOutput("\t" + currentVariable.getRegName() + " = alloca " + type + "\n");
-
-            if(currentMethod.isArgument(currentVariable)) {
-                String[] str_array = currentVariable.getRegName().split("%");
-                regName = "%." + str_array[1];
-                writeOutput("\tstore " + type + " " + regName + ", " + type + "* " + currentVariable.getRegName() + "\n\n");
-            }
+        // The arguments are named after the stack slots they are stored to: %.<Class>_<method>_<name>
+        thisValue = function.addParameter(IRModule.I8_PTR, "%this");
+        for(int i = 0; i < currentMethod.getArguments().size(); i++) {
+            argument = currentMethod.getVariables().get(i);
+            function.addParameter(module.valueType(argument.getType()), "%." + argument.getRegName().substring(1));
         }
 
-        writeOutput("\n");
-
-        currentVariable = null;
-
-        // ** Statement **
-        if(n.f8.present())
-            n.f8.accept(this, null);
-
-        writeOutput("\n");
-
-        // ** Return Statement **
-        returnStatement = (FieldInfo)n.f10.accept(this, null);
-
-        if(returnStatement.getType().equals("identifier")) {
-            if(currentMethod.variableNameExists(returnStatement.getName())) {
-                // Case 1: Local variable of the method
-                returnStatement = currentMethod.getCertainVariable(returnStatement.getName());
-
-                returnRegister =  returnStatement.getRegName();
-                type = returnStatement.getType();
-            }
-            else if(currentMethod.getOwner().fieldNameExists(returnStatement.getName())) {
-                // Case 2: Field of the owning class
-                returnStatement = currentMethod.getOwner().getCertainField(returnStatement.getName());
-
-                // Getting a pointer to the data field
-                String ptr = getTempVariable();
-                writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (returnStatement.getOffset()+8) + "\n");
-
-                // Performing the necassary bitcasts
-                String temp = getTempVariable();
-                writeOutput("\t" + temp + " = bitcast i8* " + ptr + " to " + vTables.setType(returnStatement.getType()) + "*\n");
-
-                returnRegister = getTempVariable();
-                writeOutput("\t" + returnRegister + " = load " + vTables.setType(returnStatement.getType()) + ", ");
-                writeOutput(vTables.setType(returnStatement.getType()) + "* " + temp + "\n\n");
-
-                type = vTables.setType(returnStatement.getType());
-            }
-            else if(currentMethod.getOwner().inheritedField(returnStatement.getName())) {
-                // Case 3: Field of a super class
-                returnStatement = currentMethod.getOwner().getInheritedField(returnStatement.getName());
-
-                registerNames[0] = getTempVariable();
+        function.placeBlock(function.newBlock(null));
+        classType = module.type(ObjectLayout.typeName(currentMethod.getOwner()));
+        self = function.cast(IRFunction.BITCAST, thisValue, module.pointerTo(classType), "%self");
+        allocateVariables();
 
-                writeOutput("\t" + registerNames[0] + " = getelementptr i8, i8* %this, ");
-                writeOutput("i32 " + (returnStatement.getOffset() + 8) + "\n");
-
-                registerNames[1] = getTempVariable();
-
-                type = vTables.setType(returnStatement.getType());
-
-                writeOutput("\t" + registerNames[1] + " = bitcast i8* " + registerNames[0] + " to ");
-                writeOutput(type + "*\n");
-
-                returnRegister = getTempVariable();
-
-                writeOutput("\t" + returnRegister + " = load " + type + ", " + type + "* " + registerNames[1] + "\n\n");
-            }
-
-            writeOutput("\n\tret " + type + " " + returnRegister);
-        }
-        else if(returnStatement.getType().equals("int")) {
-            writeOutput("\n\tret i32 " + returnStatement.getName());
-        }
-        else if(returnStatement.getType().equals("messageSend"))
-            writeOutput("\n\tret i32 " + returnStatement.getName());
-        else
-            writeOutput("\n\tret i32 " + returnStatement.getName());
+        n.f8.accept(this, null);
+        function.ret(n.f10.accept(this, null));
 
+        module.addFunction(function);
         currentMethod = null;
-        registers = 0;
-
-        writeOutput("\n}\n\n");
         return null;
     }
 
     /**
-     * f0 -> "System.out.println"
-     * f1 -> "("
+     * f0 -> Identifier()
+     * f1 -> "="
      * f2 -> Expression()
-     * f3 -> ")"
-     * f4 -> ";"
+     * f3 -> ";"
      */
-    public Info visit(PrintStatement n, Info argu) {
-
-        FieldInfo expression;
-        String registerName = null;
-        String type;
-
-        expression = (FieldInfo)n.f2.accept(this, null);
-
-        if(expression.getType().equals("identifier")) {
-            String identifierName;
-
-            identifierName = expression.getName();
-
-            if(currentMethod.variableNameExists(identifierName)) {
-                // Case 1: Local variable of the method
-                expression = currentMethod.getCertainVariable(identifierName);
-                type = vTables.setType(expression.getType());
-                registerName = getTempVariable();
-                writeOutput("\t" + registerName + " = load " + type + ", " + type + "* " + expression.getRegName() + "\n");
-
-                //writeOutput("\tcall void(i32) @print_int(i32 " + registerName + ")\n");
-            }
-            else if(currentMethod.getOwner().fieldNameExists(identifierName)) {
-                // Case 2: Field of the owning class
-                expression = currentMethod.getOwner().getCertainField(identifierName);
-
-                // Getting a pointer to the field
-                String ptr = getTempVariable();
-                writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (expression.getOffset()+8) + "\n");
-
-                // Performing the necessary bitcasts
-                registerName = getTempVariable();
-                writeOutput("\t" + registerName + " = bitcast i8* " + ptr + " to " + vTables.setType(expression.getType()) + "*\n");
-                //writeOutput("\tcall void(i32) @print_int(i32 " + registerName + ")\n");
-
-
-            }
-            else if(currentMethod.getOwner().inheritedField(identifierName)) {
-                // Case 3: Field of a super class
-                expression = currentMethod.getOwner().getInheritedField(identifierName);
-
-                // Getting a pointer to the field
-                String ptr = getTempVariable();
-                writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (expression.getOffset()+8) + "\n");
-
-                // Performing the necessary bitcasts
-                registerName = getTempVariable();
-                writeOutput("\t" + registerName + " = bitcast i8* " + ptr + " to " + vTables.setType(expression.getType()) + "*\n");
-                //writeOutput("\tcall void(i32) @print_int(i32 " + registerName + ")\n");
-            }
+    public Integer visit(AssignmentStatement n, Integer argu) {
+        int value = n.f2.accept(this, null);
 
-        }
-        else
-            registerName = expression.getName();
-
-        writeOutput("\tcall void (i32) @print_int(i32 " + registerName + ")\n");
-
-        return expression;
+        function.store(value, variablePointer(n.f0.f0.toString()));
+        return null;
     }
 
     /**
      * f0 -> Identifier()
-     * f1 -> "="
+     * f1 -> "["
      * f2 -> Expression()
-     * f3 -> ";"
+     * f3 -> "]"
+     * f4 -> "="
+     * f5 -> Expression()
+     * f6 -> ";"
      */
-    public Info visit(AssignmentStatement n, Info argu) {
-
-        FieldInfo identifier;
-        FieldInfo expression;
-        VariableType variableType;
-        String type1 = null, arg1 = null, type2 = null, arg2 = null;
-
-        // Getting the expression
-        expression = (FieldInfo)n.f2.accept(this, null);
-
-        if(expression.getType().equals("identifier")) {
-            variableType = findLocation(expression);
-            expression = variableType.getVariable();
+    public Integer visit(ArrayAssignmentStatement n, Integer argu) {
+        int array = function.load(variablePointer(n.f0.f0.toString()));
+        int index = n.f2.accept(this, null);
+        int element = elementPointer(n, array, index);
+        int value = n.f5.accept(this, null);
 
-            if(variableType.getType().equals("local")) {
+        // The elements of a boolean array are bytes
+        if(function.getValueType(value) == IRModule.I1)
+            value = function.cast(IRFunction.ZEXT, value, IRModule.I8);
 
-                type1 = vTables.setType(expression.getType());
-
-                // Loading the local variable
-                String ptr = getTempVariable();
-                writeOutput("\t" + ptr + " = load " + type1);
-                writeOutput(", " + type1 + "* ");
-                writeOutput(expression.getRegName() + "\n");
+        function.store(value, element);
+        return null;
+    }
 
-                arg1 = ptr;
-            }
-            else {
-                type1 = vTables.setType(expression.getType());
+    /**
+     * f0 -> "if"
+     * f1 -> "("
+     * f2 -> Expression()
+     * f3 -> ")"
+     * f4 -> Statement()
+     * f5 -> "else"
+     * f6 -> Statement()
+     */
+    public Integer visit(IfStatement n, Integer argu) {
+        int number = ifCounter++;
+        int thenBlock = function.newBlock("if_then_" + number);
+        int elseBlock = function.newBlock("if_else_" + number);
+        int endBlock = function.newBlock("if_end_" + number);
+        boolean thenFirst;
 
-                // Getting a pointer to the field
-                String ptr = getTempVariable();
-                writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (expression.getOffset()+8) + "\n");
+        branch(n.f2.accept(this, null), thenBlock, elseBlock);
 
-                // Performing the necessary bitcasts
-                String bitcast = getTempVariable();
-                writeOutput("\t" + bitcast + " = bitcast i8* " + ptr + " to " + type1 + "*\n");
+        // The else block comes first, unless the profile says the then block runs more often
+        thenFirst = profile != null && profile.hotter(function.getLabel(thenBlock), function.getLabel(elseBlock));
+        if(thenFirst) {
+            enterBlock(thenBlock);
+            n.f4.accept(this, null);
+            function.branch(endBlock);
+        }
 
-                // Loading the value
-                String tempVar = getTempVariable();
-                writeOutput("\t" + tempVar + " = load " + type1 + ", " + type1 + "* " + bitcast + "\n");
+        enterBlock(elseBlock);
+        n.f6.accept(this, null);
+        function.branch(endBlock);
 
-                arg1 = tempVar;
-            }
-        }
-        else if(expression.getType().equals("newIntArrayExpr")) {
-            type1 = "i32*";
-            arg1 = expression.getName();
-        }
-        else if(expression.getType().equals("newBooleanArrayExpr") || expression.getType().equals("newExpression")) {
-            type1 = "i8*";
-            arg1 = expression.getName();
-        }
-        else if(expression.getType().equals("boolean")) {
-            type1 = "i1";
-            arg1 = expression.getName();
-        }
-        else{
-            type1 = "i32";
-            arg1 = expression.getName();
+        if(!thenFirst) {
+            enterBlock(thenBlock);
+            n.f4.accept(this, null);
+            function.branch(endBlock);
         }
 
-        // Getting the identifier
-        identifier = (FieldInfo)n.f0.accept(this, null);
-        variableType = findLocation(identifier);
-        identifier = variableType.getVariable();
+        function.placeBlock(endBlock);
+        return null;
+    }
 
-        if(!variableType.getType().equals("local")) {
-            // Getting a pointer to the field of the class
-            String ptr = getTempVariable();
-            writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (identifier.getOffset() + 8) + "\n");
+    /**
+     * f0 -> "while"
+     * f1 -> "("
+     * f2 -> Expression()
+     * f3 -> ")"
+     * f4 -> Statement()
+     */
+    public Integer visit(WhileStatement n, Integer argu) {
+        int conditionBlock = function.newBlock("loop" + whileLoopCounter++);
+        int bodyBlock = function.newBlock("loop" + whileLoopCounter++);
+        int exitBlock = function.newBlock("loop" + whileLoopCounter++);
 
-            type2 = vTables.setType(identifier.getType()) + "*"; // Pointer to the identifier
-            arg2 = getTempVariable();
+        function.branch(conditionBlock);
 
-            writeOutput("\t" + arg2 + " = bitcast i8* " + ptr + " to " + type2 + "\n");
-        }
-        else {
-            type2 = vTables.setType(identifier.getType()) + "*"; // Pointer to the identifier
-            arg2 = identifier.getRegName();
-        }
+        function.placeBlock(conditionBlock);
+        branch(n.f2.accept(this, null), bodyBlock, exitBlock);
 
-        writeOutput("\tstore " + type1 + " " + arg1 + ", " + type2 + " " + arg2 + "\n\n");
+        enterBlock(bodyBlock);
+        n.f4.accept(this, null);
+        function.branch(conditionBlock);
 
+        enterBlock(exitBlock);
         return null;
     }
 
     /**
-     * f0 -> AndExpression()
-     *       | CompareExpression()
-     *       | PlusExpression()
-     *       | MinusExpression()
-     *       | TimesExpression()
-     *       | ArrayLookup()
-     *       | ArrayLength()
-     *       | MessageSend()
-     *       | Clause()
+     * f0 -> "System.out.println"
+     * f1 -> "("
+     * f2 -> Expression()
+     * f3 -> ")"
+     * f4 -> ";"
      */
-    public Info visit(Expression n, Info argu) {
-        FieldInfo expression = (FieldInfo)n.f0.accept(this, null);
-        return expression;
+    public Integer visit(PrintStatement n, Integer argu) {
+        int value = n.f2.accept(this, null);
+
+        if(function.getValueType(value) == IRModule.I1)
+            value = function.cast(IRFunction.ZEXT, value, IRModule.I32);
+
+        callRuntime(IRModule.VOID, "@print_int", "i32", value);
+        return null;
     }
 
     /**
-     * f0 -> PrimaryExpression()
-     * f1 -> "."
-     * f2 -> "length"
+     * f0 -> Clause()
+     * f1 -> "&&"
+     * f2 -> Clause()
      */
-    public Info visit(ArrayLength n, Info argu) {
-
-
-        FieldInfo primaryExpression;
-        String sizeReg = null;
-        VariableType variableType = null;
-        boolean booleanArray = false;
-        String ptr = null, arrayAddr = null, arraySize = null;
-        String registerName = null;
+    public Integer visit(AndExpression n, Integer argu) {
+        int falseBlock = function.newBlock("exp_res_" + labelCounter++);
+        int rightBlock = function.newBlock("exp_res_" + labelCounter++);
+        int endBlock = function.newBlock("exp_res_" + labelCounter++);
+        int right, rightEnd;
 
-        primaryExpression = (FieldInfo)n.f0.accept(this, null);
+        // The right clause is only evaluated when the left one holds
+        function.branch(n.f0.accept(this, null), rightBlock, falseBlock);
 
-        variableType = findLocation(primaryExpression);
-        primaryExpression = variableType.getVariable();
-
-        registerName = primaryExpression.getRegName();
-
-        if(primaryExpression.getType().equals("boolean[]"))
-            booleanArray = true;
-
-        // Loading the address of the array
-        if(booleanArray) {
-            ptr = getTempVariable();
-            arraySize = getTempVariable();
-            arrayAddr = getTempVariable();
-
-            writeOutput("\t" + ptr + " = load i8*, i8** " + primaryExpression.getRegName() + "\n");
-            writeOutput("\t" + arrayAddr + " = bitcast i8* " + ptr + " to i32*\n");
-        }
-        else {
-            arrayAddr = getTempVariable();
-            arraySize = getTempVariable();
-            writeOutput("\t" + arrayAddr + " = load i32*, i32** " + registerName + "\n");
-        }
+        function.placeBlock(falseBlock);
+        function.branch(endBlock);
 
-        // Loading the size of the array
-        writeOutput("\t" + arraySize + " = load i32, i32* " + arrayAddr + "\n");
+        function.placeBlock(rightBlock);
+        right = n.f2.accept(this, null);
+        rightEnd = function.getCurrentBlock(); // The clause may have blocks of its own
+        function.branch(endBlock);
 
-        return new FieldInfo("int", arraySize, -1, false);
+        function.placeBlock(endBlock);
+        return function.phi(IRModule.I1, function.constant(IRModule.I1, "0"), falseBlock, right, rightEnd);
     }
 
     /**
      * f0 -> PrimaryExpression()
-     * f1 -> "["
+     * f1 -> "<"
      * f2 -> PrimaryExpression()
-     * f3 -> "]"
      */
-    public Info visit(ArrayLookup n, Info argu) {
-
-        VariableType variableType;
-        String okLabel, errorLabel;
-        String[] tempVariables;
-        String arrayAddr = null, arraySize;
-        String index = null;
-        String registerName = null;
-        String value = null;
-        String type = null;
-        String ptr = null;
-        boolean booleanArray = false;
-        FieldInfo firstPrimaryExpression;
-        FieldInfo secondPrimaryExpression;
-
-        okLabel = "oob_ok_" + ArrayAssignmentCounter;
-        errorLabel = "oob_err_" + ArrayAssignmentCounter;
-        ArrayAssignmentCounter++;
-
-        firstPrimaryExpression = (FieldInfo)n.f0.accept(this, null);
-        secondPrimaryExpression = (FieldInfo)n.f2.accept(this, null);
-
-        if(firstPrimaryExpression.getType().equals("identifier")) {
-            variableType = findLocation(firstPrimaryExpression);
-            firstPrimaryExpression = variableType.getVariable();
-
-            if(firstPrimaryExpression.getType().equals("boolean[]"))
-                booleanArray = true;
-
-            type = firstPrimaryExpression.getType();
-            if(type.equals("int[]"))
-                type = "int";
-            else
-                type = "boolean";
-            registerName = firstPrimaryExpression.getRegName();
-        }
-
-        // Loading the address of the array
-        if(booleanArray) {
-            ptr = getTempVariable();
-            arraySize = getTempVariable();
-            arrayAddr = getTempVariable();
-
-            writeOutput("\t" + ptr + " = load i8*, i8** " + firstPrimaryExpression.getRegName() + "\n");
-            writeOutput("\t" + arrayAddr + " = bitcast i8* " + ptr + " to i32*\n");
-        }
-        else {
-            arrayAddr = getTempVariable();
-            arraySize = getTempVariable();
-            writeOutput("\t" + arrayAddr + " = load i32*, i32** " + registerName + "\n");
-        }
-
-        // Loading the size of the array
-        //arraySize = getTempVariable();
-        writeOutput("\t" + arraySize + " = load i32, i32* " + arrayAddr + "\n");
-
-        if(secondPrimaryExpression.getType().equals("identifier")) {
-            variableType = findLocation(secondPrimaryExpression);
-            secondPrimaryExpression = variableType.getVariable();
-
-            if(variableType.getType().equals("local")) {
-                index = getTempVariable();
-                writeOutput("\t" + index + " = load i32, i32* " + secondPrimaryExpression.getRegName() + "\n");
-            }
-            else {
-                String pointer = getTempVariable();
-                writeOutput("\t" + pointer + " = getelementptr i8, i8* %this, i32 " + (secondPrimaryExpression.getOffset()+8) + "\n");
-
-                String bitcast = getTempVariable();
-                writeOutput("\t" + bitcast + " bitcast i8* " + pointer + " to i32*\n");
-
-                index = getTempVariable();
-                writeOutput("\t" + index + " = load i32, i32* " + bitcast + "\n");
-            }
-        }
-        else if(secondPrimaryExpression.getType().equals("int"))
-            index = secondPrimaryExpression.getName();
-        else
-            index = secondPrimaryExpression.getName();
-
-        tempVariables = new String[5];
-        for(int i = 0; i < 5; i++)
-            tempVariables[i] = getTempVariable();
-
-        // Checking that the provided index is greater than zero
-        writeOutput("\t" + tempVariables[0] + " = icmp sge i32 " + index + ", 0\n");
-
-        // Checking that the index is less than the size of the array
-        writeOutput("\t" + tempVariables[1] + " = icmp slt i32 " + index + ", " + arraySize + '\n');
-
-        // Both of the above conditions must hold
-        writeOutput("\t" + tempVariables[2] + " = and i1 " + tempVariables[0] + ", " + tempVariables[1] + "\n");
-        writeOutput("\tbr i1 " + tempVariables[2] + ", label %" + okLabel + ", label %" + errorLabel + "\n\n");
-
-        // If that's not the case, throw an out of bounds exception
-        writeOutput("\t" + errorLabel + ":\n");
-        writeOutput("\tcall void @throw_oob()\n");
-        writeOutput("\tbr label %" + okLabel + "\n\n");
-
-        // Everything's ok, moving on to indexing the array
-        writeOutput(okLabel + ":\n");
-
-        if(booleanArray) {
-            // Adding four to the index, since the first element holds the size
-            writeOutput("\t" + tempVariables[3] + " = add i32 4, " + index + "\n");
-
-            // Getting a pointer to the (i+1)th element of the array
-            writeOutput("\t" + tempVariables[4] + " = getelementptr i8, i8* " + ptr + ", i32 " + tempVariables[3] + "\n");
-
-            // Loading the value
-            String tempVar = getTempVariable();
-            writeOutput("\t" + tempVar + " = load i8, i8* " + tempVariables[4] + "\n");
-
-            value = getTempVariable();
-            writeOutput("\t" + value + " = trunc i8 " + tempVar + " to i1\n\n");
-        }
-        else {
-            // Adding one to the index, since the first element holds the size
-            writeOutput("\t" + tempVariables[3] + " = add i32 1, " + index + "\n");
-
-            // Getting a pointer to the (i+1)th element of the array
-            writeOutput("\t" + tempVariables[4] + " = getelementptr i32, i32* " + arrayAddr + ", i32 " + tempVariables[3] + "\n");
+    public Integer visit(CompareExpression n, Integer argu) {
+        int left = n.f0.accept(this, null);
+        int right = n.f2.accept(this, null);
 
-            // Loading the value
-            value = getTempVariable();
-            writeOutput("\t" + value + " = load i32, i32* " + tempVariables[4] + "\n\n");
-        }
-
-        return new FieldInfo("arrayLookUp", value, -1, false);
+        return function.binary(IRFunction.ICMP_SLT, left, right);
     }
 
     /**
@@ -952,76 +473,11 @@ public class Translator extends GJDepthFirst<Info, Info> {
      * f1 -> "+"
      * f2 -> PrimaryExpression()
      */
-    public Info visit(PlusExpression n, Info argu) {
-
-        VariableType variableType;
-        FieldInfo firstPrimaryExpression;
-        FieldInfo secondPrimaryExpression;
-        String addend_1 = null, addend_2 = null, sum = null;
-
-        firstPrimaryExpression = (FieldInfo)n.f0.accept(this, null);
-        secondPrimaryExpression = (FieldInfo)n.f2.accept(this, null);
-
-        if(firstPrimaryExpression.getType().equals("identifier")) {
-            variableType = findLocation(firstPrimaryExpression);
-            firstPrimaryExpression = variableType.getVariable();
-
-            if(variableType.getType().equals("local")) {
-                addend_1 = getTempVariable();
-                String type = vTables.setType(firstPrimaryExpression.getType());
-
-                writeOutput("\t" + addend_1 + " = load " + type + ", " + type + "* ");
-                writeOutput(firstPrimaryExpression.getRegName() + "\n");
-            }
-            else {
-                // Getting a pointer to the field
-                String ptr = getTempVariable();
-                writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (firstPrimaryExpression.getOffset()+8) + "\n");
-
-                // Performing the necessary bitcasts
-                String bitcast = getTempVariable();
-                writeOutput("\t" + bitcast + " = bitcast i8* " + ptr + " to " + vTables.setType(firstPrimaryExpression.getType()) + "*\n");
-
-                // Loading the value
-                addend_1 = getTempVariable();
-                writeOutput("\t" + addend_1 + " = load i32, i32* " + bitcast + "\n");
-            }
-        }
-        else
-            addend_1 = firstPrimaryExpression.getName();
-
-        if(secondPrimaryExpression.getType().equals("identifier")) {
-            variableType = findLocation(secondPrimaryExpression);
-            secondPrimaryExpression = variableType.getVariable();
-
-            if(variableType.getType().equals("local")) {
-                addend_2 = getTempVariable();
-                String type = vTables.setType(secondPrimaryExpression.getType());
-                writeOutput("\t" + addend_2 + " = load " + type);
-                writeOutput(", " + type + "* ");
-                writeOutput(secondPrimaryExpression.getRegName() + "\n");
-            }
-            else {
-                // Getting a pointer to the field
-                String ptr = getTempVariable();
-                writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (secondPrimaryExpression.getOffset()+8) + "\n");
-
-                // Performing the necessary bitcasts
-                String bitcast = getTempVariable();
-                writeOutput("\t" + bitcast + " = bitcast i8* " + ptr + " to " + vTables.setType(firstPrimaryExpression.getType()) + "*\n");
-
-                // Loading the value
-                addend_2 = getTempVariable();
-                writeOutput("\t" + addend_2 + " = load i32, i32* " + bitcast + "\n");
-            }
-        }
-        else
-            addend_2 = secondPrimaryExpression.getName();
+    public Integer visit(PlusExpression n, Integer argu) {
+        int left = n.f0.accept(this, null);
+        int right = n.f2.accept(this, null);
 
-        sum = getTempVariable();
-        writeOutput("\t" + sum + " = add i32 " + addend_1 + ", " + addend_2 + "\n");
-
-        return new FieldInfo("int", sum, -1, false);
+        return function.binary(IRFunction.ADD, left, right);
     }
 
     /**
@@ -1029,314 +485,54 @@ public class Translator extends GJDepthFirst<Info, Info> {
      * f1 -> "-"
      * f2 -> PrimaryExpression()
      */
-    public Info visit(MinusExpression n, Info argu) {
-
-        VariableType variableType;
-        FieldInfo firstPrimaryExpression;
-        FieldInfo secondPrimaryExpression;
-        String minuend = null, subtrahend = null, difference = null;
-
-        firstPrimaryExpression = (FieldInfo)n.f0.accept(this, null);
-        secondPrimaryExpression = (FieldInfo)n.f2.accept(this, null);
-
-        if(firstPrimaryExpression.getType().equals("identifier")) {
-
-            variableType = findLocation(firstPrimaryExpression);
-            firstPrimaryExpression = variableType.getVariable();
-
-            if(variableType.getType().equals("local")) {
-
-                minuend = getTempVariable();
-
-                writeOutput("\t" + minuend + " = load " + vTables.setType(firstPrimaryExpression.getType()));
-                writeOutput(", " + vTables.setType(firstPrimaryExpression.getType()) + "* ");
-                writeOutput(firstPrimaryExpression.getRegName() + "\n");
-            }
-            else {
-                // Getting a pointer to the field
-                String ptr = getTempVariable();
-                writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (firstPrimaryExpression.getOffset()+8) + "\n");
-
-                // Performing the necessary bitcasts
-                String bitcast = getTempVariable();
-                writeOutput("\t" + bitcast + " = bitcast i8* " + ptr + " to " + vTables.setType(firstPrimaryExpression.getType()) + "*\n");
-
-                minuend = getTempVariable();
-                writeOutput("\t" + minuend + " = load i32, i32* " + bitcast + "*\n");
-            }
-        }
-        else
-            minuend = firstPrimaryExpression.getName();
-
-        if(secondPrimaryExpression.getType().equals("identifier")) {
-            variableType = findLocation(secondPrimaryExpression);
-            secondPrimaryExpression = variableType.getVariable();
-
-            if(variableType.getType().equals("local")) {
-                subtrahend = getTempVariable();
-                writeOutput("\t" + subtrahend + " = load " + vTables.setType(secondPrimaryExpression.getType()));
-                writeOutput(", " + vTables.setType(secondPrimaryExpression.getType()) + "* ");
-                writeOutput(secondPrimaryExpression.getRegName() + "\n");
-            }
-            else {
-                // Getting a pointer to the field
-                String ptr = getTempVariable();
-                writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (secondPrimaryExpression.getOffset()+8) + "\n");
-
-                // Performing the necessary bitcasts
-                String bitcast = getTempVariable();
-                writeOutput("\t" + bitcast + " = bitcast i8* " + ptr + " to " + vTables.setType(firstPrimaryExpression.getType()) + "*\n");
-
-                subtrahend = getTempVariable();
-                writeOutput("\t" + subtrahend + " = load i32, i32* " + bitcast + "*\n");
-            }
-        }
-        else
-            subtrahend = secondPrimaryExpression.getName();
+    public Integer visit(MinusExpression n, Integer argu) {
+        int left = n.f0.accept(this, null);
+        int right = n.f2.accept(this, null);
 
-        difference = getTempVariable();
-        writeOutput("\t" + difference + " = sub i32 " + minuend + ", " + subtrahend + "\n");
-
-        return new FieldInfo(/*"sub"*/"int", difference, -1, false);
+        return function.binary(IRFunction.SUB, left, right);
     }
 
     /**
-     * f0 -> Clause()
-     * f1 -> "&&"
-     * f2 -> Clause()
+     * f0 -> PrimaryExpression()
+     * f1 -> "*"
+     * f2 -> PrimaryExpression()
      */
-    public Info visit(AndExpression n, Info argu) {
-
-        String result;
-        String left = null, right = null;
-        String label_0, label_1, label_2, label_3;
-        FieldInfo firstClause, secondClause;
-        VariableType variableType = null;
-
-        firstClause = (FieldInfo)n.f0.accept(this, null);
-
-        if(firstClause.getType().equals("identifier")) {
-
-            variableType = findLocation(firstClause);
-            firstClause = variableType.getVariable();
-
-            if(variableType.getType().equals("local")) {
-                left = getTempVariable();
-                writeOutput("\t" + left + " = load i1, i1* " + firstClause.getRegName() + "\n");
-            }
-            else {
-                String ptr = getTempVariable();
-                writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (firstClause.getOffset()+8) + "\n");
-
-                String bitcast = getTempVariable();
-                writeOutput("\t" + bitcast + " = bitcast i8* " + ptr + " to i1*\n");
-
-                left = getTempVariable();
-                writeOutput("\t" + left + " = load i1, i1* " + bitcast + "\n");
-            }
-        }
-        else
-            left = firstClause.getName();
-
-        label_0 = "exp_res_" + labelCounter++;
-        label_1 = "exp_res_" + labelCounter++;
-        label_2 = "exp_res_" + labelCounter++;
-        label_3 = "exp_res_" + labelCounter++;
-
-        writeOutput("\tbr i1 " + left + ", label %" + label_1 + ", label %" + label_0 + "\n\n");
-
-        writeOutput(label_0 + ":\n");
-        writeOutput("\tbr label %" + label_2 + "\n\n");
-
-        writeOutput(label_1 + ":\n");
-        secondClause = (FieldInfo)n.f2.accept(this, null);
-
-        if(secondClause.getType().equals("identifier")) {
-
-            variableType = findLocation(secondClause);
-            secondClause = variableType.getVariable();
-
-            if(variableType.getType().equals("local")) {
-                right = getTempVariable();
-                writeOutput("\t" + right + " = load i1, i1* " + secondClause.getRegName() + "\n\n");
-            }
-            else {
-                String ptr = getTempVariable();
-                writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (secondClause.getOffset()+8) + "\n");
-
-                String bitcast = getTempVariable();
-                writeOutput("\t" + bitcast + " = bitcast i8* " + ptr + " to i1*\n");
-
-                // Loading the value
-                right = getTempVariable();
-                writeOutput("\t" + right + " = load i1, i1* " + bitcast + "\n");
-            }
-        }
-        else
-            right = secondClause.getName();
-
-        writeOutput("\tbr label %" + label_2 + "\n\n");
+    public Integer visit(TimesExpression n, Integer argu) {
+        int left = n.f0.accept(this, null);
+        int right = n.f2.accept(this, null);
 
-
-        writeOutput(label_2 + ":\n");
-        writeOutput("\tbr label %" + label_3 + "\n\n");
-
-        writeOutput(label_3 + ":\n");
-        result = getTempVariable();
-        writeOutput("\t" + result + " = phi i1 [0, %" + label_0 + "], ");
-        writeOutput("[" + right + ", %" + label_2 + "]\n\n");
-
-        return new FieldInfo("boolean", result, -1, false);
+        return function.binary(IRFunction.MUL, left, right);
     }
 
     /**
      * f0 -> PrimaryExpression()
-     * f1 -> "<"
+     * f1 -> "["
      * f2 -> PrimaryExpression()
+     * f3 -> "]"
      */
-    public Info visit(CompareExpression n, Info argu) {
-
-        String result;
-        String left = null, right = null;
-        FieldInfo firstPrimaryExpression, secondPrimaryExpression;
-        VariableType variableType;
-
-        firstPrimaryExpression = (FieldInfo)n.f0.accept(this, null);
-        secondPrimaryExpression = (FieldInfo)n.f2.accept(this, null);
-
-        if(firstPrimaryExpression.getType().equals("identifier")) {
-
-            variableType = findLocation(firstPrimaryExpression);
-            firstPrimaryExpression = variableType.getVariable();
-
-            // ** Locating the identifier **
-            if(variableType.getType().equals("local")) {
-                left = getTempVariable();
-                writeOutput("\t" + left + " = load " + vTables.setType(firstPrimaryExpression.getType()));
-                writeOutput(", " + vTables.setType(firstPrimaryExpression.getType()) + "* ");
-                writeOutput(firstPrimaryExpression.getRegName() + "\n");
-
-            }
-            else {
-                String ptr = getTempVariable();
-                writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (firstPrimaryExpression.getOffset()+8) + "\n");
-
-                String bitcast = getTempVariable();
-                writeOutput("\t" + bitcast + " = bitcast i8* " + ptr + " to i1*\n");
-
-                left = getTempVariable();
-                writeOutput("\t" + left + " = load i1, i1* " + bitcast + "\n");
-            }
-        }
-        else
-            left = firstPrimaryExpression.getName();
-
-
-        if(secondPrimaryExpression.getType().equals("identifier")) {
-           variableType = findLocation(secondPrimaryExpression);
-           secondPrimaryExpression = variableType.getVariable();
-
-           if(variableType.equals("local")) {
-               right = getTempVariable();
-               writeOutput("\t" + right + " = load " + vTables.setType(firstPrimaryExpression.getType()));
-               writeOutput(", " + vTables.setType(firstPrimaryExpression.getType()) + "* ");
-               writeOutput(firstPrimaryExpression.getRegName() + "\n");
-           }
-           else {
-               String ptr = getTempVariable();
-               writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (firstPrimaryExpression.getOffset()+8) + "\n");
-
-               String bitcast = getTempVariable();
-               writeOutput("\t" + bitcast + " = bitcast i8* " + ptr + " to i1*\n");
-
-               right = getTempVariable();
-               writeOutput("\t" + right + " = load i1, i1* " + bitcast + "\n");
-           }
-        }
-        else
-            right = secondPrimaryExpression.getName();
+    public Integer visit(ArrayLookup n, Integer argu) {
+        int array = n.f0.accept(this, null);
+        int index = n.f2.accept(this, null);
+        int value = function.load(elementPointer(n, array, index));
 
-        result = getTempVariable();
+        if(function.getValueType(value) == IRModule.I8)
+            value = function.cast(IRFunction.TRUNC, value, IRModule.I1);
 
-        writeOutput("\t" + result + " = icmp slt i32 " + left + ", " + right + "\n");
-
-        return new FieldInfo("boolean", result, -1, false);
+        return value;
     }
 
     /**
      * f0 -> PrimaryExpression()
-     * f1 -> "*"
-     * f2 -> PrimaryExpression()
+     * f1 -> "."
+     * f2 -> "length"
      */
-    public Info visit(TimesExpression n, Info argu) {
-
-        VariableType variableType;
-        FieldInfo firstPrimaryExpression;
-        FieldInfo secondPrimaryExpression;
-        String factor_1 = null, factor_2 = null, product;
-
-        firstPrimaryExpression = (FieldInfo)n.f0.accept(this, null);
-        secondPrimaryExpression = (FieldInfo)n.f2.accept(this, null);
-
-        if(firstPrimaryExpression.getType().equals("identifier")) {
-            variableType = findLocation(firstPrimaryExpression);
-            firstPrimaryExpression = variableType.getVariable();
-
-            if(variableType.getType().equals("local")) {
-                factor_1 = getTempVariable();
-                String type = vTables.setType(firstPrimaryExpression.getType());
-
-                writeOutput("\t" + factor_1 + " = load " + type + ", ");
-                writeOutput(type + "* " + firstPrimaryExpression.getRegName() + "\n");
-            }
-            else {
-                // Getting a pointer to the field
-                String ptr = getTempVariable();
-                writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (firstPrimaryExpression.getOffset()+8) + "\n");
-
-                // Performing the necessary bitcasts
-                String bitcast = getTempVariable();
-                writeOutput("\t" + bitcast + " = bitcast i8* " + ptr + " to " + vTables.setType(firstPrimaryExpression.getType()) + "*\n");
-
-                factor_1 = getTempVariable();
-                writeOutput("\t" + factor_1 + " = load i32, i32* " + bitcast + "\n");
-            }
-        }
-        else
-            factor_1 = firstPrimaryExpression.getName();
-
-        if(secondPrimaryExpression.getType().equals("identifier")) {
-            variableType = findLocation(secondPrimaryExpression);
-            secondPrimaryExpression = variableType.getVariable();
-
-            if(variableType.getType().equals("local")) {
-                factor_2 = getTempVariable();
-                String type = vTables.setType(secondPrimaryExpression.getType());
-
-                // Loading the value of the variable
-                writeOutput("\t" + factor_2 + " = load " + type + ", ");
-                writeOutput(type + "* " + secondPrimaryExpression.getRegName() + '\n');
-            }
-            else {
-                String ptr = getTempVariable();
-                writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (firstPrimaryExpression.getOffset()+8) + "\n");
-
-                // Performing the necessary bitcasts
-                String bitcast = getTempVariable();
-                writeOutput("\t" + bitcast + " = bitcast i8* " + ptr + " to " + vTables.setType(firstPrimaryExpression.getType()) + "*\n");
-
-                factor_2 = getTempVariable();
-                writeOutput("\t" + factor_2 + " = load i32, i32* " + bitcast + "\n");
-            }
-        }
-        else
-            factor_2 = secondPrimaryExpression.getName();
+    public Integer visit(ArrayLength n, Integer argu) {
+        int array = n.f0.accept(this, null);
 
-        product = getTempVariable();
+        if(function.getValueType(array) == IRModule.I8_PTR)
+            array = function.cast(IRFunction.BITCAST, array, IRModule.I32_PTR);
 
-        writeOutput("\t" + product + " = mul i32 " + factor_1 + ", " + factor_2 + "\n\n");
-
-        return new FieldInfo("int", product, -1, false);
+        return function.load(array);
     }
 
     /**
@@ -1347,168 +543,63 @@ public class Translator extends GJDepthFirst<Info, Info> {
      * f4 -> ( ExpressionList() )?
      * f5 -> ")"
      */
-    public Info visit(MessageSend n, Info argu) {
-
-        int index;
-        String type;
-        String methodName;
-        FieldInfo primaryExpression;
-        MethodInfo calledMethod;
-        String[] registerName;
-        String result = null;
-        FieldInfo messageSend = null;
-        boolean thisExpr = false;
-        VariableType variableType = null;
-
-        registerName = new String[7];
-        primaryExpression = (FieldInfo)n.f0.accept(this, null);
-
-        if(primaryExpression.getType().equals("identifier")) {
-            // The primary expression is an object of a class
-
-            variableType = findLocation(primaryExpression);
-            primaryExpression = variableType.getVariable();
-
-            if(variableType.getType().equals("local")) {
-
-                // Load the object pointer
-                registerName[0] = getTempVariable();
-                writeOutput("\t" + registerName[0] + " = load i8*, i8** " + primaryExpression.getRegName() + "\n");
-
-                // Doing the required bitcasts so that we can access the v-table
-                registerName[1] = getTempVariable();
-                writeOutput("\t" + registerName[1] + " = bitcast i8* " + registerName[0] + " to i8***\n");
-            }
-        }
-        else if(primaryExpression.getType().equals("this")) {
-
-            thisExpr = true;
-
-            // Doing the required bitcasts so that we can access the v-table
-            registerName[1] = getTempVariable();
-            writeOutput("\t" + registerName[1] + " = bitcast i8* %this to i8***\n");
-        }
-
-        // Loading the v-table pointer
-        registerName[2] = getTempVariable();
-        writeOutput("\t" + registerName[2] + " = load i8**, i8*** " + registerName[1] + "\n");
-
-        // Getting the name of the method that's being called
-        methodName = ((FieldInfo)n.f2.accept(this, null)).getName();
-        if(thisExpr)
-            calledMethod = symbolTable.getClass(currentClass.getName()).getClassMethod(methodName);
-        else
-            calledMethod = symbolTable.getClass(primaryExpression.getType()).getClassMethod(methodName);
-
-        if(calledMethod == null) {
-            System.out.print("Error: Method " + calledMethod + " doesn't exist in class " + primaryExpression.getType());
-            System.out.println(" or any of its superclasses");
-            System.exit(1);
-        }
-
-        index = calledMethod.getOffset()/8;
-
-        // Getting a pointer to the first entry of the v-table
-        registerName[3] = getTempVariable();
-        writeOutput("\t" + registerName[3] + " = getelementptr i8*, i8** " + registerName[2] + ", i32 " + index + "\n");
-
-        // Getting the actual function pointer
-        registerName[4] = getTempVariable();
-        writeOutput("\t" + registerName[4] + " = load i8*, i8** " + registerName[3] + "\n");
-
-        // Casting the function pointer from i8* to a function ptr type that matches its signature
-        registerName[5] = getTempVariable();
-        type = vTables.setType(calledMethod.getReturnType());
-        writeOutput("\t" + registerName[5] + " = bitcast i8* " + registerName[4] + " to " + type);
-        writeOutput(" (i8*");
-
-        for(int i = 0; i < calledMethod.getArguments().size(); i++) {
-            writeOutput(", ");
-            type = vTables.setType(calledMethod.getArguments().get(i).getType());
-            writeOutput(type);
-        }
-        writeOutput(")*\n\n");
-
-        registerName[6] = getTempVariable();
-        type = vTables.setType(calledMethod.getReturnType());
-
-        if(thisExpr)
-            writeOutput("\t" + registerName[6] + " = call " + type + " " + registerName[5] + "(i8* %this");
-        else
-            writeOutput("\t" + registerName[6] + " = call " + type + " " + registerName[5] + "(i8* " + registerName[0]);
+    public Integer visit(MessageSend n, Integer argu) {
+        MethodInfo method = symbolTable.calledMethod(currentMethod, n);
+        int slot = method.getOffset() / 8;
+        int returnType = module.valueType(method.getReturnType());
+        CallTarget target = callTargets != null ? callTargets.resolve(symbolTable.classOf(currentMethod, n.f0), slot) : null;
+        IntList arguments = new IntList();
+        int vTable, pointer, virtual, number, directBlock, virtualBlock, endBlock, direct, indirect;
 
+        // The object and then the arguments, from left to right
+        arguments.add(n.f0.accept(this, null));
         if(n.f4.present()) {
-            n.f4.accept(this, null);
+            ExpressionList list = (ExpressionList) n.f4.node;
 
-            for(int i = 0; i < methodArguments.size(); i++) {
-                writeOutput(", ");
-                writeOutput(vTables.setType(methodArguments.get(i).getType()) + " " + methodArguments.get(i).getName());
-            }
-
-            methodArguments.clear();
+            arguments.add(list.f0.accept(this, null));
+            for(Node term : list.f1.f0.nodes)
+                arguments.add(((ExpressionTerm) term).f1.accept(this, null));
         }
 
-        writeOutput(")\n\n");
-        result = registerName[6];
-
-        return new FieldInfo("messageSend", result, -1, false);
-    }
+        // Only one method can be called, so there's no need for the v-table
+        if(target != null && target.getMethod() != null && target.isUnique())
+            return function.call(returnType, functionConstant(target.getMethod()), arguments.toArray());
 
-    /**
-     * f0 -> Expression()
-     * f1 -> ExpressionTail()
-     */
-    public Info visit(ExpressionList n, Info argu) {
+        vTable = function.load(function.cast(IRFunction.BITCAST, arguments.get(0), IRModule.I8_PTR_PTR_PTR));
+        pointer = function.load(function.getElementPtr(IRModule.I8_PTR, IRModule.I8_PTR_PTR, vTable, function.constant(slot)));
+        virtual = function.cast(IRFunction.BITCAST, pointer, functionType(method));
 
-        FieldInfo expression;
-        FieldInfo expressionTail;
+        if(target == null || target.getMethod() == null)
+            return function.call(returnType, virtual, arguments.toArray());
 
-        expression = (FieldInfo)n.f0.accept(this, null);
-        methodArguments.add(expression);
+        // Most of the classes share one method: it's called directly when the v-table holds it
+        number = callCounter++;
+        directBlock = function.newBlock("call_direct_" + number);
+        virtualBlock = function.newBlock("call_virtual_" + number);
+        endBlock = function.newBlock("call_end_" + number);
 
-        expressionTail = (FieldInfo)n.f1.accept(this, null);
-        if(expressionTail == null) {
-            /* do nothing */
-        }
+        branch(function.binary(IRFunction.ICMP_EQ, pointer, function.constant(IRModule.I8_PTR,
+                    "bitcast (" + module.typeName(functionType(target.getMethod())) + " " + target.functionName() + " to i8*)")),
+               directBlock, virtualBlock);
 
-        return null;
-    }
+        enterBlock(directBlock);
+        direct = function.call(returnType, functionConstant(target.getMethod()), arguments.toArray());
+        function.branch(endBlock);
 
-    /**
-     * f0 -> ( ExpressionTerm() )*
-     */
-    public Info visit(ExpressionTail n, Info argu) {
-        FieldInfo expressionTerm = null;
-        if(n.f0.present())
-            expressionTerm = (FieldInfo)n.f0.accept(this, null);
-        return expressionTerm;
-    }
+        enterBlock(virtualBlock);
+        indirect = function.call(returnType, virtual, arguments.toArray());
+        function.branch(endBlock);
 
-    /**
-     * f0 -> NotExpression()
-     *       | PrimaryExpression()
-     */
-    public Info visit(Clause n, Info argu) {
-        FieldInfo clause = (FieldInfo)n.f0.accept(this, null);
-        return clause;
+        function.placeBlock(endBlock);
+        return function.phi(returnType, direct, directBlock, indirect, virtualBlock);
     }
 
     /**
-     * Grammar production:
      * f0 -> "!"
      * f1 -> Clause()
      */
-    public Info visit(NotExpression n, Info argu) {
-
-        FieldInfo clause;
-        String register;
-
-        clause = (FieldInfo)n.f1.accept(this, null);
-        register = getTempVariable();
-
-        writeOutput("\t" + register + " = xor i1 1, " + clause.getName());
-
-        return new FieldInfo("boolean", register, -1, false);
+    public Integer visit(NotExpression n, Integer argu) {
+        return function.binary(IRFunction.XOR, function.constant(IRModule.I1, "1"), n.f1.accept(this, null));
     }
 
     /**
@@ -1521,36 +612,40 @@ public class Translator extends GJDepthFirst<Info, Info> {
      *       | AllocationExpression()
      *       | BracketExpression()
      */
-    public Info visit(PrimaryExpression n, Info argu) {
-        FieldInfo primaryExpression = (FieldInfo) n.f0.accept(this, null);
-        return primaryExpression;
+    public Integer visit(PrimaryExpression n, Integer argu) {
+        // An identifier is the value of the variable, anywhere else it's just a name
+        if(n.f0.choice instanceof Identifier)
+            return function.load(variablePointer(((Identifier) n.f0.choice).f0.toString()));
+
+        return n.f0.accept(this, null);
     }
 
     /**
-     * f0 -> "this"
+     * f0 -> <INTEGER_LITERAL>
      */
-    public Info visit(ThisExpression n, Info argu) {
-        return new FieldInfo("this", "%this", -1, false);
+    public Integer visit(IntegerLiteral n, Integer argu) {
+        return function.constant(IRModule.I32, n.f0.toString());
     }
 
     /**
-     * f0 -> "("
-     * f1 -> Expression()
-     * f2 -> ")"
+     * f0 -> "true"
      */
-    public Info visit(BracketExpression n, Info argu) {
+    public Integer visit(TrueLiteral n, Integer argu) {
+        return function.constant(IRModule.I1, "1");
+    }
 
-        FieldInfo expression = (FieldInfo)n.f1.accept(this, null);
-        return expression;
+    /**
+     * f0 -> "false"
+     */
+    public Integer visit(FalseLiteral n, Integer argu) {
+        return function.constant(IRModule.I1, "0");
     }
 
     /**
-     * f0 -> BooleanArrayAllocationExpression()
-     *       | IntegerArrayAllocationExpression()
+     * f0 -> "this"
      */
-    public Info visit(ArrayAllocationExpression n, Info argu) {
-        FieldInfo arrayAllocationExpression = (FieldInfo)n.f0.accept(this, null);
-        return arrayAllocationExpression;
+    public Integer visit(ThisExpression n, Integer argu) {
+        return thisValue;
     }
 
     /**
@@ -1560,76 +655,9 @@ public class Translator extends GJDepthFirst<Info, Info> {
      * f3 -> Expression()
      * f4 -> "]"
      */
-    public Info visit(BooleanArrayAllocationExpression n, Info argu) {
-
-        String arraySize = null;
-        String okLabel, errorLabel;
-        String[] tempVariables;
-        FieldInfo expression;
-        VariableType variableType;
-
-        okLabel = "nsz_ok_" + arrayCounter;
-        errorLabel = "nsz_err_" + arrayCounter;
-
-        expression = (FieldInfo)n.f3.accept(this, null);
-
-        if(expression.getType().equals("identifier")) {
-            variableType = findLocation(expression);
-            expression = variableType.getVariable();
-
-            if(variableType.getType().equals("local")) {
-                // Loading the value that's stored in the expression
-                arraySize = getTempVariable();
-                writeOutput("\t" + arraySize + " = load i32, i32* " + expression.getRegName() + "\n");
-            }
-            else {
-                // Getting a pointer to the field
-                String ptr = getTempVariable();
-                writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (expression.getOffset()+8) + "\n");
-
-                // Performing the necessary bitcasts
-                String bitcast = getTempVariable();
-                writeOutput("\t" + bitcast + " = bitcast i8* to i32*\n");
-
-                // Loading the value
-                arraySize = getTempVariable();
-                writeOutput("\t" + arraySize + " = load i32, i32* " + bitcast + "\n");
-            }
-        }
-        else if(expression.getType().equals("int"))
-            arraySize = expression.getName();
-        else
-            arraySize = expression.getName();
-
-        tempVariables = new String[4];
-        for(int i = 0; i < 4; i++)
-            tempVariables[i] = getTempVariable();
-
-        // Calculating arraySize bytes to be allocated for the array (new array[sz] -> add i32 4, sz
-        writeOutput("\t" + tempVariables[0] + " = add i32 4, " + arraySize + "\n");
-
-        // Checking the the size of the array is ≥ 1
-        writeOutput("\t" + tempVariables[1] + " = icmp sge i32 " + tempVariables[0] + ", 4\n");
-        writeOutput("\tbr i1 " + tempVariables[1] + ", label %" + okLabel + ", label %" + errorLabel + "\n\n");
-
-        // If the size is negative, throw a negative size exception
-        writeOutput("\t" + errorLabel + ":\n");
-        writeOutput("\tcall void @throw_nsz()\n");
-        writeOutput("\tbr label %" + okLabel + "\n\n");
-
-        // Everything's okay. We can proceed to the allocation
-        writeOutput("\t" + okLabel + ":\n");
-
-        // Allocating (arraySize + 1) integers (1 byte each)
-        writeOutput("\t" + tempVariables[2] + " = call i8* @calloc(i32 1, i32 " + tempVariables[0] + ")\n");
-
-        // Casting the pointer that was returned
-        writeOutput("\t" + tempVariables[3] + " = bitcast i8* " + tempVariables[2] + " to i32*\n");
-
-        // Storing the size of the array in the first position
-        writeOutput("\tstore i32 " + arraySize + ", i32* " + tempVariables[3] + "\n");
-
-        return new FieldInfo("newBooleanArrayExpr", tempVariables[2], -1, false);
+    public Integer visit(BooleanArrayAllocationExpression n, Integer argu) {
+        // (size + 4) bytes, the first four of which hold the size
+        return allocateArray(n.f3.accept(this, null), "1", 4);
     }
 
     /**
@@ -1639,87 +667,11 @@ public class Translator extends GJDepthFirst<Info, Info> {
      * f3 -> Expression()
      * f4 -> "]"
      */
-    public Info visit(IntegerArrayAllocationExpression n, Info argu) {
-
-        String arraySize = null;
-        String okLabel, errorLabel;
-        String[] tempVariables;
-        FieldInfo expression = null;
-        VariableType variableType;
-
-        okLabel = "nsz_ok_" + arrayCounter;
-        errorLabel = "nsz_err_" + arrayCounter;
-        arrayCounter++;
-
-        expression = (FieldInfo)n.f3.accept(this, null);
-
-        if(expression.getType().equals("identifier")) {
-            variableType = findLocation(expression);
-            expression = variableType.getVariable();
-
-            if(variableType.getType().equals("local")) {
-                // Loading the value that's stored in the expression
-                arraySize = getTempVariable();
-                writeOutput("\t" + arraySize + " = load i32, i32* " + expression.getRegName() + "\n\n");
-            }
-            else {
-                // Getting a pointer to the field
-                String ptr = getTempVariable();
-                writeOutput("\t" + ptr + " = getelementptr i8, i8* %this, i32 " + (expression.getOffset()+8) + "\n");
-
-                // Performing the necessary bitcasts
-                String bitcast = getTempVariable();
-                writeOutput("\t" + bitcast + " = bitcast i8* to i32*\n");
-
-                // Loading the value
-                arraySize = getTempVariable();
-                writeOutput("\t" + arraySize + " = load i32, i32* " + bitcast + "\n\n");
-            }
-
-        }
-        else if(expression.getType().equals("int"))
-            arraySize = expression.getName();
-        else
-            arraySize = expression.getName();
-
-        tempVariables = new String[4];
-        for(int i = 0; i < 4; i++)
-            tempVariables[i] = getTempVariable();
-
-        writeOutput("\t" + tempVariables[0] + " = add i32 1, " + arraySize + "\n");
-        writeOutput("\t" + tempVariables[1] + " = icmp sge i32 " + tempVariables[0] + ", 1\n");
-        writeOutput("\tbr i1 " + tempVariables[1] + ", label %" + okLabel + ", label %" + errorLabel + "\n\n");
-
-        writeOutput(errorLabel + ":\n");
-        writeOutput("\tcall void @throw_nsz()\n");
-        writeOutput("\tbr label %" + okLabel + "\n\n");
-
-        writeOutput(okLabel + ":\n");
-        writeOutput("\t" + tempVariables[2] + " = call i8* @calloc(i32 " + tempVariables[0] + ", i32 4)\n");
-        writeOutput("\t" + tempVariables[3] + " = bitcast i8* " + tempVariables[2] + " to i32*\n");
-        writeOutput("\tstore i32 " + arraySize + ", i32* " + tempVariables[3] + "\n\n");
+    public Integer visit(IntegerArrayAllocationExpression n, Integer argu) {
+        // (size + 1) integers, the first of which holds the size
+        int memory = allocateArray(n.f3.accept(this, null), "4", 1);
 
-        return new FieldInfo("newIntArrayExpr", tempVariables[3], -1, false);
-    }
-
-    /**
-     * f0 -> "false"
-     */
-    public Info visit(FalseLiteral n, Info argu) {
-
-        String booleanValue = n.f0.toString();
-
-        return new FieldInfo("boolean", "0", -1, false);
-    }
-
-    /**
-     * f0 -> "true"
-     */
-    public Info visit(TrueLiteral n, Info argu) {
-
-        String booleanValue = n.f0.toString();
-
-        return new FieldInfo("boolean", "1", -1, false);
+        return function.cast(IRFunction.BITCAST, memory, IRModule.I32_PTR);
     }
 
     /**
@@ -1728,52 +680,29 @@ public class Translator extends GJDepthFirst<Info, Info> {
      * f2 -> "("
      * f3 -> ")"
      */
-    public Info visit(AllocationExpression n, Info argu) {
+    public Integer visit(AllocationExpression n, Integer argu) {
+        String className = n.f1.f0.toString();
+        ClassTables tables = vTables.getClassTables(className);
+        int tableType = module.type("[" + tables.getPointersTable().size() + " x i8*]");
+        int object, vTable;
 
-        int size;
-        int pointersTableSize;
-        FieldInfo identifier;
-        String[] registerName;
-        ClassInfo newClass;
+        // The fields and the pointer to the v-table, which is the first member of the object
+        object = callRuntime(IRModule.I8_PTR, "@calloc", "i32, i32", function.constant(1),
+                             function.constant(symbolTable.getClass(className).getObjectSize() + 8));
 
-        registerName = new String[3];
-        identifier = (FieldInfo) n.f1.accept(this, null); // Name of a class
+        vTable = function.getElementPtr(tableType, IRModule.I8_PTR_PTR, function.constant(module.pointerTo(tableType), tables.getVTableName()),
+                                        function.constant(0), function.constant(0));
+        function.store(vTable, function.cast(IRFunction.BITCAST, object, IRModule.I8_PTR_PTR_PTR));
 
-        newClass = symbolTable.getClass(identifier.getName());
-
-        size = (newClass.getObjectSize()) + 8;
-        registerName[0] = getTempVariable();
-        writeOutput("\t" + registerName[0] + " = call i8* @calloc(i32 1, i32 " + size + ")\n");
-
-        registerName[1] = getTempVariable();
-        writeOutput("\t" + registerName[1] + " = bitcast i8* " + registerName[0] + " to i8***\n");
-
-        pointersTableSize = vTables.getClassTables(identifier.getName()).getPointersTable().size();
-        registerName[2] = getTempVariable();
-        writeOutput("\t" + registerName[2] + " = getelementptr [" + pointersTableSize + " x i8*], [");
-        writeOutput(pointersTableSize + " x i8*]* " + vTables.getClassTables(identifier.getName()).getVTableName());
-        writeOutput(", i32 0, i32 0\n");
-
-        writeOutput("\tstore i8** " + registerName[2] + ", i8*** " + registerName[1] + "\n");
-
-        return (new FieldInfo("newExpression", registerName[0], -1, false));
+        return object;
     }
 
     /**
-     * f0 -> <INTEGER_LITERAL>
-     */
-    public Info visit(IntegerLiteral n, Info argu) {
-        String intValue;
-        intValue = n.f0.toString();
-        return (new FieldInfo("int", intValue, -1, false));
-    }
-
-    /**
-     * f0 -> <IDENTIFIER>
+     * f0 -> "("
+     * f1 -> Expression()
+     * f2 -> ")"
      */
-    public Info visit(Identifier n, Info argu) {
-        String identifierName;
-        identifierName = n.f0.toString();
-        return new FieldInfo("identifier", identifierName, -1, false);
+    public Integer visit(BracketExpression n, Integer argu) {
+        return n.f1.accept(this, null);
     }
 }
@@ -1,26 +1,30 @@
-import java.io.File;
-import java.io.FileOutputStream;
 import java.util.*;
 
 public class VTables extends Info {
 
     private HashMap<String, ClassTables> tablesMap;
     private SymbolTable symbolTable;
-    private FileOutputStream out;
+    private IRWriter out;
+    private ReachabilityAnalysis reachability; // What main can reach, null if everything is written
 
-    public VTables(SymbolTable symbolTable, FileOutputStream out) {
+    public VTables(SymbolTable symbolTable, IRWriter out) {
         super(null, -1);
         tablesMap = new HashMap<String, ClassTables>();
         this.symbolTable = symbolTable;
         this.out = out;
+        reachability = null;
         putVTables();
     }
 
+    // Leaves out the types of the classes that are gone, the V-Tables of the ones that are never
+    // instantiated, and the methods that can't be called
+    public void setReachability(ReachabilityAnalysis reachability) { this.reachability = reachability; }
+
     public ClassTables getClassTables(String className) { return tablesMap.get(className); }
 
     public SymbolTable getSymbolTable() { return this.symbolTable; }
 
-    public FileOutputStream getOutFile() { return this.out; }
+    public IRWriter getOutFile() { return this.out; }
 
     public void putVTables() {
         for(int i = 0; i < symbolTable.getClasses().size(); i++)
@@ -37,19 +41,42 @@ public class VTables extends Info {
             tablesMap.get(symbolTable.getClasses().get(i)).printPointersTable();
     }
 
-    public void pushParent(ClassInfo currentClass, Stack<ClassInfo> stackOfClasses) {
+    // The order in which the V-Tables are written: the classes from the last one
+    // declared to the first, each one after its subclasses and before the MainClass
+    public List<ClassInfo> vTableOrder() {
+
+        List<ClassInfo> order = new ArrayList<ClassInfo>();
+        Set<ClassInfo> added = new HashSet<ClassInfo>();
+        ClassInfo mainClass = symbolTable.getClass(symbolTable.getClasses().get(0));
+        ClassInfo currentClass;
+        List<ClassInfo> missing = new ArrayList<ClassInfo>();
 
-        ClassInfo parent;
-        parent = currentClass.getParent();
+        added.add(mainClass);
 
-        while(parent != null) {
-            pushParent(parent, stackOfClasses);
-            parent = parent.getParent();
-        }
+        // Every class is listed after its superclasses, then the list is reversed
+        for(int i = symbolTable.getClasses().size() - 1; i > 0; i--) {
+
+            currentClass = symbolTable.getClass(symbolTable.getClasses().get(i));
+            if(added.contains(currentClass))
+                continue;
 
-        if(!stackOfClasses.contains(currentClass))
-            stackOfClasses.push(currentClass);
+            // The superclasses above the first one that's listed already are listed too
+            missing.clear();
+            for(ClassInfo ancestor = currentClass.getParent(); ancestor != null && !added.contains(ancestor); ancestor = ancestor.getParent())
+                missing.add(ancestor);
 
+            for(int j = missing.size() - 1; j >= 0; j--) {
+                added.add(missing.get(j));
+                order.add(missing.get(j));
+            }
+
+            added.add(currentClass);
+            order.add(currentClass);
+        }
+
+        Collections.reverse(order);
+        order.add(mainClass);
+        return order;
     }
 
     public String setType(String type) {
@@ -72,110 +99,99 @@ public class VTables extends Info {
         return retType;
     }
 
-    // Writes the V-Table declarations to an .ll file
-    public void writeVTables() {
+    // Writes the struct type of the objects of every class to an .ll file
+    public void writeClassTypes() {
 
-        String s;
-        String className;
-        String methodName;
-        String returnType;
-        String argType;
-        int totalMethods;
-        int totalArgs;
-        int argIndex;
-        Stack<ClassInfo> stackOfClasses; // Keeps track of the correct sequence for the v-tables
         ClassInfo currentClass;
-        MethodInfo currentMethod = null;
-        FieldInfo currentArgument;
+        List<FieldInfo> objectFields;
+        String s;
 
-        stackOfClasses = new Stack<ClassInfo>();
+        for(int i = 0; i < symbolTable.getClasses().size(); i++) {
 
-        // Adding the MainClass to the bottom of the stack
-        stackOfClasses.push(symbolTable.getClass(symbolTable.getClasses().get(0)));
+            currentClass = symbolTable.getClass(symbolTable.getClasses().get(i));
+            s = "";
 
-        // Starting from the end of the list that has the names of the classes
-        for(int i = symbolTable.getClasses().size() - 1; i > 0; i--) {
+            if(reachability == null || reachability.isLive(currentClass)) {
+                objectFields = currentClass.getObjectFields();
+                s = ObjectLayout.typeName(currentClass) + " = type { i8**";
 
-            currentClass = symbolTable.getClass(symbolTable.getClasses().get(i));
-            pushParent(currentClass, stackOfClasses);
+                for(int j = 0; j < objectFields.size(); j++)
+                    s += ", " + setType(objectFields.get(j).getType());
+
+                s += " }\n";
+            }
+            if(i == symbolTable.getClasses().size() - 1)
+                s += "\n";
+
+            try {
+                out.write(s);
+            }
+            catch (Exception e) {
+                throw new CompileError(e.toString());
+            }
         }
+    }
 
-        while(!stackOfClasses.isEmpty()) {
+    // Writes the V-Table declarations to an .ll file
+    public void writeVTables() {
+
+        String s;
+        String className;
+        String returnType;
+        int totalMethods;
+        List<MethodInfo> slots;
+        List<String> parameterTypes;
+        MethodInfo currentMethod;
+
+        for(ClassInfo currentClass : vTableOrder()) {
 
-            currentClass = stackOfClasses.pop();
             className = currentClass.getName();
 
             try {
 
-                if(currentClass.getMethods().contains("main")) {
+                if(currentClass.declaresMethod("main")) {
                     s = "@." + className + "_vtable = global [0 x i8*] []\n\n";
-                    byte b[] = s.getBytes(); // Converting the string to a byte array
-                    out.write(b);
+                    out.write(s);
                     continue;
                 }
 
-                else {
-                    totalMethods = currentClass.getInheritedMethods().size() + currentClass.getMethods().size();
-                    s = "@." + className + "_vtable = global [" + totalMethods + " x i8*] [";
-
-                    if(totalMethods != 0) {
-                        s += "\n";
-
-                        Set<String> keys = tablesMap.get(className).getPointersTable().keySet();
-                        int index = keys.size();
-                        int counter = 0;
-
-                        // Iterating through the class's methods
-                        for(String k:keys) {
-
-                            // Retrieving the method that we'll be working on
-                            methodName = k;
-                            if(currentClass.getInheritedMethods().contains(methodName))
-                                currentMethod = currentClass.getInheritedMethodMap().get(methodName);
-                            else if(currentClass.getMethods().contains(methodName))
-                                currentMethod = currentClass.getMethodMap().get(methodName);
-
-                            // Setting the return type
-                            returnType = currentMethod.getReturnType();
-                            returnType = setType(returnType);
-
-                            s += "    i8* bitcast (" + returnType + " (i8*";
+                if(reachability != null && !reachability.isInstantiated(currentClass))
+                    continue;
 
-                            // Iterating through the method's arguments
-                            totalArgs = currentMethod.getArguments().size();
-                            argIndex = 0;
-                            for(int i = 0; i < totalArgs; i++) {
+                slots = currentClass.getVTableSlots();
+                totalMethods = slots.size();
+                s = "@." + className + "_vtable = global [" + totalMethods + " x i8*] [";
 
-                                s += ",";
+                if(totalMethods != 0) {
+                    s += "\n";
 
-                                currentArgument = currentMethod.getArguments().get(i);
-                                argType = currentArgument.getType();
-                                argType = setType(argType);
+                    // Every slot points to the method of the class that declared it last
+                    for(int j = 0; j < totalMethods; j++) {
 
-                                s += argType;
+                        currentMethod = slots.get(j);
 
-                                if(argIndex < totalArgs - 1)
-                                    s += ",";
+                        // Nothing calls the method, so it isn't translated
+                        if(reachability != null && !reachability.isReachable(currentMethod)) {
+                            s += "    i8* null";
+                            if(j < totalMethods - 1)
+                                s += ",\n";
+                            continue;
+                        }
 
-                                argIndex++;
-                            }
+                        // Setting the return type
+                        returnType = currentMethod.getReturnType();
+                        returnType = setType(returnType);
 
-                            if(currentClass.getMethods().contains(methodName))
-                                s += ")* @" + className + "." + methodName + " to i8*)";
-                            else if(currentClass.getInheritedMethods().contains(methodName))
-                                s += ")* @" + currentMethod.getOwner().getName() + "." + methodName + " to i8*)";
+                        // The object the method is called on comes before the method's arguments
+                        parameterTypes = new ArrayList<String>();
+                        parameterTypes.add("i8*");
+                        for(FieldInfo currentArgument : currentMethod.getArguments())
+                            parameterTypes.add(setType(currentArgument.getType()));
 
-                            if(counter < index - 1)
-                                s += ",\n";
+                        s += "    i8* bitcast (" + returnType + " (" + String.join(",", parameterTypes) + ")* @" + currentMethod.getOwner().getName() + "." + currentMethod.getName() + " to i8*)";
 
-                            counter++;
-                        }
-                    }
-                    else {
-                        s += "]\n\n";
-                        byte b[] = s.getBytes(); // Converting the string to a byte array
-                        out.write(b);
-                        continue;
+                        if(j < totalMethods - 1)
+                            s += ",\n";
                     }
 
                     s += "\n";
@@ -183,12 +199,10 @@ public class VTables extends Info {
 
                 s += "]\n\n";
 
-                byte b[] = s.getBytes(); // Converting the string to a byte array
-                out.write(b);
+                out.write(s);
             }
             catch (Exception e) {
-                System.out.println(e);
-                System.exit(1);
+                throw new CompileError(e.toString());
             }
         }
     }
@@ -196,7 +210,7 @@ public class VTables extends Info {
 
 class Functions {
 
-    public static void declareFunctions(FileOutputStream out) {
+    public static void declareFunctions(IRWriter out) {
 
         String s;
         s = "declare i8* @calloc(i32, i32)\n";
@@ -228,30 +242,10 @@ class Functions {
         s += "}\n\n";
 
         try {
-            byte b[] = s.getBytes(); // Converting the string to a byte array
-            out.write(b);
+            out.write(s);
         }
         catch (Exception e) {
-            System.out.println(e);
-            System.exit(1);
+            throw new CompileError(e.toString());
         }
     }
 }
-
-class VariableType {
-    FieldInfo variable;
-    String type;
-
-    public VariableType(FieldInfo variable, String type) {
-        setVariable(variable);
-        setType(type);
-    }
-
-    public void setVariable(FieldInfo variable) { this.variable = variable; }
-
-    public void setType(String type) { this.type = type; }
-
-    public FieldInfo getVariable() { return this.variable; }
-
-    public String getType() { return this.type; }
-}